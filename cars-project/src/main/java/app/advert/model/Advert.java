@@ -18,6 +18,11 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_advert_visible_created_on", columnList = "visible, createdOn, id"),
+        @Index(name = "idx_advert_visible_buy_now_price", columnList = "visible, buyNowPrice, id"),
+        @Index(name = "idx_advert_visible_expire_date", columnList = "visible, expireDate")
+})
 @Getter
 @Setter
 @Builder
@@ -28,6 +33,10 @@ public class Advert {
     @GeneratedValue (strategy = GenerationType.UUID)
     private UUID id;
 
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private long version;
+
     @NotNull
     @Column(nullable = false)
     private String advertName;
@@ -55,7 +64,9 @@ public class Advert {
 
     private Boolean visible;
 
+    // Written only on insert, views are added by AdvertViewCounter
     @Min(0)
+    @Column(updatable = false)
     private Integer viewCount;
 
     @Enumerated(EnumType.STRING)
@@ -0,0 +1,17 @@
+package app.advert.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public interface AdvertBidState {
+
+    long getVersion();
+
+    BigDecimal getCurrentBidPrice();
+
+    Boolean getVisible();
+
+    CarStatus getCarStatus();
+
+    LocalDateTime getExpireDate();
+}
@@ -0,0 +1,10 @@
+package app.advert.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record AdvertCardView(UUID id, String advertName, CarBrand carBrand, String carModel, String imageURL,
+                             String description, BigDecimal buyNowPrice, Integer manufactureYear, Boolean biddingOpen,
+                             BigDecimal currentBidPrice, CarStatus carStatus, LocalDateTime createdOn, UUID ownerId) {
+}
@@ -0,0 +1,11 @@
+package app.advert.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public interface AdvertExpiry {
+
+    UUID getId();
+
+    LocalDateTime getExpireDate();
+}
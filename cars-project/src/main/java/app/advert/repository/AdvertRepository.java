@@ -1,24 +1,75 @@
 package app.advert.repository;
 
 import app.advert.model.Advert;
+import app.advert.model.AdvertBidState;
+import app.advert.model.AdvertCardView;
+import app.advert.model.AdvertExpiry;
+import app.user.model.User;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface AdvertRepository extends JpaRepository<Advert, UUID> {
 
-    List<Advert> findAdvertByOwnerId(UUID ownerId);
+    // Listing pages only need the card columns, these select them in one statement without the entity graph
+    List<AdvertCardView> findCardsByOwnerId(UUID ownerId);
 
-    List<Advert> findAdvertByWinnerId(UUID winnerId);
+    List<AdvertCardView> findCardsByWinnerId(UUID winnerId);
 
-    List<Advert> findByVisibleTrue();
+    List<AdvertCardView> findFirst20CardsByVisibleTrueOrderByCreatedOnDesc();
 
-    List<Advert> findByVisible(boolean visible, Pageable pageable);
+    List<AdvertCardView> findCardsByVisible(boolean visible, Pageable pageable);
 
-    List<Advert> findByExpireDate(LocalDateTime expireDate);
+    Window<AdvertCardView> findFirst20CardsByVisibleTrue(ScrollPosition position, Sort sort);
+
+    long countByVisibleTrue();
+
+    // Upcoming closes for the expiry wheel, a range scan on idx_advert_visible_expire_date
+    List<AdvertExpiry> findExpiriesByVisibleTrueAndExpireDateBefore(LocalDateTime until);
+
+    @Query("SELECT a.version AS version, a.currentBidPrice AS currentBidPrice, a.visible AS visible, " +
+            "a.carStatus AS carStatus, a.expireDate AS expireDate FROM Advert a WHERE a.id = :id")
+    Optional<AdvertBidState> findBidStateById(@Param("id") UUID id);
+
+    @Modifying
+    @Query("UPDATE Advert a SET a.currentBidPrice = :price, a.lastBidder = :bidder, a.lastBidDate = :bidDate, " +
+            "a.updatedOn = :bidDate, a.version = a.version + 1 WHERE a.id = :id AND a.version = :version")
+    int compareAndSetBidState(@Param("id") UUID id, @Param("version") long version, @Param("price") BigDecimal price,
+                              @Param("bidder") User bidder, @Param("bidDate") LocalDateTime bidDate);
+
+    // Auctions that closed without a reservation go to their last bidder
+    @Modifying
+    @Query("UPDATE Advert a SET a.winner = a.lastBidder WHERE a.id IN :ids AND a.winner IS NULL")
+    int assignLastBidderAsWinner(@Param("ids") Collection<UUID> ids);
+
+    @Modifying
+    @Query("UPDATE Advert a SET a.carStatus = app.advert.model.CarStatus.SOLD, a.visible = false, " +
+            "a.updatedOn = :soldOn, a.version = a.version + 1 WHERE a.id IN :ids")
+    int markSold(@Param("ids") Collection<UUID> ids, @Param("soldOn") LocalDateTime soldOn);
+
+    // Skips adverts whose expire date was moved past now since they were scheduled
+    @Modifying
+    @Query("UPDATE Advert a SET a.visible = false, a.updatedOn = :now, a.version = a.version + 1 " +
+            "WHERE a.id IN :ids AND a.visible = true AND a.expireDate <= :now")
+    int expireVisible(@Param("ids") Collection<UUID> ids, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Advert a SET a.viewCount = COALESCE(a.viewCount, 0) + :delta WHERE a.id IN :ids")
+    int addViewCount(@Param("delta") int delta, @Param("ids") Collection<UUID> ids);
 }
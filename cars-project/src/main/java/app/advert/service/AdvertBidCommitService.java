@@ -0,0 +1,114 @@
+package app.advert.service;
+
+import app.advert.model.AdvertBidState;
+import app.advert.model.CarStatus;
+import app.advert.repository.AdvertRepository;
+import app.exception.AdvertNotFoundException;
+import app.exception.DomainException;
+import app.user.model.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Commits the winning bid of an advert by updating only the bid columns with a compare-and-set on the advert version.
+ * A conflicting writer makes the update miss, in which case the state is re-read and the update retried with backoff.
+ */
+@Slf4j
+@Service
+public class AdvertBidCommitService {
+
+    private final AdvertRepository advertRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    private final Counter conflicts;
+    private final Counter retries;
+    private final Counter failures;
+
+    @Autowired
+    public AdvertBidCommitService(AdvertRepository advertRepository,
+                                  EntityManager entityManager,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${bids.commit.max-attempts:5}") int maxAttempts,
+                                  @Value("${bids.commit.backoff-ms:10}") long backoffMs) {
+        this.advertRepository = advertRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+        this.conflicts = meterRegistry.counter("bids.commit.conflicts");
+        this.retries = meterRegistry.counter("bids.commit.retries");
+        this.failures = meterRegistry.counter("bids.commit.failures");
+    }
+
+    /**
+     * @return true when the advert now carries the given bid, false when a higher bid was already committed or the
+     * advert no longer takes bids
+     */
+    public boolean commitBid(UUID advertId, BigDecimal price, UUID bidderId, LocalDateTime bidDate) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            Boolean committed = transactionTemplate.execute(status -> tryCommit(advertId, price, bidderId, bidDate));
+            if (committed != null) {
+                return committed;
+            }
+
+            conflicts.increment();
+            if (attempt < maxAttempts) {
+                retries.increment();
+                backoff(attempt);
+            }
+        }
+        failures.increment();
+        throw new DomainException("Bid for advert [%s] could not be committed after [%d] attempts!".formatted(advertId, maxAttempts));
+    }
+
+    private Boolean tryCommit(UUID advertId, BigDecimal price, UUID bidderId, LocalDateTime bidDate) {
+        AdvertBidState state = advertRepository.findBidStateById(advertId).orElseThrow(() ->
+                new AdvertNotFoundException("Advert with ID [%s] is not found!".formatted(advertId)));
+        if (!takesBids(state)) {
+            log.warn("Skipped bid of [{}] on advert [{}], the advert no longer takes bids", price, advertId);
+            return false;
+        }
+        if (state.getCurrentBidPrice() != null && state.getCurrentBidPrice().compareTo(price) >= 0) {
+            return false;
+        }
+        User bidder = entityManager.getReference(User.class, bidderId);
+        int updated = advertRepository.compareAndSetBidState(advertId, state.getVersion(), price, bidder, bidDate);
+        // null signals a version conflict, the caller retries
+        return updated == 1 ? Boolean.TRUE : null;
+    }
+
+    // Expired auctions are hidden as well, their bids were accepted before the expiry and still count
+    private static boolean takesBids(AdvertBidState state) {
+        if (state.getCarStatus() == CarStatus.SOLD || state.getCarStatus() == CarStatus.RESERVED) {
+            return false;
+        }
+        return Boolean.TRUE.equals(state.getVisible())
+                || (state.getExpireDate() != null && !state.getExpireDate().isAfter(LocalDateTime.now()));
+    }
+
+    private void backoff(int attempt) {
+        long delay = backoffMs * (1L << Math.min(attempt - 1, 10));
+        try {
+            Thread.sleep(delay + ThreadLocalRandom.current().nextLong(delay + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DomainException("Interrupted while committing a bid!", e);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package app.advert.service;
+
+import app.advert.model.AdvertCardView;
+import app.exception.DomainException;
+import lombok.experimental.UtilityClass;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Opaque page cursor for the advert catalogue: the sort value and the id of the last advert on a page.
+ */
+@UtilityClass
+public class AdvertCursor {
+
+    public static final Set<String> SORT_FIELDS = Set.of("createdOn", "buyNowPrice");
+
+    private static final String SEPARATOR = "|";
+
+    public static String encode(AdvertCardView advert, String sortField) {
+        Object value = sortField.equals("buyNowPrice") ? advert.buyNowPrice() : advert.createdOn();
+        String raw = value + SEPARATOR + advert.id();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetScrollPosition decode(String cursor, String sortField) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            String value = raw.substring(0, separatorIndex);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put(sortField, sortField.equals("buyNowPrice") ? new BigDecimal(value) : LocalDateTime.parse(value));
+            keys.put("id", UUID.fromString(raw.substring(separatorIndex + 1)));
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new DomainException("Invalid page cursor [%s]!".formatted(cursor), e);
+        }
+    }
+}
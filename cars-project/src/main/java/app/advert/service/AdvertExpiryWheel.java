@@ -0,0 +1,164 @@
+package app.advert.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Hierarchical timer wheel of advert expire dates at second precision. Three levels of 64 slots cover the next
+ * 64 seconds, 64 minutes and 72 hours; an advert sits in the coarsest slot its deadline fits and moves down a level
+ * when that slot comes round, so advancing a tick touches only the adverts due in it.
+ * Deadlines past the horizon are not held, they are picked up by a later reload of the upcoming expiries.
+ */
+@Component
+public class AdvertExpiryWheel {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 3;
+    public static final long HORIZON_SECONDS = 1L << (SLOT_BITS * LEVELS);
+
+    @SuppressWarnings("unchecked")
+    private final List<UUID>[][] slots = new List[LEVELS][SLOTS];
+    // The current deadline of every scheduled advert, slot entries that no longer match it are stale and dropped
+    private final Map<UUID, Long> deadlines = new HashMap<>();
+    private final Set<UUID> due = new LinkedHashSet<>();
+    private final ZoneId zone;
+    private long currentSecond;
+
+    @Autowired
+    public AdvertExpiryWheel() {
+        this(Instant.now().getEpochSecond(), ZoneId.systemDefault());
+    }
+
+    public AdvertExpiryWheel(long currentSecond, ZoneId zone) {
+        this.currentSecond = currentSecond;
+        this.zone = zone;
+    }
+
+    /**
+     * Schedules the advert to close at its expire date, replacing an earlier deadline.
+     * Returns false when the expire date lies past the horizon and the advert is not held.
+     */
+    public boolean schedule(UUID advertId, LocalDateTime expireDate) {
+        // Rounded up, a close never fires before the expire date has passed
+        Instant instant = expireDate.atZone(zone).toInstant();
+        return schedule(advertId, instant.getEpochSecond() + (instant.getNano() > 0 ? 1 : 0));
+    }
+
+    public synchronized boolean schedule(UUID advertId, long deadlineSecond) {
+        if (deadlineSecond - currentSecond >= HORIZON_SECONDS) {
+            cancel(advertId);
+            return false;
+        }
+        Long previous = deadlines.put(advertId, deadlineSecond);
+        if (previous == null || previous != deadlineSecond) {
+            due.remove(advertId);
+            place(advertId, deadlineSecond);
+        }
+        return true;
+    }
+
+    public synchronized void cancel(UUID advertId) {
+        deadlines.remove(advertId);
+        due.remove(advertId);
+    }
+
+    public List<UUID> advanceTo(LocalDateTime now) {
+        return advanceTo(now.atZone(zone).toEpochSecond());
+    }
+
+    /**
+     * Moves the wheel forward to the given second and returns the adverts that became due on the way.
+     */
+    public synchronized List<UUID> advanceTo(long nowSecond) {
+        if (nowSecond - currentSecond >= HORIZON_SECONDS) {
+            // After a long pause every held deadline is due or re-placed, cheaper than stepping through each second
+            rebuild(nowSecond);
+        }
+        while (currentSecond < nowSecond) {
+            currentSecond++;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentSecond & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(level);
+                }
+            }
+            fire();
+        }
+
+        List<UUID> dueAdverts = new ArrayList<>(due);
+        due.clear();
+        dueAdverts.forEach(deadlines::remove);
+        return dueAdverts;
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    private void place(UUID advertId, long deadlineSecond) {
+        long delta = deadlineSecond - currentSecond;
+        if (delta <= 0) {
+            due.add(advertId);
+            return;
+        }
+        int level = 0;
+        while (delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((deadlineSecond >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        if (slots[level][slot] == null) {
+            slots[level][slot] = new ArrayList<>();
+        }
+        slots[level][slot].add(advertId);
+    }
+
+    private void cascade(int level) {
+        int slot = (int) ((currentSecond >>> (SLOT_BITS * level)) & (SLOTS - 1));
+        List<UUID> advertIds = slots[level][slot];
+        if (advertIds == null) {
+            return;
+        }
+        slots[level][slot] = null;
+        for (UUID advertId : advertIds) {
+            Long deadline = deadlines.get(advertId);
+            if (deadline != null && (deadline >>> (SLOT_BITS * level)) == (currentSecond >>> (SLOT_BITS * level))) {
+                place(advertId, deadline);
+            }
+        }
+    }
+
+    private void fire() {
+        int slot = (int) (currentSecond & (SLOTS - 1));
+        List<UUID> advertIds = slots[0][slot];
+        if (advertIds == null) {
+            return;
+        }
+        slots[0][slot] = null;
+        for (UUID advertId : advertIds) {
+            Long deadline = deadlines.get(advertId);
+            if (deadline != null && deadline <= currentSecond) {
+                due.add(advertId);
+            }
+        }
+    }
+
+    private void rebuild(long nowSecond) {
+        for (List<UUID>[] level : slots) {
+            Arrays.fill(level, null);
+        }
+        currentSecond = nowSecond;
+        deadlines.forEach(this::place);
+    }
+}
@@ -1,13 +1,20 @@
 package app.advert.service;
 
 import app.advert.model.Advert;
+import app.advert.model.AdvertCardView;
+import app.advert.model.AdvertExpiry;
 import app.advert.model.CarStatus;
 import app.advert.repository.AdvertRepository;
+import app.bid.service.BidEngine;
 import app.exception.AdvertNotFoundException;
+import app.exception.DomainException;
 import app.user.model.User;
 import app.web.dto.CreateNewAdvertRequest;
+import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
@@ -20,13 +27,24 @@ import java.util.UUID;
 @Service
 public class AdvertService {
 
+    // Keeps the IN list of the bulk expiry well inside the bind parameter limits
+    private static final int EXPIRE_BATCH_SIZE = 1000;
+
     private final AdvertRepository advertRepository;
+    private final BidEngine bidEngine;
+    private final AdvertViewCounter advertViewCounter;
+    private final AdvertExpiryWheel advertExpiryWheel;
 
     @Autowired
-    public AdvertService(AdvertRepository advertRepository) {
+    public AdvertService(AdvertRepository advertRepository, BidEngine bidEngine, AdvertViewCounter advertViewCounter,
+                         AdvertExpiryWheel advertExpiryWheel) {
         this.advertRepository = advertRepository;
+        this.bidEngine = bidEngine;
+        this.advertViewCounter = advertViewCounter;
+        this.advertExpiryWheel = advertExpiryWheel;
     }
 
+    @CacheEvict(value = "visibleAdvertCount", allEntries = true)
     public void createNewAd(CreateNewAdvertRequest createNewAdvertRequest, User user) {
 
         LocalDateTime now = LocalDateTime.now();
@@ -58,39 +76,75 @@ public class AdvertService {
                 .build();
 
         advertRepository.save(advert);
+        scheduleExpiry(advert);
 
         System.out.printf("Created a new ad with name [%s] and description [%s] %n", advert.getAdvertName(), advert.getDescription());
     }
 
-    public List<Advert> getAdvertsByOwnerId(UUID ownerId) {
-        return advertRepository.findAdvertByOwnerId(ownerId);
+    public List<AdvertCardView> getAdvertsByOwnerId(UUID ownerId) {
+        return advertRepository.findCardsByOwnerId(ownerId);
     }
 
-    public List<Advert> getAdvertsByWinnerId(UUID winnerId) {
-        return advertRepository.findAdvertByWinnerId(winnerId);
+    public List<AdvertCardView> getAdvertsByWinnerId(UUID winnerId) {
+        return advertRepository.findCardsByWinnerId(winnerId);
     }
 
-    public List<Advert> getAllShownAdvertsByPage(int page, String sortType, String sortField) {
+    public List<AdvertCardView> getAllShownAdvertsByPage(int page, String sortType, String sortField) {
         Sort sort = sortType.equals("ASC") ? Sort.by(sortField).ascending() :
                 Sort.by(sortField).descending();
         Pageable pageable = PageRequest.of(page, 20, sort);
-        return advertRepository.findByVisible(true, pageable);
+        return advertRepository.findCardsByVisible(true, pageable);
+    }
+
+    /**
+     * Seeks straight past the advert the cursor points at, falls back to offset paging without a usable cursor.
+     */
+    public List<AdvertCardView> getShownAdvertsPage(int page, String cursor, String sortType, String sortField) {
+        if (cursor == null || !AdvertCursor.SORT_FIELDS.contains(sortField)) {
+            return getAllShownAdvertsByPage(page, sortType, sortField);
+        }
+        try {
+            return getShownAdvertsAfter(cursor, sortType, sortField);
+        } catch (DomainException e) {
+            log.warn(e.getMessage());
+            return getAllShownAdvertsByPage(page, sortType, sortField);
+        }
+    }
+
+    public List<AdvertCardView> getShownAdvertsAfter(String cursor, String sortType, String sortField) {
+        if (!AdvertCursor.SORT_FIELDS.contains(sortField)) {
+            throw new DomainException("Cursor paging is not supported for sort field [%s]!".formatted(sortField));
+        }
+        Sort.Direction direction = sortType.equals("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC;
+        // The id breaks ties between equal sort values, so the cursor points at exactly one row
+        Sort sort = Sort.by(direction, sortField, "id");
+        return advertRepository.findFirst20CardsByVisibleTrue(AdvertCursor.decode(cursor, sortField), sort).getContent();
     }
 
+    public String getNextCursor(List<AdvertCardView> adverts, String sortField) {
+        if (adverts.size() < 20 || !AdvertCursor.SORT_FIELDS.contains(sortField)) {
+            return null;
+        }
+        return AdvertCursor.encode(adverts.get(adverts.size() - 1), sortField);
+    }
+
+    @CacheEvict(value = "visibleAdvertCount", allEntries = true)
     public void saveAdvert(Advert advert) {
         advertRepository.save(advert);
+        bidEngine.evictOrderBook(advert.getId());
+        scheduleExpiry(advert);
     }
 
+    @Cacheable("visibleAdvertCount")
     public int getAdvertCount() {
-        Sort sort = Sort.by("createdOn").descending();
-        Pageable pageable = PageRequest.of(0, 10000, sort);
-        return advertRepository.findByVisible(true, pageable).size();
+        return (int) advertRepository.countByVisibleTrue();
     }
 
     public Advert getAdvertById(UUID id) {
         return advertRepository.findById(id).orElseThrow(() -> new AdvertNotFoundException("Advert with ID [%s] is not found!".formatted(id)));
     }
 
+    @CacheEvict(value = "visibleAdvertCount", allEntries = true)
     public void reserveCarAdvert(UUID id, User winner) {
         Advert advert = getAdvertById(id);
         advert.setVisible(false);
@@ -98,8 +152,10 @@ public class AdvertService {
         advert.setCarStatus(CarStatus.RESERVED);
         advert.setWinner(winner);
         advertRepository.save(advert);
+        bidEngine.evictOrderBook(id);
     }
 
+    @CacheEvict(value = "visibleAdvertCount", allEntries = true)
     public void updateAdvert(UUID id, Advert advert) {
         Advert advertToUpdate = getAdvertById(id);
         LocalDateTime now = LocalDateTime.now();
@@ -116,39 +172,70 @@ public class AdvertService {
                 .fuelType(advert.getFuelType())
                 .gearboxType(advert.getGearboxType())
                 .biddingOpen(advert.getBiddingOpen())
-                .currentBidPrice(advert.getCurrentBidPrice())
+                .currentBidPrice(advertToUpdate.getCurrentBidPrice())
                 .minBidPrice(advert.getMinBidPrice())
                 .buyNowPrice(advert.getBuyNowPrice())
-                .lastBidDate(advert.getLastBidDate() != null ? advert.getLastBidDate() : null)
-                .lastBidder(advert.getLastBidder() != null ? advert.getLastBidder() : null)
+                .lastBidDate(advertToUpdate.getLastBidDate())
+                .lastBidder(advertToUpdate.getLastBidder())
                 .imageURL(advert.getImageURL())
                 .expireDate(advert.getExpireDate())
                 .updatedOn(LocalDateTime.now())
                 .visible(advert.getVisible())
-                .viewCount(advert.getViewCount())
+                .viewCount(advertToUpdate.getViewCount())
                 .vinNumber(advert.getVinNumber())
                 .winner(advert.getWinner())
                 .carStatus(advert.getCarStatus())
                 .createdOn(advertToUpdate.getCreatedOn())
                 .updatedOn(now)
+                .version(advert.getVersion())
                 .build();
         advertRepository.save(build);
+        scheduleExpiry(build);
     }
 
-    public List<Advert> getFirst20VisibleAdverts() {
-        return advertRepository.findByVisibleTrue().stream().filter(Advert::getVisible).limit(20).toList();
+    public long incrementViewCount(UUID id) {
+        advertViewCounter.increment(id);
+        return advertViewCounter.getPendingViews(id);
     }
 
-    public List<Advert> getAllExpiredAdverts() {
-        LocalDateTime now = LocalDateTime.now();
-        return advertRepository.findByExpireDate(now);
+    public List<AdvertCardView> getFirst20VisibleAdverts() {
+        return advertRepository.findFirst20CardsByVisibleTrueOrderByCreatedOnDesc();
     }
 
-    public void expireAdvert(Advert advert) {
-        advert.setVisible(false);
-        advert.setUpdatedOn(LocalDateTime.now());
-        advertRepository.save(advert);
-        log.info("Advert with id [%s] has expired!".formatted(advert.getId()));
+    /**
+     * Puts the visible adverts expiring before the given time on the expiry wheel, overdue ones included.
+     */
+    public int loadUpcomingExpiries(LocalDateTime until) {
+        List<AdvertExpiry> expiries = advertRepository.findExpiriesByVisibleTrueAndExpireDateBefore(until);
+        expiries.forEach(expiry -> advertExpiryWheel.schedule(expiry.getId(), expiry.getExpireDate()));
+        return expiries.size();
+    }
+
+    public List<UUID> getDueExpiries(LocalDateTime now) {
+        return advertExpiryWheel.advanceTo(now);
+    }
+
+    @Transactional
+    @CacheEvict(value = "visibleAdvertCount", allEntries = true)
+    public int expireAdverts(List<UUID> advertIds, LocalDateTime now) {
+        int expired = 0;
+        for (int from = 0; from < advertIds.size(); from += EXPIRE_BATCH_SIZE) {
+            expired += advertRepository.expireVisible(advertIds.subList(from, Math.min(from + EXPIRE_BATCH_SIZE, advertIds.size())), now);
+        }
+        advertIds.forEach(bidEngine::evictOrderBook);
+        log.info("Expired [{}] of [{}] due adverts", expired, advertIds.size());
+        return expired;
+    }
+
+    private void scheduleExpiry(Advert advert) {
+        if (advert.getId() == null) {
+            return;
+        }
+        if (Boolean.TRUE.equals(advert.getVisible()) && advert.getExpireDate() != null) {
+            advertExpiryWheel.schedule(advert.getId(), advert.getExpireDate());
+        } else {
+            advertExpiryWheel.cancel(advert.getId());
+        }
     }
 
 }
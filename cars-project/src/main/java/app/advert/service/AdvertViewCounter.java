@@ -0,0 +1,74 @@
+package app.advert.service;
+
+import app.advert.repository.AdvertRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Absorbs advert views in memory and writes the accumulated deltas to the database on an interval,
+ * so opening an advert page does not cost a row write.
+ */
+@Slf4j
+@Component
+public class AdvertViewCounter {
+
+    private final AdvertRepository advertRepository;
+    private final Map<UUID, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AdvertViewCounter(AdvertRepository advertRepository) {
+        this.advertRepository = advertRepository;
+    }
+
+    public void increment(UUID advertId) {
+        pendingViews.computeIfAbsent(advertId, id -> new LongAdder()).increment();
+    }
+
+    public long getPendingViews(UUID advertId) {
+        LongAdder views = pendingViews.get(advertId);
+        return views != null ? views.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${adverts.view-count.flush-interval-ms:5000}")
+    public void flush() {
+        // Adverts with the same delta share one UPDATE, most of them are viewed only a few times per interval
+        Map<Long, List<UUID>> advertsByDelta = new HashMap<>();
+        pendingViews.forEach((advertId, views) -> {
+            long delta = views.sumThenReset();
+            if (delta > 0) {
+                advertsByDelta.computeIfAbsent(delta, d -> new ArrayList<>()).add(advertId);
+            } else if (pendingViews.remove(advertId, views)) {
+                // Not viewed for a whole interval, a view racing the removal is carried over to a new counter
+                long late = views.sum();
+                if (late > 0) {
+                    pendingViews.computeIfAbsent(advertId, id -> new LongAdder()).add(late);
+                }
+            }
+        });
+
+        advertsByDelta.forEach((delta, advertIds) -> {
+            try {
+                advertRepository.addViewCount(delta.intValue(), advertIds);
+            } catch (RuntimeException e) {
+                log.error("Failed to flush [{}] views for [{}] adverts, they will be retried", delta, advertIds.size(), e);
+                advertIds.forEach(advertId -> pendingViews.computeIfAbsent(advertId, id -> new LongAdder()).add(delta));
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
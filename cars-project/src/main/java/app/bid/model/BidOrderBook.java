@@ -0,0 +1,106 @@
+package app.bid.model;
+
+import app.advert.model.Advert;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Live in-memory state of the bidding on a single advert.
+ * The price fields are only touched by the single writer draining the {@link #mailbox}.
+ */
+@Getter
+public class BidOrderBook {
+
+    private final UUID advertId;
+    private final UUID ownerId;
+    private final BigDecimal minBidPrice;
+    private final boolean biddingOpen;
+    private final LocalDateTime expireDate;
+
+    private BigDecimal currentBidPrice;
+    private UUID leadingBidderId;
+    private LocalDateTime lastBidDate;
+    private final Map<UUID, BigDecimal> highestBidByBidder = new HashMap<>();
+    // Insertion ordered so that on equal max bids the earlier proxy keeps the lead
+    private final Map<UUID, BigDecimal> proxyMaxByBidder = new LinkedHashMap<>();
+
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+    // Set by the writer once the book is evicted, tasks still in the mailbox go to the book that replaces it
+    private volatile boolean closed;
+
+    public BidOrderBook(UUID advertId, UUID ownerId, BigDecimal minBidPrice, boolean biddingOpen,
+                        LocalDateTime expireDate, BigDecimal currentBidPrice, UUID leadingBidderId,
+                        LocalDateTime lastBidDate) {
+        this.advertId = advertId;
+        this.ownerId = ownerId;
+        this.minBidPrice = minBidPrice;
+        this.biddingOpen = biddingOpen;
+        this.expireDate = expireDate;
+        this.currentBidPrice = currentBidPrice;
+        this.leadingBidderId = leadingBidderId;
+        this.lastBidDate = lastBidDate;
+    }
+
+    public static BidOrderBook of(Advert advert) {
+        BidOrderBook book = new BidOrderBook(
+                advert.getId(),
+                advert.getOwner() != null ? advert.getOwner().getId() : null,
+                advert.getMinBidPrice(),
+                Boolean.TRUE.equals(advert.getBiddingOpen()),
+                advert.getExpireDate(),
+                advert.getCurrentBidPrice(),
+                advert.getLastBidder() != null ? advert.getLastBidder().getId() : null,
+                advert.getLastBidDate());
+        advert.getBids().stream()
+                .filter(bid -> bid.getBidder() != null && bid.getBidPrice() != null)
+                .sorted(Comparator.comparing(Bid::getCreatedOn, Comparator.nullsFirst(Comparator.naturalOrder())))
+                .forEach(bid -> {
+                    book.highestBidByBidder.merge(bid.getBidder().getId(), bid.getBidPrice(), BigDecimal::max);
+                    if (bid.getMaxBidPrice() != null) {
+                        book.registerProxy(bid.getBidder().getId(), bid.getMaxBidPrice());
+                    }
+                });
+        if (book.currentBidPrice != null) {
+            book.pruneExhaustedProxies(book.currentBidPrice, book.leadingBidderId);
+        }
+        return book;
+    }
+
+    public boolean isOpenAt(LocalDateTime now) {
+        return biddingOpen && (expireDate == null || expireDate.isAfter(now));
+    }
+
+    public void accept(UUID bidderId, BigDecimal bidPrice, LocalDateTime placedOn) {
+        this.currentBidPrice = bidPrice;
+        this.leadingBidderId = bidderId;
+        this.lastBidDate = placedOn;
+        this.highestBidByBidder.merge(bidderId, bidPrice, BigDecimal::max);
+    }
+
+    public void close() {
+        this.closed = true;
+    }
+
+    public void registerProxy(UUID bidderId, BigDecimal maxBidPrice) {
+        this.proxyMaxByBidder.merge(bidderId, maxBidPrice, BigDecimal::max);
+    }
+
+    /**
+     * Drops every proxy that can no longer beat the given price, so resolution only walks the active ones.
+     */
+    public void pruneExhaustedProxies(BigDecimal price, UUID leaderId) {
+        this.proxyMaxByBidder.entrySet().removeIf(entry ->
+                !entry.getKey().equals(leaderId) && entry.getValue().compareTo(price) <= 0);
+    }
+}
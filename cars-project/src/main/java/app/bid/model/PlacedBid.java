@@ -0,0 +1,8 @@
+package app.bid.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record PlacedBid(UUID advertId, UUID bidderId, BigDecimal bidPrice, BigDecimal maxBidPrice, LocalDateTime placedOn) {
+}
@@ -0,0 +1,7 @@
+package app.bid.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record ProxyResolution(UUID leaderId, BigDecimal price, BigDecimal leaderMaxBidPrice) {
+}
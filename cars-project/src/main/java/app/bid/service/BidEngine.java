@@ -0,0 +1,341 @@
+package app.bid.service;
+
+import app.advert.model.Advert;
+import app.advert.repository.AdvertRepository;
+import app.advert.service.AdvertBidCommitService;
+import app.bid.model.BidOrderBook;
+import app.bid.model.PlacedBid;
+import app.bid.model.ProxyResolution;
+import app.exception.AdvertNotFoundException;
+import app.exception.DomainException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accepts bids against an in-memory order book per advert. Every book is mutated by a single writer at a time,
+ * so bids are validated without reading the database, and accepted bids are persisted in batches afterwards.
+ */
+@Slf4j
+@Service
+public class BidEngine {
+
+    private static final int EVICTION_SLOTS = 256;
+
+    private final AdvertRepository advertRepository;
+    private final BidsService bidsService;
+    private final AdvertBidCommitService advertBidCommitService;
+    private final ProxyBidResolver proxyBidResolver;
+    private final long placeTimeoutMs;
+    private final int flushBatchSize;
+
+    private final Map<UUID, BidOrderBook> orderBooks = new ConcurrentHashMap<>();
+    // Evictions counted per slot of adverts, a book loaded across an eviction of its slot is not trusted
+    private final AtomicLongArray evictions = new AtomicLongArray(EVICTION_SLOTS);
+    private final Queue<PlacedBid> acceptedBids = new ConcurrentLinkedQueue<>();
+    // Taken off the queue by the running flush and not committed yet
+    private final Queue<PlacedBid> flushingBids = new ConcurrentLinkedQueue<>();
+    private final ExecutorService writers;
+
+    @Autowired
+    public BidEngine(AdvertRepository advertRepository, BidsService bidsService,
+                     AdvertBidCommitService advertBidCommitService, ProxyBidResolver proxyBidResolver,
+                     @Value("${bids.place-timeout-ms:2000}") long placeTimeoutMs,
+                     @Value("${bids.flush-batch-size:500}") int flushBatchSize) {
+        this.advertRepository = advertRepository;
+        this.bidsService = bidsService;
+        this.advertBidCommitService = advertBidCommitService;
+        this.proxyBidResolver = proxyBidResolver;
+        this.placeTimeoutMs = placeTimeoutMs;
+        this.flushBatchSize = flushBatchSize;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "bid-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public PlacedBid placeBid(UUID advertId, UUID bidderId, BigDecimal bidPrice, BigDecimal maxBidPrice) {
+        if (bidPrice == null || bidPrice.signum() <= 0) {
+            throw new DomainException("Bid price must be a positive amount!");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(placeTimeoutMs);
+        while (true) {
+            BidOrderBook book = getOrderBook(advertId);
+            CompletableFuture<PlacedBid> result = new CompletableFuture<>();
+            // Claimed by whoever comes first, the writer to decide the bid or the caller to give up on it
+            AtomicBoolean claimed = new AtomicBoolean();
+            submit(book, () -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    return;
+                }
+                if (book.isClosed()) {
+                    // Evicted while the bid was queued, it is placed again on the book that replaces it
+                    result.complete(null);
+                    return;
+                }
+                try {
+                    result.complete(accept(book, bidderId, bidPrice, maxBidPrice));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+
+            PlacedBid placedBid = await(advertId, result, claimed, deadline);
+            if (placedBid != null) {
+                return placedBid;
+            }
+        }
+    }
+
+    /**
+     * Closes the book of an advert on its own writer, so the bids queued before the eviction are still decided by
+     * this book and every later bid goes to a book reloaded from the advert. Inside a transaction this happens once
+     * it commits, a book reloaded before that would read the advert as it was before the change.
+     */
+    public void evictOrderBook(UUID advertId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    closeOrderBook(advertId);
+                }
+            });
+            return;
+        }
+        closeOrderBook(advertId);
+    }
+
+    private void closeOrderBook(UUID advertId) {
+        // Counted before the lookup, so a book being loaded right now sees it and discards itself
+        evictions.incrementAndGet(evictionSlotOf(advertId));
+        BidOrderBook book = orderBooks.get(advertId);
+        if (book != null && !writers.isShutdown()) {
+            submit(book, () -> {
+                book.close();
+                orderBooks.remove(advertId, book);
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bids.flush-interval-ms:200}")
+    public synchronized void flushAcceptedBids() {
+        List<PlacedBid> batch;
+        while (!(batch = nextBatch()).isEmpty()) {
+            commitLastBids(save(batch));
+            flushingBids.clear();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        writers.shutdown();
+        writers.awaitTermination(placeTimeoutMs, TimeUnit.MILLISECONDS);
+        flushAcceptedBids();
+    }
+
+    private PlacedBid await(UUID advertId, CompletableFuture<PlacedBid> result, AtomicBoolean claimed, long deadline) {
+        try {
+            try {
+                return result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    // The writer skips the bid now, so the caller is never told to retry a bid that goes through
+                    result.cancel(false);
+                    throw e;
+                }
+                // The writer is deciding the bid already, its answer is moments away
+                return result.get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new DomainException("Bid for advert [%s] could not be placed!".formatted(advertId), e.getCause());
+        } catch (TimeoutException e) {
+            throw new DomainException("Bid for advert [%s] timed out, please try again!".formatted(advertId), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DomainException("Bid for advert [%s] was interrupted!".formatted(advertId), e);
+        }
+    }
+
+    // Published as flushing before leaving the queue, so a rebuilding book always finds a bid in one of the two
+    private List<PlacedBid> nextBatch() {
+        List<PlacedBid> batch = new ArrayList<>();
+        for (PlacedBid placedBid : acceptedBids) {
+            if (batch.size() == flushBatchSize) {
+                break;
+            }
+            batch.add(placedBid);
+        }
+        flushingBids.addAll(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            acceptedBids.poll();
+        }
+        return batch;
+    }
+
+    // A batch rolls back as a whole, so one broken bid is isolated by saving the batch one by one
+    private List<PlacedBid> save(List<PlacedBid> batch) {
+        try {
+            bidsService.saveAcceptedBids(batch);
+            return batch;
+        } catch (RuntimeException e) {
+            log.warn("Saving [{}] accepted bids failed, saving them one by one", batch.size(), e);
+        }
+
+        List<PlacedBid> saved = new ArrayList<>();
+        for (PlacedBid placedBid : batch) {
+            try {
+                bidsService.saveAcceptedBids(List.of(placedBid));
+                saved.add(placedBid);
+            } catch (RuntimeException e) {
+                log.error("Dropped bid of [{}] on advert [{}], it could not be saved", placedBid.bidPrice(), placedBid.advertId(), e);
+                // The book still counts the dropped bid, reload it from what was saved
+                flushingBids.remove(placedBid);
+                evictOrderBook(placedBid.advertId());
+            }
+        }
+        return saved;
+    }
+
+    private void commitLastBids(List<PlacedBid> batch) {
+        Map<UUID, PlacedBid> lastBidByAdvert = new LinkedHashMap<>();
+        for (PlacedBid placedBid : batch) {
+            lastBidByAdvert.put(placedBid.advertId(), placedBid);
+        }
+        for (PlacedBid lastBid : lastBidByAdvert.values()) {
+            try {
+                advertBidCommitService.commitBid(lastBid.advertId(), lastBid.bidPrice(), lastBid.bidderId(), lastBid.placedOn());
+            } catch (RuntimeException e) {
+                // The bids themselves are stored, drop the book so the next bid reloads the advert state
+                log.error("Failed to commit bid of [{}] on advert [{}]", lastBid.bidPrice(), lastBid.advertId(), e);
+                evictOrderBook(lastBid.advertId());
+            }
+        }
+    }
+
+    private BidOrderBook getOrderBook(UUID advertId) {
+        while (true) {
+            BidOrderBook book = orderBooks.get(advertId);
+            if (book != null) {
+                return book;
+            }
+            long generation = evictions.get(evictionSlotOf(advertId));
+            BidOrderBook fresh = loadOrderBook(advertId);
+            BidOrderBook loaded = orderBooks.putIfAbsent(advertId, fresh);
+            if (loaded != null) {
+                return loaded;
+            }
+            if (evictions.get(evictionSlotOf(advertId)) == generation) {
+                return fresh;
+            }
+            // Evicted while the advert was read, the book may hold the state from before the change
+            fresh.close();
+            orderBooks.remove(advertId, fresh);
+        }
+    }
+
+    private BidOrderBook loadOrderBook(UUID advertId) {
+        // Bids accepted by an evicted book may not be committed yet, replay them so the price never goes backwards.
+        // Collected before the advert is read, a bid in neither queue by then is already committed to the advert.
+        List<PlacedBid> queued = List.copyOf(acceptedBids);
+        List<PlacedBid> pendingBids = new ArrayList<>(flushingBids);
+        pendingBids.addAll(queued);
+
+        Advert advert = advertRepository.findById(advertId).orElseThrow(() ->
+                new AdvertNotFoundException("Advert with ID [%s] is not found!".formatted(advertId)));
+        BidOrderBook fresh = BidOrderBook.of(advert);
+        for (PlacedBid pending : pendingBids) {
+            if (pending.advertId().equals(advertId)
+                    && (fresh.getCurrentBidPrice() == null || pending.bidPrice().compareTo(fresh.getCurrentBidPrice()) > 0)) {
+                fresh.registerProxy(pending.bidderId(), pending.maxBidPrice());
+                fresh.accept(pending.bidderId(), pending.bidPrice(), pending.placedOn());
+            }
+        }
+        if (fresh.getCurrentBidPrice() != null) {
+            fresh.pruneExhaustedProxies(fresh.getCurrentBidPrice(), fresh.getLeadingBidderId());
+        }
+        return fresh;
+    }
+
+    private static int evictionSlotOf(UUID advertId) {
+        return Math.floorMod(advertId.hashCode(), EVICTION_SLOTS);
+    }
+
+    private PlacedBid accept(BidOrderBook book, UUID bidderId, BigDecimal bidPrice, BigDecimal maxBidPrice) {
+        LocalDateTime now = LocalDateTime.now();
+        if (!book.isOpenAt(now)) {
+            throw new DomainException("Bidding for advert [%s] is closed!".formatted(book.getAdvertId()));
+        }
+        if (bidderId.equals(book.getOwnerId())) {
+            throw new DomainException("You cannot bid on your own advert!");
+        }
+        if (book.getMinBidPrice() != null && bidPrice.compareTo(book.getMinBidPrice()) < 0) {
+            throw new DomainException("Bid must be at least [%s]!".formatted(book.getMinBidPrice()));
+        }
+        if (book.getCurrentBidPrice() != null && bidPrice.compareTo(book.getCurrentBidPrice()) <= 0) {
+            throw new DomainException("Bid must be higher than the current bid of [%s]!".formatted(book.getCurrentBidPrice()));
+        }
+
+        ProxyResolution resolution = proxyBidResolver.resolve(book, bidderId, bidPrice, maxBidPrice);
+        book.accept(resolution.leaderId(), resolution.price(), now);
+        if (bidderId.equals(resolution.leaderId())) {
+            PlacedBid placedBid = new PlacedBid(book.getAdvertId(), bidderId, resolution.price(), resolution.leaderMaxBidPrice(), now);
+            acceptedBids.add(placedBid);
+            return placedBid;
+        }
+
+        // Outbid straight away by an existing proxy, record the manual bid followed by the automatic counter bid
+        BigDecimal ownMax = maxBidPrice != null && maxBidPrice.compareTo(bidPrice) > 0 ? maxBidPrice : bidPrice;
+        PlacedBid placedBid = new PlacedBid(book.getAdvertId(), bidderId, bidPrice, ownMax, now);
+        acceptedBids.add(placedBid);
+        acceptedBids.add(new PlacedBid(book.getAdvertId(), resolution.leaderId(), resolution.price(), resolution.leaderMaxBidPrice(), now));
+        log.info("Bid of [{}] on advert [{}] was outbid by a proxy bid of [{}]", bidPrice, book.getAdvertId(), resolution.price());
+        return placedBid;
+    }
+
+    private void submit(BidOrderBook book, Runnable task) {
+        book.getMailbox().add(task);
+        if (book.getDraining().compareAndSet(false, true)) {
+            writers.execute(() -> drain(book));
+        }
+    }
+
+    private void drain(BidOrderBook book) {
+        do {
+            Runnable task;
+            while ((task = book.getMailbox().poll()) != null) {
+                task.run();
+            }
+            book.getDraining().set(false);
+        } while (!book.getMailbox().isEmpty() && book.getDraining().compareAndSet(false, true));
+    }
+}
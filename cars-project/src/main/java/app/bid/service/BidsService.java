@@ -2,15 +2,19 @@ package app.bid.service;
 
 import app.advert.model.Advert;
 import app.bid.model.Bid;
+import app.bid.model.PlacedBid;
 import app.bid.repository.BidsRepository;
 import app.exception.DomainException;
 import app.user.model.User;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,10 +24,12 @@ import org.springframework.stereotype.Service;
 public class BidsService {
 
     private final BidsRepository bidsRepository;
+    private final EntityManager entityManager;
 
     @Autowired
-    public BidsService(BidsRepository bidsRepository) {
+    public BidsService(BidsRepository bidsRepository, EntityManager entityManager) {
         this.bidsRepository = bidsRepository;
+        this.entityManager = entityManager;
     }
 
     public Bid getById(UUID id) {
@@ -41,8 +47,7 @@ public class BidsService {
                 .isAccepted(false)
                 .bidder(user)
                 .build();
-        this.createNewBidForAdvert(advert, bidToCreate);
-        return bidsRepository.save(bidToCreate);
+        return this.createNewBidForAdvert(advert, bidToCreate);
     }
 
     public Bid createNewBidForAdvert(Advert advert, Bid bidToCreate) {
@@ -52,6 +57,24 @@ public class BidsService {
         return bidToCreate;
     }
 
+    @Transactional
+    public void saveAcceptedBids(List<PlacedBid> placedBids) {
+        List<Bid> bids = new ArrayList<>(placedBids.size());
+        for (PlacedBid placedBid : placedBids) {
+            bids.add(Bid.builder()
+                    .advert(entityManager.getReference(Advert.class, placedBid.advertId()))
+                    .bidder(entityManager.getReference(User.class, placedBid.bidderId()))
+                    .bidPrice(placedBid.bidPrice())
+                    .maxBidPrice(placedBid.maxBidPrice())
+                    .isAccepted(true)
+                    .createdOn(placedBid.placedOn())
+                    .updatedOn(placedBid.placedOn())
+                    .build());
+        }
+        bidsRepository.saveAll(bids);
+        log.info("Persisted [{}] accepted bids", bids.size());
+    }
+
     public List<Bid> getBidsForUserId(User user) {
         return bidsRepository.findAllByBidderOrderByCreatedOnDesc(user);
     }
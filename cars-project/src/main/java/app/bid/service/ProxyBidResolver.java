@@ -0,0 +1,47 @@
+package app.bid.service;
+
+import app.bid.model.BidOrderBook;
+import app.bid.model.ProxyResolution;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Resolves all competing max bids on an advert in a single pass, second-price style:
+ * the highest max bid leads and pays one increment above the runner-up, capped at its own max.
+ */
+@Component
+public class ProxyBidResolver {
+
+    private final BigDecimal increment;
+
+    public ProxyBidResolver(@Value("${bids.proxy-increment:50}") BigDecimal increment) {
+        this.increment = increment;
+    }
+
+    public ProxyResolution resolve(BidOrderBook book, UUID bidderId, BigDecimal bidPrice, BigDecimal maxBidPrice) {
+        BigDecimal ownMax = maxBidPrice != null && maxBidPrice.compareTo(bidPrice) > 0 ? maxBidPrice : bidPrice;
+        book.registerProxy(bidderId, ownMax);
+
+        UUID leaderId = null;
+        BigDecimal leaderMax = null;
+        BigDecimal runnerUpMax = null;
+        for (Map.Entry<UUID, BigDecimal> proxy : book.getProxyMaxByBidder().entrySet()) {
+            BigDecimal proxyMax = proxy.getValue();
+            if (leaderMax == null || proxyMax.compareTo(leaderMax) > 0) {
+                runnerUpMax = leaderMax;
+                leaderId = proxy.getKey();
+                leaderMax = proxyMax;
+            } else if (runnerUpMax == null || proxyMax.compareTo(runnerUpMax) > 0) {
+                runnerUpMax = proxyMax;
+            }
+        }
+
+        BigDecimal price = runnerUpMax == null ? bidPrice : runnerUpMax.add(increment).min(leaderMax).max(bidPrice);
+        book.pruneExhaustedProxies(price, leaderId);
+        return new ProxyResolution(leaderId, price, leaderMax);
+    }
+}
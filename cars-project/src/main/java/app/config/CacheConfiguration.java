@@ -0,0 +1,69 @@
+package app.config;
+
+import app.transaction.service.TransactionService;
+import app.user.service.CurrentUserService;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Slice;
+
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Every cache is bounded and records stats, which actuator publishes as cache.* metrics.
+ * Caches that are not registered here get the default spec.
+ */
+@Configuration
+public class CacheConfiguration {
+
+    @Bean
+    public CacheManager cacheManager(@Value("${caches.default-spec:maximumSize=1000,expireAfterWrite=10m,recordStats}") String defaultSpec,
+                                     @Value("${caches.users.max-weight:10000}") long usersMaxWeight,
+                                     @Value("${caches.users.ttl-minutes:10}") long usersTtlMinutes,
+                                     @Value("${caches.visible-advert-count.ttl-seconds:30}") long visibleAdvertCountTtlSeconds,
+                                     @Value("${users.current-view.ttl-seconds:5}") long currentUserTtlSeconds,
+                                     @Value("${users.current-view.max-size:10000}") long currentUserMaxSize,
+                                     @Value("${caches.transaction-idempotency.max-size:100000}") long idempotencyMaxSize,
+                                     @Value("${caches.transaction-idempotency.ttl-hours:24}") long idempotencyTtlHours) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheSpecification(defaultSpec);
+
+        // Weighed by the number of users in a cached list or page, so the admin list cannot grow the heap without limit
+        cacheManager.registerCustomCache("users", Caffeine.newBuilder()
+                .maximumWeight(usersMaxWeight)
+                .weigher((Object key, Object value) -> Math.max(1, weightOf(value)))
+                .expireAfterWrite(Duration.ofMinutes(usersTtlMinutes))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache("visibleAdvertCount", Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(Duration.ofSeconds(visibleAdvertCountTtlSeconds))
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(CurrentUserService.CACHE_NAME, Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofSeconds(currentUserTtlSeconds))
+                .maximumSize(currentUserMaxSize)
+                .recordStats()
+                .build());
+        cacheManager.registerCustomCache(TransactionService.IDEMPOTENCY_CACHE_NAME, Caffeine.newBuilder()
+                .maximumSize(idempotencyMaxSize)
+                .expireAfterWrite(Duration.ofHours(idempotencyTtlHours))
+                .recordStats()
+                .build());
+        return cacheManager;
+    }
+
+    private static int weightOf(Object value) {
+        if (value instanceof Collection<?> users) {
+            return users.size();
+        }
+        if (value instanceof Slice<?> page) {
+            return page.getNumberOfElements();
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,111 @@
+package app.config;
+
+import app.vin.client.VinClientBulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client of the VIN service. Connections are pooled and kept alive, and every call is bounded by the
+ * bulkhead wait, the pool wait, the connect timeout and the response timeout of its endpoint, lookups get a
+ * shorter one than writes and the streamed batch endpoint the longest. Pool usage is published as httpcomponents.httpclient.pool.* metrics, latency as
+ * http.client.requests by the RestTemplateBuilder.
+ */
+@Configuration
+public class VinClientConfiguration {
+
+    private static final String POOL_NAME = "vin-service";
+    private static final String BATCH_PATH = "/save-vin-checks";
+
+    @Bean
+    public PoolingHttpClientConnectionManager vinConnectionManager(MeterRegistry meterRegistry,
+                                                                   @Value("${vin.service.pool.max-connections:20}") int maxConnections,
+                                                                   @Value("${vin.service.connect-timeout-ms:500}") long connectTimeoutMs,
+                                                                   @Value("${vin.service.keep-alive-seconds:30}") long keepAliveSeconds) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                // Every call goes to the same host, so the route may use the whole pool
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setTimeToLive(TimeValue.ofSeconds(keepAliveSeconds))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, POOL_NAME).bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean
+    public CloseableHttpClient vinHttpClient(PoolingHttpClientConnectionManager vinConnectionManager,
+                                             @Value("${vin.service.keep-alive-seconds:30}") long keepAliveSeconds) {
+        return HttpClients.custom()
+                .setConnectionManager(vinConnectionManager)
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+                // A timed out write must not be sent again behind the caller's back
+                .disableAutomaticRetries()
+                .build();
+    }
+
+    @Bean
+    public VinClientBulkhead vinClientBulkhead(MeterRegistry meterRegistry,
+                                               @Value("${vin.service.bulkhead.max-concurrent:20}") int maxConcurrent,
+                                               @Value("${vin.service.bulkhead.wait-ms:100}") long waitMs) {
+        return new VinClientBulkhead(maxConcurrent, waitMs, meterRegistry);
+    }
+
+    @Bean
+    public RestTemplate vinRestTemplate(RestTemplateBuilder restTemplateBuilder,
+                                        CloseableHttpClient vinHttpClient,
+                                        VinClientBulkhead vinClientBulkhead,
+                                        @Value("${vin.service.pool-timeout-ms:250}") long poolTimeoutMs,
+                                        @Value("${vin.service.lookup-timeout-ms:2000}") long lookupTimeoutMs,
+                                        @Value("${vin.service.write-timeout-ms:3000}") long writeTimeoutMs,
+                                        @Value("${vin.service.batch-timeout-ms:30000}") long batchTimeoutMs) {
+        RequestConfig lookupConfig = requestConfig(poolTimeoutMs, lookupTimeoutMs);
+        RequestConfig writeConfig = requestConfig(poolTimeoutMs, writeTimeoutMs);
+        RequestConfig batchConfig = requestConfig(poolTimeoutMs, batchTimeoutMs);
+
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(vinHttpClient);
+        requestFactory.setHttpContextFactory((method, uri) -> {
+            HttpClientContext context = HttpClientContext.create();
+            if (uri.getPath().endsWith(BATCH_PATH)) {
+                context.setRequestConfig(batchConfig);
+            } else {
+                context.setRequestConfig(HttpMethod.GET.equals(method) ? lookupConfig : writeConfig);
+            }
+            return context;
+        });
+
+        return restTemplateBuilder
+                .requestFactory(() -> requestFactory)
+                .additionalInterceptors(vinClientBulkhead)
+                .build();
+    }
+
+    private static RequestConfig requestConfig(long poolTimeoutMs, long responseTimeoutMs) {
+        return RequestConfig.custom()
+                .setConnectionRequestTimeout(poolTimeoutMs, TimeUnit.MILLISECONDS)
+                .setResponseTimeout(responseTimeoutMs, TimeUnit.MILLISECONDS)
+                .build();
+    }
+}
@@ -1,37 +1,53 @@
 package app.scheduler;
 
-import app.advert.model.Advert;
 import app.advert.service.AdvertService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Closes auctions the second they expire. Upcoming expire dates are held on the expiry wheel, which is
+ * rehydrated from the database on startup and on every reload, and each tick hides the due adverts in one update.
+ */
 @Component
 @Slf4j
 public class AdvertsScheduler {
 
     private final AdvertService advertService;
+    private final long horizonHours;
 
     @Autowired
-    public AdvertsScheduler(AdvertService advertService) {
+    public AdvertsScheduler(AdvertService advertService, @Value("${adverts.expiry.horizon-hours:24}") long horizonHours) {
         this.advertService = advertService;
+        this.horizonHours = horizonHours;
     }
 
+    // Runs on startup too, overdue adverts are loaded along with the upcoming ones and close on the next tick
+    @Scheduled(initialDelay = 0, fixedDelayString = "${adverts.expiry.reload-interval-ms:600000}")
+    public void loadUpcomingExpiries() {
+        int loaded = advertService.loadUpcomingExpiries(LocalDateTime.now().plusHours(horizonHours));
+        log.info("Loaded [{}] adverts expiring in the next [{}] hours", loaded, horizonHours);
+    }
 
-    @Scheduled(initialDelay = 1000, fixedDelay = 600000)
+    @Scheduled(fixedRateString = "${adverts.expiry.tick-ms:1000}")
     public void expireAdverts() {
-
-        List<Advert> adverts = advertService.getAllExpiredAdverts();
-
-        if(adverts.isEmpty()) {
-            log.info("No adverts have expired yet!");
+        LocalDateTime now = LocalDateTime.now();
+        List<UUID> dueAdverts = advertService.getDueExpiries(now);
+        if (dueAdverts.isEmpty()) {
+            return;
         }
 
-        for (Advert advert : adverts) {
-            advertService.expireAdvert(advert);
+        try {
+            advertService.expireAdverts(dueAdverts, now);
+        } catch (RuntimeException e) {
+            // The adverts stay visible and overdue, the next reload puts them back on the wheel
+            log.error("Failed to expire [{}] due adverts", dueAdverts.size(), e);
         }
     }
 }
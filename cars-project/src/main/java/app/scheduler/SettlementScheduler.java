@@ -0,0 +1,83 @@
+package app.scheduler;
+
+import app.settlement.model.SettlementCandidate;
+import app.settlement.service.SettlementService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@Slf4j
+public class SettlementScheduler {
+
+    private final SettlementService settlementService;
+    private final int batchSize;
+    private final int chunkSize;
+    private final long graceMs;
+
+    @Autowired
+    public SettlementScheduler(SettlementService settlementService,
+                               @Value("${settlements.batch-size:200}") int batchSize,
+                               @Value("${settlements.chunk-size:10}") int chunkSize,
+                               @Value("${settlements.grace-ms:5000}") long graceMs) {
+        this.settlementService = settlementService;
+        this.batchSize = batchSize;
+        this.chunkSize = chunkSize;
+        this.graceMs = graceMs;
+    }
+
+    @Scheduled(initialDelay = 15000, fixedDelayString = "${settlements.interval-ms:60000}")
+    public void settleClosedAuctions() {
+        // Bids accepted just before an auction expired are flushed and committed within the grace period
+        LocalDateTime closedBy = LocalDateTime.now().minus(graceMs, ChronoUnit.MILLIS);
+        int recorded = 0;
+        List<SettlementCandidate> batch;
+        while (!(batch = settlementService.getPendingSettlements(closedBy, batchSize)).isEmpty()) {
+            int batchRecorded = 0;
+            // Every chunk commits on its own, the wallets it locks are free again after a few transfers
+            for (int from = 0; from < batch.size(); from += chunkSize) {
+                batchRecorded += settle(batch.subList(from, Math.min(batch.size(), from + chunkSize)));
+            }
+            if (batchRecorded == 0) {
+                // Nothing could be recorded, the same batch would come straight back
+                break;
+            }
+            recorded += batchRecorded;
+        }
+        if (recorded > 0) {
+            log.info("Recorded [{}] auction settlements", recorded);
+        }
+    }
+
+    // A batch rolls back as a whole, so one broken settlement is isolated by settling the batch one by one
+    private int settle(List<SettlementCandidate> batch) {
+        try {
+            return settlementService.settleBatch(batch).size();
+        } catch (RuntimeException e) {
+            log.warn("Settlement batch of [{}] auctions failed, settling them one by one", batch.size(), e);
+        }
+
+        int recorded = 0;
+        for (SettlementCandidate candidate : batch) {
+            try {
+                settlementService.settleBatch(List.of(candidate));
+                recorded++;
+            } catch (RuntimeException e) {
+                log.error("Failed to settle advert [{}]", candidate.advertId(), e);
+                try {
+                    settlementService.recordFailure(candidate, e.getMessage());
+                    recorded++;
+                } catch (RuntimeException recordFailure) {
+                    log.error("Failed to record the failed settlement of advert [{}]", candidate.advertId(), recordFailure);
+                }
+            }
+        }
+        return recorded;
+    }
+}
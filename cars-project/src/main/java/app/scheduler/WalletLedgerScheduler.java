@@ -0,0 +1,45 @@
+package app.scheduler;
+
+import app.wallet.service.LedgerService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+
+@Component
+@Slf4j
+public class WalletLedgerScheduler {
+
+    private final LedgerService ledgerService;
+    private final long snapshotLagSeconds;
+
+    @Autowired
+    public WalletLedgerScheduler(LedgerService ledgerService,
+                                 @Value("${wallets.ledger.snapshot-lag-seconds:60}") long snapshotLagSeconds) {
+        this.ledgerService = ledgerService;
+        this.snapshotLagSeconds = snapshotLagSeconds;
+    }
+
+    @Scheduled(initialDelay = 10000, fixedDelayString = "${wallets.ledger.snapshot-interval-ms:60000}")
+    public void snapshotBalances() {
+        int advanced = ledgerService.snapshotBalances(LocalDateTime.now().minusSeconds(snapshotLagSeconds));
+        if (advanced > 0) {
+            log.info("Rolled [{}] wallet balance snapshots forward", advanced);
+        }
+    }
+
+    @Scheduled(cron = "${wallets.ledger.reconcile-cron:0 30 3 * * *}")
+    public void reconcile() {
+        List<UUID> unbalanced = ledgerService.findUnbalancedJournalEntries(LocalDateTime.now().minusDays(1));
+        if (unbalanced.isEmpty()) {
+            log.info("Wallet ledger is balanced for the last day");
+            return;
+        }
+        log.error("Found [{}] unbalanced journal entries: {}", unbalanced.size(), unbalanced);
+    }
+}
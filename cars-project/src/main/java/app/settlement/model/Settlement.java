@@ -0,0 +1,56 @@
+package app.settlement.model;
+
+import app.advert.model.Advert;
+import app.transaction.model.Transaction;
+import app.user.model.User;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * The outcome of charging the winner of a closed auction and paying the seller, at most one per advert.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Table(indexes = {
+        @Index(name = "idx_settlement_advert", columnList = "advert_id", unique = true),
+        @Index(name = "idx_settlement_status_created_on", columnList = "status, createdOn")
+})
+public class Settlement {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private Advert advert;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private User buyer;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private User seller;
+
+    // The buyer's side of the transfer, empty when the buyer had no wallet to charge
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Transaction transaction;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private SettlementStatus status;
+
+    private String failureReason;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+}
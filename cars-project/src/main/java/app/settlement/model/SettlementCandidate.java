@@ -0,0 +1,7 @@
+package app.settlement.model;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public record SettlementCandidate(UUID advertId, UUID buyerId, UUID sellerId, String sellerUsername, BigDecimal amount) {
+}
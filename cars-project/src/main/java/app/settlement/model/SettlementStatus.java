@@ -0,0 +1,6 @@
+package app.settlement.model;
+
+public enum SettlementStatus {
+    SETTLED,
+    FAILED
+}
@@ -0,0 +1,28 @@
+package app.settlement.repository;
+
+import app.settlement.model.Settlement;
+import app.settlement.model.SettlementCandidate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface SettlementRepository extends JpaRepository<Settlement, UUID> {
+
+    // Reserved adverts are bought by their winner at the buy now price, even when the winner also led the bidding,
+    // expired auctions go to the last bidder at the current bid
+    @Query("""
+            select new app.settlement.model.SettlementCandidate(a.id, coalesce(w.id, b.id), s.id, s.username,
+                case when w is not null then a.buyNowPrice else a.currentBidPrice end)
+            from Advert a join a.owner s left join a.winner w left join a.lastBidder b
+            where ((w is not null and a.carStatus = app.advert.model.CarStatus.RESERVED)
+                   or (w is null and b is not null and a.currentBidPrice is not null and a.expireDate <= :closedBy))
+              and not exists (select 1 from Settlement st where st.advert = a)
+            order by a.expireDate, a.id""")
+    List<SettlementCandidate> findPendingCandidates(LocalDateTime closedBy, Limit limit);
+}
@@ -0,0 +1,166 @@
+package app.settlement.service;
+
+import app.advert.model.Advert;
+import app.advert.repository.AdvertRepository;
+import app.settlement.model.Settlement;
+import app.settlement.model.SettlementCandidate;
+import app.settlement.model.SettlementStatus;
+import app.settlement.repository.SettlementRepository;
+import app.transaction.model.Transaction;
+import app.transaction.model.TransactionStatus;
+import app.user.model.User;
+import app.wallet.model.Wallet;
+import app.wallet.service.WalletLocks;
+import app.wallet.service.WalletService;
+import app.web.dto.TransferRequest;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Charges the winners of closed auctions and pays the sellers, many settlements per database transaction.
+ * A failed settlement is recorded and not retried, the transfer uses the advert as its idempotency key,
+ * so running a settlement again can never charge the buyer twice.
+ */
+@Slf4j
+@Service
+public class SettlementService {
+
+    private static final String IDEMPOTENCY_KEY_PREFIX = "settlement-";
+    private static final int MAX_FAILURE_REASON_LENGTH = 255;
+
+    private final SettlementRepository settlementRepository;
+    private final AdvertRepository advertRepository;
+    private final WalletService walletService;
+    private final WalletLocks walletLocks;
+    private final EntityManager entityManager;
+
+    @Autowired
+    public SettlementService(SettlementRepository settlementRepository, AdvertRepository advertRepository,
+                             WalletService walletService, WalletLocks walletLocks, EntityManager entityManager) {
+        this.settlementRepository = settlementRepository;
+        this.advertRepository = advertRepository;
+        this.walletService = walletService;
+        this.walletLocks = walletLocks;
+        this.entityManager = entityManager;
+    }
+
+    public List<SettlementCandidate> getPendingSettlements(LocalDateTime closedBy, int limit) {
+        return settlementRepository.findPendingCandidates(closedBy, Limit.of(limit));
+    }
+
+    /**
+     * Settles the whole batch in one transaction, so callers keep batches small: the locks are held until it commits.
+     * The wallets are loaded in one query, the paying wallet of every buyer and the wallets a seller can be paid into
+     * are locked up front in stripe order, so the transfers inside only re-enter locks the batch already holds.
+     */
+    @Transactional
+    @CacheEvict(value = "visibleAdvertCount", allEntries = true)
+    public List<Settlement> settleBatch(List<SettlementCandidate> candidates) {
+        Set<UUID> ownerIds = new HashSet<>();
+        Set<UUID> sellerIds = new HashSet<>();
+        for (SettlementCandidate candidate : candidates) {
+            ownerIds.add(candidate.buyerId());
+            ownerIds.add(candidate.sellerId());
+            sellerIds.add(candidate.sellerId());
+        }
+        List<Wallet> wallets = walletService.getActiveWalletsByOwnerIds(ownerIds);
+        Map<UUID, Wallet> buyerWallets = new HashMap<>();
+        wallets.stream()
+                .sorted(Comparator.comparing(Wallet::getCreatedOn))
+                .forEach(wallet -> buyerWallets.putIfAbsent(wallet.getOwner().getId(), wallet));
+
+        Set<UUID> walletIds = new HashSet<>();
+        for (SettlementCandidate candidate : candidates) {
+            Wallet buyerWallet = buyerWallets.get(candidate.buyerId());
+            if (buyerWallet != null) {
+                walletIds.add(buyerWallet.getId());
+            }
+        }
+        wallets.stream()
+                .filter(wallet -> sellerIds.contains(wallet.getOwner().getId()))
+                .forEach(wallet -> walletIds.add(wallet.getId()));
+        return walletLocks.withLocks(() -> settleLocked(candidates, buyerWallets), walletIds.toArray(UUID[]::new));
+    }
+
+    @Transactional
+    public Settlement recordFailure(SettlementCandidate candidate, String failureReason) {
+        String reason = failureReason != null && failureReason.length() > MAX_FAILURE_REASON_LENGTH
+                ? failureReason.substring(0, MAX_FAILURE_REASON_LENGTH)
+                : failureReason;
+        return settlementRepository.save(failed(candidate, null, reason));
+    }
+
+    private List<Settlement> settleLocked(List<SettlementCandidate> candidates, Map<UUID, Wallet> buyerWallets) {
+        List<Settlement> settlements = new ArrayList<>(candidates.size());
+        List<UUID> soldAdvertIds = new ArrayList<>(candidates.size());
+        for (SettlementCandidate candidate : candidates) {
+            if (candidate.amount() == null) {
+                settlements.add(failed(candidate, null, "Reserved advert has no buy now price"));
+                continue;
+            }
+            Wallet buyerWallet = buyerWallets.get(candidate.buyerId());
+            if (buyerWallet == null) {
+                settlements.add(failed(candidate, null, "Buyer has no active wallet"));
+                continue;
+            }
+
+            TransferRequest transferRequest = TransferRequest.builder()
+                    .fromWalletId(buyerWallet.getId())
+                    .toUsername(candidate.sellerUsername())
+                    .amount(candidate.amount())
+                    .idempotencyKey(IDEMPOTENCY_KEY_PREFIX + candidate.advertId())
+                    .build();
+            Transaction transaction = walletService.transferFunds(buyerWallet.getOwner(), transferRequest);
+            if (transaction.getStatus() != TransactionStatus.SUCCEEDED) {
+                settlements.add(failed(candidate, transaction, transaction.getFailureReason()));
+                continue;
+            }
+            settlements.add(settlement(candidate, transaction, SettlementStatus.SETTLED, null));
+            soldAdvertIds.add(candidate.advertId());
+        }
+
+        settlementRepository.saveAll(settlements);
+        if (!soldAdvertIds.isEmpty()) {
+            advertRepository.assignLastBidderAsWinner(soldAdvertIds);
+            advertRepository.markSold(soldAdvertIds, LocalDateTime.now());
+        }
+        log.info("Settled [{}] of [{}] closed auctions", soldAdvertIds.size(), candidates.size());
+        return settlements;
+    }
+
+    private Settlement failed(SettlementCandidate candidate, Transaction transaction, String failureReason) {
+        log.warn("Settlement of advert [{}] failed: {}", candidate.advertId(), failureReason);
+        return settlement(candidate, transaction, SettlementStatus.FAILED, failureReason);
+    }
+
+    private Settlement settlement(SettlementCandidate candidate, Transaction transaction, SettlementStatus status,
+                                  String failureReason) {
+        return Settlement.builder()
+                .advert(entityManager.getReference(Advert.class, candidate.advertId()))
+                .buyer(entityManager.getReference(User.class, candidate.buyerId()))
+                .seller(entityManager.getReference(User.class, candidate.sellerId()))
+                .transaction(transaction)
+                // Nothing is charged for a reserved advert without a buy now price
+                .amount(candidate.amount() != null ? candidate.amount() : BigDecimal.ZERO)
+                .status(status)
+                .failureReason(failureReason)
+                .createdOn(LocalDateTime.now())
+                .build();
+    }
+}
@@ -87,7 +87,13 @@ public class SubscriptionService {
         String period = subscriptionType.name().substring(0, 1).toUpperCase() + subscriptionType.name().substring(1).toLowerCase();
         String chargeDescription = "Purchase of [%s] [%s] subscription for user [%s] with id [%s]".formatted(type, period, user.getUsername(), user.getId());
 
-        Transaction chargeResult = walletService.charge(user, upgradeRequest.getWalletId(), subscriptionPrice, chargeDescription);
+        Transaction chargeResult = walletService.charge(user, upgradeRequest.getWalletId(), subscriptionPrice, chargeDescription,
+                upgradeRequest.getIdempotencyKey());
+
+        // A resubmitted form was already applied together with the original charge
+        if (chargeResult.isReplayed()) {
+            return chargeResult;
+        }
 
         if (chargeResult.getStatus() == TransactionStatus.FAILED) {
             log.warn("Failed to charge user [%s] with id [%s] for subscription upgrade with type [%s] and period [%s]".formatted(user.getUsername(), user.getId(), subscriptionType, subscriptionPeriod));
@@ -1,6 +1,7 @@
 package app.transaction.model;
 
 import app.user.model.User;
+import app.wallet.model.Wallet;
 import jakarta.persistence.*;
 import lombok.*;
 
@@ -15,6 +16,11 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_transaction_wallet_status_created_on", columnList = "wallet_id, status, createdOn"),
+        @Index(name = "idx_transaction_owner_created_on", columnList = "owner_id, createdOn"),
+        @Index(name = "idx_transaction_idempotency_key", columnList = "idempotencyKey", unique = true)
+})
 public class Transaction {
 
     @Id
@@ -24,6 +30,10 @@ public class Transaction {
     @ManyToOne
     private User owner;
 
+    // The owner's wallet this entry was booked against, sender and receiver stay as display values
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Wallet wallet;
+
     @Column(nullable = false)
     private String sender;
 
@@ -55,4 +65,12 @@ public class Transaction {
     @Column(nullable = false)
     private LocalDateTime createdOn;
 
+    // Sent by the client with a payment form, a resubmit with the same key gets this transaction back
+    @Column(length = 64)
+    private String idempotencyKey;
+
+    // Set when a payment was answered with this stored transaction instead of running again
+    @Transient
+    private boolean replayed;
+
 }
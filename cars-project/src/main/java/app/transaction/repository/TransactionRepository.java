@@ -1,16 +1,62 @@
 package app.transaction.repository;
 
 import app.transaction.model.Transaction;
+import app.transaction.model.TransactionStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface TransactionRepository  extends JpaRepository<Transaction, UUID> {
 
-    List<Transaction> findAllByOwnerIdOrderByCreatedOnDesc(UUID ownerId);
+    Window<Transaction> findFirst50ByOwnerId(UUID ownerId, ScrollPosition position, Sort sort);
 
-    List<Transaction> findAllBySenderOrReceiverOrderByCreatedOnDesc(String Sender, String Receiver);
+    long countByOwnerId(UUID ownerId);
+
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
+
+    // Written before transactions referenced their wallet, see TransactionBackfillService. Only entries whose own side
+    // names a wallet of their owner are selected, the rest can never be resolved and are not read again on every start
+    @Query("""
+            select t from Transaction t
+            where t.wallet is null and t.id > :afterId and exists (
+                select w from Wallet w where w.owner = t.owner
+                    and cast(w.id as String) = case when t.type = app.transaction.model.TransactionType.WITHDRAWAL then t.sender else t.receiver end
+            )
+            order by t.id""")
+    List<Transaction> findBackfillChunk(UUID afterId, Limit limit);
+
+    // Forward-only cursor for exports. MySQL streams the result row by row only for a fetch size of Integer.MIN_VALUE,
+    // the owner is fetched in the same row because no other statement may run on the connection while it streams
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("select t from Transaction t join fetch t.owner where t.owner.id = :ownerId order by t.createdOn desc, t.id desc")
+    Stream<Transaction> streamAllByOwnerId(UUID ownerId);
+
+    // Ranks each wallet's entries newest first and keeps the top ones, one statement for all wallets
+    @Query("""
+            select t from Transaction t where t.id in (
+                select ranked.id from (
+                    select r.id as id, row_number() over (partition by r.wallet.id order by r.createdOn desc) as position
+                    from Transaction r where r.wallet.id in :walletIds and r.status = :status
+                ) ranked where ranked.position <= :limit
+            )
+            order by t.createdOn desc""")
+    List<Transaction> findLatestByWallets(Collection<UUID> walletIds, TransactionStatus status, int limit);
 }
@@ -0,0 +1,94 @@
+package app.transaction.service;
+
+import app.transaction.model.Transaction;
+import app.transaction.model.TransactionType;
+import app.transaction.repository.TransactionRepository;
+import app.wallet.repository.WalletRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One-time repair of transactions written before they referenced their wallet. The wallet is recovered from the
+ * wallet ID the owner's side wrote as text, the sender of a withdrawal or the receiver of a deposit, so the old
+ * entries show up in the wallet history again. Repaired entries drop out of the query, so once done a start only pays
+ * for one empty lookup.
+ */
+@Slf4j
+@Component
+public class TransactionBackfillService implements CommandLineRunner {
+
+    private static final UUID FIRST_ID = new UUID(0, 0);
+
+    private final TransactionRepository transactionRepository;
+    private final WalletRepository walletRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    @Autowired
+    public TransactionBackfillService(TransactionRepository transactionRepository,
+                                      WalletRepository walletRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${transactions.backfill.chunk-size:500}") int chunkSize) {
+        this.transactionRepository = transactionRepository;
+        this.walletRepository = walletRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void run(String... args) {
+        backfillWallets();
+    }
+
+    public void backfillWallets() {
+        UUID afterId = FIRST_ID;
+        int backfilled = 0;
+        while (true) {
+            UUID from = afterId;
+            List<Transaction> chunk;
+            try {
+                // Each chunk commits on its own, a failure keeps what was already repaired
+                chunk = transactionTemplate.execute(status -> backfillChunk(from));
+            } catch (RuntimeException e) {
+                log.error("Failed to backfill the wallet of transactions after [{}]", from, e);
+                break;
+            }
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            backfilled += chunk.size();
+            afterId = chunk.get(chunk.size() - 1).getId();
+        }
+        if (backfilled > 0) {
+            log.info("Backfilled the wallet of [{}] transactions", backfilled);
+        }
+    }
+
+    private List<Transaction> backfillChunk(UUID afterId) {
+        List<Transaction> chunk = transactionRepository.findBackfillChunk(afterId, Limit.of(chunkSize));
+        // The query already matched each ID to a wallet of the transaction's owner
+        for (Transaction transaction : chunk) {
+            transaction.setWallet(walletRepository.getReferenceById(ownWalletId(transaction)));
+        }
+        return chunk;
+    }
+
+    private static UUID ownWalletId(Transaction transaction) {
+        String walletId = transaction.getType() == TransactionType.WITHDRAWAL ? transaction.getSender() : transaction.getReceiver();
+        try {
+            return walletId != null ? UUID.fromString(walletId) : null;
+        } catch (IllegalArgumentException e) {
+            // A username or the platform account
+            return null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package app.transaction.service;
+
+import app.exception.DomainException;
+import app.transaction.model.Transaction;
+import lombok.experimental.UtilityClass;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Opaque page cursor for the transaction history: the creation time and the id of the last transaction on a page.
+ */
+@UtilityClass
+public class TransactionCursor {
+
+    private static final String SEPARATOR = "|";
+
+    public static String encode(Transaction transaction) {
+        String raw = transaction.getCreatedOn() + SEPARATOR + transaction.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetScrollPosition decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separatorIndex = raw.lastIndexOf(SEPARATOR);
+            Map<String, Object> keys = new LinkedHashMap<>();
+            keys.put("createdOn", LocalDateTime.parse(raw.substring(0, separatorIndex)));
+            keys.put("id", UUID.fromString(raw.substring(separatorIndex + 1)));
+            return ScrollPosition.forward(keys);
+        } catch (RuntimeException e) {
+            throw new DomainException("Invalid page cursor [%s]!".formatted(cursor), e);
+        }
+    }
+}
@@ -2,42 +2,121 @@ package app.transaction.service;
 
 import app.exception.DomainException;
 import app.transaction.model.Transaction;
+import app.transaction.model.TransactionExportFormat;
 import app.transaction.model.TransactionStatus;
 import app.transaction.model.TransactionType;
 import app.transaction.repository.TransactionRepository;
 import app.user.model.User;
 import app.wallet.model.Wallet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Currency;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
 public class TransactionService {
 
+    public static final String IDEMPOTENCY_CACHE_NAME = "transactionIdempotency";
+    private static final Sort HISTORY_SORT = Sort.by(Sort.Direction.DESC, "createdOn", "id");
+    private static final String[] EXPORT_COLUMNS = {"id", "createdOn", "type", "status", "amount", "currency",
+            "balanceLeft", "sender", "receiver", "description", "failureReason"};
+
     @Autowired
-    public TransactionService(TransactionRepository transactionRepository) {
+    public TransactionService(TransactionRepository transactionRepository, EntityManager entityManager, ObjectMapper objectMapper,
+                              CacheManager cacheManager) {
         this.transactionRepository = transactionRepository;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.idempotencyCache = cacheManager.getCache(IDEMPOTENCY_CACHE_NAME);
     }
 
     private final TransactionRepository transactionRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final Cache idempotencyCache;
+
+    /**
+     * Seeks straight past the transaction the cursor points at, starts from the newest one without a usable cursor.
+     */
+    public Window<Transaction> getHistoryPage(UUID ownerId, String cursor) {
+        ScrollPosition position = ScrollPosition.keyset();
+        if (cursor != null) {
+            try {
+                position = TransactionCursor.decode(cursor);
+            } catch (DomainException e) {
+                log.warn(e.getMessage());
+            }
+        }
+        // The id breaks ties between equal creation times, so the cursor points at exactly one row
+        return transactionRepository.findFirst50ByOwnerId(ownerId, position, HISTORY_SORT);
+    }
+
+    public String getNextCursor(Window<Transaction> page) {
+        if (page.isEmpty() || !page.hasNext()) {
+            return null;
+        }
+        return TransactionCursor.encode(page.getContent().get(page.size() - 1));
+    }
 
-    public List<Transaction> getAllByOwnerId(UUID ownerId) {
-        return transactionRepository.findAllByOwnerIdOrderByCreatedOnDesc(ownerId);
+    public long countByOwnerId(UUID ownerId) {
+        return transactionRepository.countByOwnerId(ownerId);
     }
 
-    public Transaction createNewTransaction(User owner, String sender, String receiver, BigDecimal transactionAmount,
+    /**
+     * Writes the whole history of the owner straight from a database cursor, one row at a time,
+     * detaching every transaction once written so the persistence context does not grow with the export.
+     */
+    @Transactional(readOnly = true)
+    public void exportByOwnerId(UUID ownerId, TransactionExportFormat format, Writer writer) throws IOException {
+        if (format == TransactionExportFormat.CSV) {
+            writer.write(String.join(",", EXPORT_COLUMNS));
+            writer.write('\n');
+        }
+
+        int exported = 0;
+        try (Stream<Transaction> transactions = transactionRepository.streamAllByOwnerId(ownerId)) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                List<Object> values = exportValues(transaction);
+                writer.write(format == TransactionExportFormat.CSV ? toCsvLine(values) : toJsonLine(values));
+                writer.write('\n');
+                entityManager.detach(transaction);
+                exported++;
+            }
+        }
+        writer.flush();
+        log.info("Exported [{}] transactions of user [{}] as [{}]", exported, ownerId, format);
+    }
+
+    public Transaction createNewTransaction(User owner, Wallet wallet, String sender, String receiver, BigDecimal transactionAmount,
                                             BigDecimal balanceLeft, Currency currency, TransactionType type, TransactionStatus status,
-                                            String transactionDescription, String failureReason) {
+                                            String transactionDescription, String failureReason, String idempotencyKey) {
         Transaction transaction = Transaction.builder()
                 .owner(owner)
+                .wallet(wallet)
                 .sender(sender)
                 .receiver(receiver)
                 .amount(transactionAmount)
@@ -48,9 +127,33 @@ public class TransactionService {
                 .description(transactionDescription)
                 .failureReason(failureReason)
                 .createdOn(LocalDateTime.now())
+                .idempotencyKey(idempotencyKey)
                 .build();
 
-        return transactionRepository.save(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        if (idempotencyKey != null) {
+            idempotencyCache.put(idempotencyKey, saved.getId());
+        }
+        return saved;
+    }
+
+    /**
+     * Recent keys resolve from memory to a primary key lookup, older ones fall back to the unique key index.
+     * A cached id whose transaction never committed is dropped and looked up again.
+     */
+    public Optional<Transaction> findByIdempotencyKey(String idempotencyKey) {
+        UUID transactionId = idempotencyCache.get(idempotencyKey, UUID.class);
+        if (transactionId != null) {
+            Optional<Transaction> cached = transactionRepository.findById(transactionId);
+            if (cached.isPresent()) {
+                return cached;
+            }
+            idempotencyCache.evict(idempotencyKey);
+        }
+
+        Optional<Transaction> stored = transactionRepository.findByIdempotencyKey(idempotencyKey);
+        stored.ifPresent(transaction -> idempotencyCache.put(idempotencyKey, transaction.getId()));
+        return stored;
     }
 
     public Transaction getById(UUID transactionId) {
@@ -58,12 +161,64 @@ public class TransactionService {
                 new DomainException("Transaction with id [" + transactionId + "] does not exist"));
     }
 
-    public List<Transaction> getLastFourTransactionsByWallet(Wallet wallet) {
-        return transactionRepository.findAllBySenderOrReceiverOrderByCreatedOnDesc(wallet.getId().toString(), wallet.getId().toString())
-                .stream()
-                .filter(t -> t.getOwner().getId() == wallet.getOwner().getId())
-                .filter(t -> t.getStatus() == TransactionStatus.SUCCEEDED)
-                .limit(4)
-                .collect(Collectors.toList());
+    public Map<UUID, List<Transaction>> getLastFourTransactionsByWallets(List<Wallet> wallets) {
+        Map<UUID, List<Transaction>> transactionsByWalletId = new LinkedHashMap<>();
+        for (Wallet wallet : wallets) {
+            transactionsByWalletId.put(wallet.getId(), new ArrayList<>());
+        }
+        if (transactionsByWalletId.isEmpty()) {
+            return transactionsByWalletId;
+        }
+
+        List<Transaction> latest = transactionRepository.findLatestByWallets(transactionsByWalletId.keySet(), TransactionStatus.SUCCEEDED, 4);
+        for (Transaction transaction : latest) {
+            transactionsByWalletId.get(transaction.getWallet().getId()).add(transaction);
+        }
+        return transactionsByWalletId;
+    }
+
+    private List<Object> exportValues(Transaction transaction) {
+        List<Object> values = new ArrayList<>(EXPORT_COLUMNS.length);
+        values.add(transaction.getId());
+        values.add(transaction.getCreatedOn());
+        values.add(transaction.getType());
+        values.add(transaction.getStatus());
+        values.add(transaction.getAmount());
+        values.add(transaction.getCurrency());
+        values.add(transaction.getBalanceLeft());
+        values.add(transaction.getSender());
+        values.add(transaction.getReceiver());
+        values.add(transaction.getDescription());
+        values.add(transaction.getFailureReason());
+        return values;
+    }
+
+    private String toCsvLine(List<Object> values) {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            Object value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            String text = value.toString();
+            if (text.contains(",") || text.contains("\"") || text.contains("\n") || text.contains("\r")) {
+                text = "\"" + text.replace("\"", "\"\"") + "\"";
+            }
+            line.append(text);
+        }
+        return line.toString();
+    }
+
+    private String toJsonLine(List<Object> values) throws IOException {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < values.size(); i++) {
+            Object value = values.get(i);
+            // Amounts stay numeric, everything else is written in its plain text form
+            row.put(EXPORT_COLUMNS[i], value == null || value instanceof BigDecimal ? value : value.toString());
+        }
+        return objectMapper.writeValueAsString(row);
     }
 }
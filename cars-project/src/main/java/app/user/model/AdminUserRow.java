@@ -0,0 +1,11 @@
+package app.user.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One row of the admin user table, read without touching any of the user's collections.
+ */
+public record AdminUserRow(UUID id, String username, String firstName, String lastName, String email, UserRole role,
+                           Boolean isActive, LocalDateTime createdOn, long walletCount) {
+}
@@ -0,0 +1,14 @@
+package app.user.model;
+
+import java.util.UUID;
+
+/**
+ * What the header, side menu and ownership checks need to know about the logged in user.
+ */
+public record CurrentUserView(UUID id, String username, String firstName, String lastName, String profilePicture,
+                              UserRole role) {
+
+    public static CurrentUserView anonymous() {
+        return new CurrentUserView(null, null, null, null, null, null);
+    }
+}
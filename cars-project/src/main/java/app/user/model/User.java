@@ -19,8 +19,18 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@Table(indexes = @Index(name = "idx_user_created_on", columnList = "createdOn"))
+@NamedEntityGraphs({
+        @NamedEntityGraph(name = User.WITH_SUBSCRIPTIONS, attributeNodes = @NamedAttributeNode("subscriptions")),
+        @NamedEntityGraph(name = User.WITH_WALLETS, attributeNodes = @NamedAttributeNode("wallets"))
+})
 public class User {
 
+    // Fetch plans for the pages that need a collection up front, everything else stays lazy.
+    // Only one list per graph, fetching two bags in one join is rejected by Hibernate.
+    public static final String WITH_SUBSCRIPTIONS = "User.withSubscriptions";
+    public static final String WITH_WALLETS = "User.withWallets";
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     @Column(nullable = false, updatable = false, name = "id")
@@ -53,27 +63,27 @@ public class User {
     @Column(nullable = false)
     private LocalDateTime updatedOn;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "owner")
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "owner")
     @OrderBy("createdOn DESC")
     @Builder.Default
     private List<Subscription> subscriptions = new ArrayList<>();
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "owner")
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "owner")
     @OrderBy("createdOn ASC")
     @Builder.Default
     private List<Wallet> wallets = new ArrayList<>();
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "owner")
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "owner")
     @OrderBy("createdOn DESC")
     @Builder.Default
     private List<Advert> adverts = new ArrayList<>();
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "bidder")
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "bidder")
     @OrderBy("createdOn DESC")
     @Builder.Default
     private List<Bid> bids = new ArrayList<>();
-    
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "user")
+
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "user")
     @OrderBy("checkedOn DESC")
     @Builder.Default
     private List<VinHistory> vinHistory = new ArrayList<>();
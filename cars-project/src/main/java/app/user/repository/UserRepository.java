@@ -1,9 +1,16 @@
 package app.user.repository;
 
+import app.user.model.AdminUserRow;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,4 +18,29 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
 
     Optional<User> findByUsername(String username);
+
+    @EntityGraph(User.WITH_SUBSCRIPTIONS)
+    Optional<User> findWithSubscriptionsById(UUID id);
+
+    @EntityGraph(User.WITH_WALLETS)
+    Optional<User> findWithWalletsById(UUID id);
+
+    @Query("""
+            select new app.user.model.CurrentUserView(u.id, u.username, u.firstName, u.lastName, u.profilePicture, u.role)
+            from User u where u.id = :id""")
+    Optional<CurrentUserView> findCurrentUserViewById(UUID id);
+
+    // Prefix search so the unique username index can be used, the caller escapes the wildcards in the prefix
+    @Query(value = """
+            select new app.user.model.AdminUserRow(u.id, u.username, u.firstName, u.lastName, u.email, u.role, u.isActive, u.createdOn,
+                (select count(w) from Wallet w where w.owner = u))
+            from User u where u.username like concat(:search, '%') escape '\\'""",
+            countQuery = "select count(u) from User u where u.username like concat(:search, '%') escape '\\'")
+    Page<AdminUserRow> findAdminRows(String search, Pageable pageable);
+
+    @Query("select u from User u where u.subscriptions is empty")
+    List<User> findAllWithoutSubscriptions();
+
+    @Query("select u from User u where u.wallets is empty")
+    List<User> findAllWithoutWallets();
 }
@@ -0,0 +1,64 @@
+package app.user.service;
+
+import app.exception.DomainException;
+import app.user.model.CurrentUserView;
+import app.user.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.UUID;
+
+/**
+ * Resolves the logged in user for rendering. A view is loaded at most once per request and is shared
+ * between requests for a few seconds, mutators of the user, its wallets or subscriptions call {@link #evict(UUID)}.
+ */
+@Service
+public class CurrentUserService {
+
+    public static final String CACHE_NAME = "currentUser";
+    private static final String REQUEST_ATTRIBUTE = CurrentUserService.class.getName() + ".view";
+
+    private final UserRepository userRepository;
+    private final Cache cache;
+
+    @Autowired
+    public CurrentUserService(UserRepository userRepository, CacheManager cacheManager) {
+        this.userRepository = userRepository;
+        this.cache = cacheManager.getCache(CACHE_NAME);
+    }
+
+    public CurrentUserView getCurrentUser(UUID userId) {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null
+                && request.getAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof CurrentUserView view
+                && view.id().equals(userId)) {
+            return view;
+        }
+
+        CurrentUserView view = cache.get(userId, CurrentUserView.class);
+        if (view == null) {
+            view = userRepository.findCurrentUserViewById(userId)
+                    .orElseThrow(() -> new DomainException("User with ID [%s] is not found!".formatted(userId)));
+            cache.put(userId, view);
+        }
+        if (request != null) {
+            request.setAttribute(REQUEST_ATTRIBUTE, view, RequestAttributes.SCOPE_REQUEST);
+        }
+        return view;
+    }
+
+    public void evict(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        cache.evict(userId);
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) {
+            request.removeAttribute(REQUEST_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+}
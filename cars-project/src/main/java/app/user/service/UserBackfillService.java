@@ -0,0 +1,64 @@
+package app.user.service;
+
+import app.subscription.service.SubscriptionService;
+import app.user.model.User;
+import app.user.repository.UserRepository;
+import app.wallet.service.WalletService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * One-time repair of users created before every account got a default subscription and wallet on registration.
+ * Runs on startup so that reading a user never has to write.
+ */
+@Slf4j
+@Component
+public class UserBackfillService implements CommandLineRunner {
+
+    private final UserRepository userRepository;
+    private final SubscriptionService subscriptionService;
+    private final WalletService walletService;
+
+    @Autowired
+    public UserBackfillService(UserRepository userRepository, SubscriptionService subscriptionService,
+                               WalletService walletService) {
+        this.userRepository = userRepository;
+        this.subscriptionService = subscriptionService;
+        this.walletService = walletService;
+    }
+
+    @Override
+    public void run(String... args) {
+        backfillMissingDefaults();
+    }
+
+    public void backfillMissingDefaults() {
+        List<User> withoutSubscription = userRepository.findAllWithoutSubscriptions();
+        for (User user : withoutSubscription) {
+            try {
+                subscriptionService.createDefaultSubscription(user);
+                log.info("Created missing default subscription for user [{}]", user.getUsername());
+            } catch (RuntimeException e) {
+                log.error("Failed to create default subscription for user [{}]", user.getUsername(), e);
+            }
+        }
+
+        List<User> withoutWallet = userRepository.findAllWithoutWallets();
+        for (User user : withoutWallet) {
+            try {
+                walletService.initializeFirstWallet(user);
+                log.info("Created missing default wallet for user [{}]", user.getUsername());
+            } catch (RuntimeException e) {
+                log.error("Failed to create default wallet for user [{}]", user.getUsername(), e);
+            }
+        }
+
+        if (!withoutSubscription.isEmpty() || !withoutWallet.isEmpty()) {
+            log.info("Backfilled [{}] subscriptions and [{}] wallets", withoutSubscription.size(), withoutWallet.size());
+        }
+    }
+}
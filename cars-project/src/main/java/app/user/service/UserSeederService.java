@@ -7,6 +7,7 @@ import app.user.model.UserRole;
 import app.user.repository.UserRepository;
 import app.wallet.model.Wallet;
 import app.wallet.service.WalletService;
+import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -43,6 +44,7 @@ public class UserSeederService implements CommandLineRunner {
     }
 
     @Override
+    @Transactional
     public void run(String... args) {
         createAdminUserIfNotExists();
     }
@@ -76,24 +78,8 @@ public class UserSeederService implements CommandLineRunner {
             userRepository.save(adminUser);
             log.info("Created default admin user with username: {}", adminUsername);
         } else {
+            // A missing subscription or wallet is repaired by UserBackfillService
             log.info("Admin user already exists with username: {}", adminUsername);
-            
-            // Check if admin has a subscription, create one if not
-            User admin = existingAdmin.get();
-            if (admin.getSubscriptions() == null || admin.getSubscriptions().isEmpty()) {
-                Subscription defaultSubscription = subscriptionService.createDefaultSubscription(admin);
-                admin.setSubscriptions(List.of(defaultSubscription));
-                userRepository.save(admin);
-                log.info("Added default subscription to existing admin user");
-            }
-            
-            // Check if admin has a wallet, create one if not
-            if (admin.getWallets() == null || admin.getWallets().isEmpty()) {
-                Wallet standardWallet = walletService.initializeFirstWallet(admin);
-                admin.setWallets(List.of(standardWallet));
-                userRepository.save(admin);
-                log.info("Added default wallet to existing admin user");
-            }
         }
     }
 }
\ No newline at end of file
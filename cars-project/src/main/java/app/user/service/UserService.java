@@ -4,6 +4,7 @@ import app.exception.DomainException;
 import app.security.AuthenticationMetadata;
 import app.subscription.service.SubscriptionService;
 import app.subscription.model.Subscription;
+import app.user.model.AdminUserRow;
 import app.user.model.User;
 import app.user.model.UserRole;
 import app.user.repository.UserRepository;
@@ -16,6 +17,9 @@ import app.web.dto.UserEditRequest;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
@@ -24,7 +28,6 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -33,21 +36,25 @@ import java.util.UUID;
 @Service
 public class UserService implements UserDetailsService {
 
+    private static final int ADMIN_PAGE_SIZE = 50;
+
     private final UserRepository userRepository;
     private final WalletService walletService;
     private final SubscriptionService subscriptionService;
     private final PasswordEncoder passwordEncoder;
+    private final CurrentUserService currentUserService;
 
     @Autowired
     public UserService(UserRepository userRepository, WalletService walletService, SubscriptionService subscriptionService,
-                       PasswordEncoder passwordEncoder) {
+                       PasswordEncoder passwordEncoder, CurrentUserService currentUserService) {
         this.userRepository = userRepository;
         this.walletService = walletService;
         this.subscriptionService = subscriptionService;
         this.passwordEncoder = passwordEncoder;
+        this.currentUserService = currentUserService;
     }
 
-    @CacheEvict (value = "users", allEntries = true)
+    @CacheEvict(value = "users", key = "'first-page'")
     @Transactional
     public User register(RegisterRequest registerRequest) {
 
@@ -72,7 +79,7 @@ public class UserService implements UserDetailsService {
         return user;
     }
 
-    @CacheEvict (value = "users", allEntries = true)
+    @CacheEvict(value = "users", key = "'first-page'")
     public void updateUserDetails(UUID id, UserEditRequest userEditRequest) {
         User user = getById(id);
         user.setFirstName(userEditRequest.getFirstName());
@@ -81,15 +88,17 @@ public class UserService implements UserDetailsService {
         user.setProfilePicture(userEditRequest.getProfilePicture());
         user.setUpdatedOn(LocalDateTime.now());
         userRepository.save(user);
+        currentUserService.evict(id);
     }
 
     @PreAuthorize("hasRole('ADMIN')")
-    @CacheEvict(value = "users", allEntries = true)
+    @CacheEvict(value = "users", key = "'first-page'")
     public void updateUserActiveStatus(UUID id, boolean isActive) {
         User user = getById(id);
         user.setIsActive(isActive);
         user.setUpdatedOn(LocalDateTime.now());
         userRepository.save(user);
+        currentUserService.evict(id);
         log.info("User with ID [{}] active status set to [{}]", id, isActive);
     }
 
@@ -106,31 +115,33 @@ public class UserService implements UserDetailsService {
                 .build();
     }
 
-    @Cacheable("users")
-    public List<User> getAllUsers() {
-        return new ArrayList<>(userRepository.findAll());
+    // The unfiltered first page is what the admin console opens on, keep only that one hot
+    @Cacheable(value = "users", key = "'first-page'", condition = "#page == 0 && (#search == null || #search.isBlank())")
+    public Page<AdminUserRow> getAdminUserPage(String search, int page) {
+        String prefix = search == null ? "" : escapeLike(search.trim());
+        PageRequest pageRequest = PageRequest.of(Math.max(page, 0), ADMIN_PAGE_SIZE, Sort.by(Sort.Direction.DESC, "createdOn").and(Sort.by("id")));
+        return userRepository.findAdminRows(prefix, pageRequest);
     }
 
     public User getById(UUID id) {
-        User user = userRepository.findById(id).orElseThrow(() -> new DomainException("User with ID [%s] is not found!".formatted(id)));
-        
-        // Ensure user has subscriptions
-        if (user.getSubscriptions() == null || user.getSubscriptions().isEmpty()) {
-            log.info("Creating missing default subscription for user [{}]", user.getUsername());
-            Subscription defaultSubscription = subscriptionService.createDefaultSubscription(user);
-            user.setSubscriptions(List.of(defaultSubscription));
-            userRepository.save(user);
-        }
-        
-        // Ensure user has wallets
-        if (user.getWallets() == null || user.getWallets().isEmpty()) {
-            log.info("Creating missing default wallet for user [{}]", user.getUsername());
-            Wallet standardWallet = walletService.initializeFirstWallet(user);
-            user.setWallets(List.of(standardWallet));
-            userRepository.save(user);
-        }
-        
-        return user;
+        return userRepository.findById(id).orElseThrow(() -> userNotFound(id));
+    }
+
+    public User getByIdWithSubscriptions(UUID id) {
+        return userRepository.findWithSubscriptionsById(id).orElseThrow(() -> userNotFound(id));
+    }
+
+    public User getByIdWithWallets(UUID id) {
+        return userRepository.findWithWalletsById(id).orElseThrow(() -> userNotFound(id));
+    }
+
+    private static DomainException userNotFound(UUID id) {
+        return new DomainException("User with ID [%s] is not found!".formatted(id));
+    }
+
+    // A username containing % or _ is searched for literally
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
     }
 
     @Override
@@ -145,13 +156,14 @@ public class UserService implements UserDetailsService {
         );
     }
 
-    @CacheEvict(value = "users", allEntries = true)
+    @CacheEvict(value = "users", key = "'first-page'")
     @PreAuthorize("hasRole('ADMIN')")
     public void updateUserRole(UUID userId, UserRole userRole) {
         User user = getById(userId);
         user.setRole(userRole);
         user.setUpdatedOn(LocalDateTime.now());
         userRepository.save(user);
+        currentUserService.evict(userId);
         log.info("User with ID [{}] has been set the role: [{}]", userId, userRole.name());
     }
 }
\ No newline at end of file
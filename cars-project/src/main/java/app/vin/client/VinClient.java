@@ -1,10 +1,15 @@
 package app.vin.client;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -14,6 +19,13 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import app.web.dto.VinBatchResult;
+import app.web.dto.VinCheckResult;
+
 /**
  * Client for interacting with the VIN service
  */
@@ -22,11 +34,16 @@ public class VinClient {
     
     private final RestTemplate restTemplate;
     
+    private static final ObjectReader BATCH_RESULT_READER = new ObjectMapper().readerFor(VinBatchResult.class);
+
     @Value("${vin.service.url:http://localhost:8082}")
     private String vinServiceUrl;
 
+    @Value("${vin.service.batch-size:5000}")
+    private int batchSize;
+
     @Autowired
-    public VinClient(RestTemplate restTemplate) {
+    public VinClient(@Qualifier("vinRestTemplate") RestTemplate restTemplate) {
         this.restTemplate = restTemplate;
     }
 
@@ -103,6 +120,67 @@ public class VinClient {
         }
     }
     
+    /**
+     * Decode a VIN and record the check in a single call to the VIN service
+     * @param vin The Vehicle Identification Number
+     * @param userId The ID of the user checking the VIN
+     * @param record Whether to record a check the user has not made before
+     * @return The decode result and whether the user had already checked this VIN
+     */
+    public VinCheckResult checkVin(String vin, UUID userId, boolean record) {
+        String url = vinServiceUrl + "/vin-svc/api/v1/check-vin?record=" + record;
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("vinNumber", vin);
+        requestBody.put("userId", userId);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        return restTemplate.postForObject(url, new HttpEntity<>(requestBody, headers), VinCheckResult.class);
+    }
+    
+    /**
+     * Decode and record checks of many VINs for a user, sent in batches the VIN service accepts. Results reach the
+     * consumer one by one in request order while the service streams them.
+     * @param vins The Vehicle Identification Numbers
+     * @param userId The ID of the user checking the VINs
+     * @param consumer Receives the saved check of every VIN
+     * @return The number of results received
+     */
+    public int saveVinChecks(List<String> vins, UUID userId, Consumer<VinBatchResult> consumer) {
+        String url = vinServiceUrl + "/vin-svc/api/v1/save-vin-checks";
+
+        int received = 0;
+        for (int from = 0; from < vins.size(); from += batchSize) {
+            Map<String, Object> requestBody = new HashMap<>();
+            requestBody.put("vinNumbers", vins.subList(from, Math.min(vins.size(), from + batchSize)));
+            requestBody.put("userId", userId);
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+
+            Integer batchReceived = restTemplate.execute(url, HttpMethod.POST,
+                    restTemplate.httpEntityCallback(new HttpEntity<>(requestBody, headers)),
+                    response -> readResults(response.getBody(), consumer));
+            received += batchReceived == null ? 0 : batchReceived;
+        }
+        return received;
+    }
+
+    private static int readResults(InputStream body, Consumer<VinBatchResult> consumer) throws IOException {
+        int received = 0;
+        // NDJSON is a sequence of root level values, read as they arrive
+        try (MappingIterator<VinBatchResult> results = BATCH_RESULT_READER.readValues(body)) {
+            while (results.hasNextValue()) {
+                consumer.accept(results.nextValue());
+                received++;
+            }
+        }
+        return received;
+    }
+    
     /**
      * Get VIN check history for a user
      * @param userId The ID of the user
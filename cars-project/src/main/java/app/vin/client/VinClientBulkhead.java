@@ -0,0 +1,109 @@
+package app.vin.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of request threads waiting on the VIN service at once. A call that cannot get a permit within
+ * the wait fails fast like an unreachable service, so a slow downstream cannot tie up the whole servlet pool. A call
+ * holds its permit until its response is closed.
+ */
+public class VinClientBulkhead implements ClientHttpRequestInterceptor {
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long waitMs;
+    private final Counter rejected;
+
+    public VinClientBulkhead(int maxConcurrent, long waitMs, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent);
+        this.maxConcurrent = maxConcurrent;
+        this.waitMs = waitMs;
+        this.rejected = meterRegistry.counter("vin.client.bulkhead.rejected");
+        meterRegistry.gauge("vin.client.bulkhead.active", permits, semaphore -> maxConcurrent - semaphore.availablePermits());
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        if (!acquire()) {
+            rejected.increment();
+            throw new ResourceAccessException("VIN service is busy, [%d] calls are already in flight".formatted(maxConcurrent));
+        }
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+        // The connection stays busy while the body is read, a streamed batch included, so it keeps the permit till then
+        return new PermitHoldingResponse(response);
+    }
+
+    public int getActiveCalls() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    private boolean acquire() {
+        try {
+            return permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private final class PermitHoldingResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private PermitHoldingResponse(ClientHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public HttpStatusCode getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return response.getHeaders();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return response.getBody();
+        }
+
+        @Override
+        public void close() {
+            try {
+                response.close();
+            } finally {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            }
+        }
+    }
+}
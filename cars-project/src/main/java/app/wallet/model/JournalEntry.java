@@ -0,0 +1,38 @@
+package app.wallet.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One money movement in the wallet ledger. Entries are only ever inserted, their postings always balance.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class JournalEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private JournalEntryType type;
+
+    private String description;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "journalEntry", cascade = CascadeType.PERSIST)
+    @Builder.Default
+    private List<Posting> postings = new ArrayList<>();
+}
@@ -0,0 +1,7 @@
+package app.wallet.model;
+
+public enum JournalEntryType {
+    TOP_UP,
+    CHARGE,
+    TRANSFER
+}
@@ -0,0 +1,106 @@
+package app.wallet.model;
+
+import app.exception.DomainException;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * An amount in the minor units of its currency, cents for EUR. Arithmetic and comparisons stay on a single long,
+ * so balance checks do not allocate. Amounts are converted from and to {@link BigDecimal} at the persistence boundary.
+ */
+public record Money(long minorUnits, Currency currency) implements Comparable<Money> {
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+        int scale = currency.getDefaultFractionDigits();
+        if (scale < 0 || scale >= POWERS_OF_TEN.length) {
+            throw new DomainException("Currency [%s] has no supported minor unit!".formatted(currency));
+        }
+    }
+
+    public static Money of(BigDecimal amount, Currency currency) {
+        try {
+            return new Money(amount.setScale(currency.getDefaultFractionDigits(), RoundingMode.UNNECESSARY)
+                    .unscaledValue().longValueExact(), currency);
+        } catch (ArithmeticException e) {
+            throw new DomainException("Amount [%s] is not a valid [%s] amount!".formatted(amount, currency), e);
+        }
+    }
+
+    public static long minorUnitsPerUnit(Currency currency) {
+        return POWERS_OF_TEN[currency.getDefaultFractionDigits()];
+    }
+
+    public static Money zero(Currency currency) {
+        return new Money(0, currency);
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public boolean isPositive() {
+        return minorUnits > 0;
+    }
+
+    public boolean isLessThan(Money other) {
+        return compareTo(other) < 0;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, currency.getDefaultFractionDigits());
+    }
+
+    /**
+     * Appends the plain amount, e.g. {@code 1234.50}, straight from the minor units. Unlike {@code "%.2f"} this
+     * neither goes through a {@link java.util.Formatter} nor depends on the default locale.
+     */
+    public StringBuilder appendAmount(StringBuilder target) {
+        int scale = currency.getDefaultFractionDigits();
+        if (minorUnits < 0) {
+            target.append('-');
+        }
+        if (scale == 0) {
+            return target.append(Math.abs(minorUnits));
+        }
+        long power = POWERS_OF_TEN[scale];
+        long fraction = Math.abs(minorUnits % power);
+        target.append(Math.abs(minorUnits / power)).append('.');
+        for (int digit = scale - 1; digit > 0 && fraction < POWERS_OF_TEN[digit]; digit--) {
+            target.append('0');
+        }
+        return target.append(fraction);
+    }
+
+    public String formatAmount() {
+        return appendAmount(new StringBuilder(24)).toString();
+    }
+
+    @Override
+    public String toString() {
+        return appendAmount(new StringBuilder(28)).append(' ').append(currency.getCurrencyCode()).toString();
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new DomainException("Cannot combine amounts in [%s] and [%s]!".formatted(currency, other.currency));
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package app.wallet.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.UUID;
+
+/**
+ * A single debit or credit leg of a {@link JournalEntry}. Credits raise the wallet balance, debits lower it.
+ */
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+@Table(indexes = @Index(name = "idx_posting_wallet_created_on", columnList = "wallet_id, createdOn"))
+public class Posting {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    private JournalEntry journalEntry;
+
+    // Empty for the platform's own account on the other side of top ups and charges
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Wallet wallet;
+
+    @Column(nullable = false)
+    @Enumerated(EnumType.STRING)
+    private PostingDirection direction;
+
+    @Column(nullable = false)
+    private BigDecimal amount;
+
+    private Currency currency;
+
+    @Column(nullable = false)
+    private LocalDateTime createdOn;
+}
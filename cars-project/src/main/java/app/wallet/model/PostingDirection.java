@@ -0,0 +1,6 @@
+package app.wallet.model;
+
+public enum PostingDirection {
+    DEBIT,
+    CREDIT
+}
@@ -28,8 +28,11 @@ public class Wallet {
     @Enumerated(EnumType.STRING)
     private WalletStatus status;
 
+    // Balance as of balanceSnapshotOn, postings made after it are added on read
     private BigDecimal balance;
 
+    private LocalDateTime balanceSnapshotOn;
+
     private Currency currency;
 
     @Column(nullable = false)
@@ -0,0 +1,11 @@
+package app.wallet.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Net amount posted to a wallet after its balance snapshot taken at {@code since}.
+ */
+public record WalletMovement(UUID walletId, BigDecimal net, LocalDateTime since) {
+}
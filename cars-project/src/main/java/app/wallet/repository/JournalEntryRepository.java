@@ -0,0 +1,11 @@
+package app.wallet.repository;
+
+import app.wallet.model.JournalEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.UUID;
+
+@Repository
+public interface JournalEntryRepository extends JpaRepository<JournalEntry, UUID> {
+}
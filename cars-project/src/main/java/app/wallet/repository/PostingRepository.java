@@ -0,0 +1,41 @@
+package app.wallet.repository;
+
+import app.wallet.model.Posting;
+import app.wallet.model.WalletMovement;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface PostingRepository extends JpaRepository<Posting, UUID> {
+
+    // The snapshot plus everything posted after it, scaled to minor units so the balance is read as a single long
+    @Query("""
+            select cast((coalesce(w.balance, 0) + coalesce(sum(case when p.direction = app.wallet.model.PostingDirection.CREDIT
+                then p.amount else -p.amount end), 0)) * :minorUnitsPerUnit as Long)
+            from Wallet w left join Posting p on p.wallet = w and p.createdOn > coalesce(w.balanceSnapshotOn, w.createdOn)
+            where w.id = :walletId
+            group by w.id, w.balance""")
+    long sumBalanceMinorUnits(UUID walletId, long minorUnitsPerUnit);
+
+    // Everything posted after each wallet's snapshot up to the cutoff, grouped so the snapshots can be rolled forward
+    @Query("""
+            select new app.wallet.model.WalletMovement(w.id,
+                sum(case when p.direction = app.wallet.model.PostingDirection.CREDIT then p.amount else -p.amount end),
+                coalesce(w.balanceSnapshotOn, w.createdOn))
+            from Posting p join p.wallet w
+            where p.createdOn > coalesce(w.balanceSnapshotOn, w.createdOn) and p.createdOn <= :cutoff
+            group by w.id, w.balanceSnapshotOn, w.createdOn""")
+    List<WalletMovement> sumNetSinceSnapshotUntil(LocalDateTime cutoff);
+
+    // Every journal entry must net to zero, anything listed here points at a broken money movement
+    @Query("""
+            select p.journalEntry.id from Posting p where p.createdOn >= :from
+            group by p.journalEntry.id
+            having sum(case when p.direction = app.wallet.model.PostingDirection.CREDIT then p.amount else -p.amount end) <> 0""")
+    List<UUID> findUnbalancedJournalEntryIds(LocalDateTime from);
+}
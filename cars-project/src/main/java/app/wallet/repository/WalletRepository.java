@@ -1,9 +1,16 @@
 package app.wallet.repository;
 
 import app.wallet.model.Wallet;
+import app.wallet.model.WalletStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,4 +22,14 @@ public interface WalletRepository extends JpaRepository<Wallet, UUID> {
     List<Wallet> findAllByOwnerUsername(String username);
 
     Optional<Wallet> findByIdAndOwnerId(UUID id, UUID ownerId);
+
+    @EntityGraph(attributePaths = "owner")
+    List<Wallet> findAllByOwnerIdInAndStatus(Collection<UUID> ownerIds, WalletStatus status);
+
+    // Only moves the snapshot the movement was computed from, a snapshot moved in the meantime is caught up on the next run
+    @Modifying
+    @Query("""
+            update Wallet w set w.balance = w.balance + :net, w.balanceSnapshotOn = :cutoff
+            where w.id = :walletId and coalesce(w.balanceSnapshotOn, w.createdOn) = :since""")
+    int advanceBalanceSnapshot(UUID walletId, BigDecimal net, LocalDateTime since, LocalDateTime cutoff);
 }
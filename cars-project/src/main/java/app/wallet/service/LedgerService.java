@@ -0,0 +1,117 @@
+package app.wallet.service;
+
+import app.exception.DomainException;
+import app.wallet.model.JournalEntry;
+import app.wallet.model.JournalEntryType;
+import app.wallet.model.Money;
+import app.wallet.model.Posting;
+import app.wallet.model.PostingDirection;
+import app.wallet.model.Wallet;
+import app.wallet.model.WalletMovement;
+import app.wallet.repository.JournalEntryRepository;
+import app.wallet.repository.PostingRepository;
+import app.wallet.repository.WalletRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Double-entry ledger behind the wallets. Money movements are inserted as balanced journal entries and never
+ * touch the wallet rows, a wallet balance is its snapshot plus everything posted after it.
+ */
+@Service
+public class LedgerService {
+
+    private final JournalEntryRepository journalEntryRepository;
+    private final PostingRepository postingRepository;
+    private final WalletRepository walletRepository;
+
+    @Autowired
+    public LedgerService(JournalEntryRepository journalEntryRepository, PostingRepository postingRepository,
+                         WalletRepository walletRepository) {
+        this.journalEntryRepository = journalEntryRepository;
+        this.postingRepository = postingRepository;
+        this.walletRepository = walletRepository;
+    }
+
+    public Money getBalance(Wallet wallet) {
+        Currency currency = wallet.getCurrency();
+        return new Money(postingRepository.sumBalanceMinorUnits(wallet.getId(), Money.minorUnitsPerUnit(currency)), currency);
+    }
+
+    public JournalEntry recordTopUp(Wallet wallet, Money amount, String description) {
+        return post(JournalEntryType.TOP_UP, description, amount, null, wallet);
+    }
+
+    public JournalEntry recordCharge(Wallet wallet, Money amount, String description) {
+        return post(JournalEntryType.CHARGE, description, amount, wallet, null);
+    }
+
+    public JournalEntry recordTransfer(Wallet from, Wallet to, Money amount, String description) {
+        if (!Objects.equals(from.getCurrency(), to.getCurrency())) {
+            throw new DomainException("Cannot transfer between wallets in [%s] and [%s]!".formatted(from.getCurrency(), to.getCurrency()));
+        }
+        return post(JournalEntryType.TRANSFER, description, amount, from, to);
+    }
+
+    /**
+     * Rolls every wallet snapshot forward to the cutoff. The cutoff should trail the current time by more than
+     * any transaction takes to commit, so no posting can still appear behind a snapshot once it moved.
+     */
+    @Transactional
+    public int snapshotBalances(LocalDateTime cutoff) {
+        int advanced = 0;
+        for (WalletMovement movement : postingRepository.sumNetSinceSnapshotUntil(cutoff)) {
+            advanced += walletRepository.advanceBalanceSnapshot(movement.walletId(), movement.net(), movement.since(), cutoff);
+        }
+        return advanced;
+    }
+
+    public List<UUID> findUnbalancedJournalEntries(LocalDateTime from) {
+        return postingRepository.findUnbalancedJournalEntryIds(from);
+    }
+
+    // The debited and credited sides of an entry, a missing wallet stands for the platform's own account
+    private JournalEntry post(JournalEntryType type, String description, Money amount, Wallet debited, Wallet credited) {
+        if (amount == null || !amount.isPositive()) {
+            throw new DomainException("Ledger amount must be positive, got [%s]!".formatted(amount));
+        }
+        requireCurrency(debited, amount);
+        requireCurrency(credited, amount);
+        BigDecimal value = amount.toBigDecimal();
+        LocalDateTime now = LocalDateTime.now();
+        JournalEntry entry = JournalEntry.builder()
+                .type(type)
+                .description(description)
+                .createdOn(now)
+                .build();
+        entry.getPostings().add(leg(entry, debited, PostingDirection.DEBIT, value, amount.currency(), now));
+        entry.getPostings().add(leg(entry, credited, PostingDirection.CREDIT, value, amount.currency(), now));
+        return journalEntryRepository.save(entry);
+    }
+
+    private void requireCurrency(Wallet wallet, Money amount) {
+        if (wallet != null && !amount.currency().equals(wallet.getCurrency())) {
+            throw new DomainException("Cannot post [%s] to a wallet in [%s]!".formatted(amount, wallet.getCurrency()));
+        }
+    }
+
+    private Posting leg(JournalEntry entry, Wallet wallet, PostingDirection direction, BigDecimal amount, Currency currency,
+                        LocalDateTime now) {
+        return Posting.builder()
+                .journalEntry(entry)
+                .wallet(wallet)
+                .direction(direction)
+                .amount(amount)
+                .currency(currency)
+                .createdOn(now)
+                .build();
+    }
+}
@@ -0,0 +1,90 @@
+package app.wallet.service;
+
+import app.exception.DomainException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Serializes balance changes per wallet on a fixed pool of lock stripes, unrelated wallets almost never share one.
+ * Stripes are always taken in ascending order, so two transfers between the same wallets in opposite directions
+ * cannot deadlock. Inside a transaction the locks are held until it completes, so the next holder reads the
+ * committed postings instead of checking the balance against a write that is still in flight.
+ */
+@Component
+public class WalletLocks {
+
+    private final ReentrantLock[] stripes;
+    private final long timeoutMs;
+
+    @Autowired
+    public WalletLocks(@Value("${wallets.locks.stripes:1024}") int stripeCount,
+                       @Value("${wallets.locks.timeout-ms:5000}") long timeoutMs) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.timeoutMs = timeoutMs;
+    }
+
+    public <T> T withLocks(Supplier<T> work, UUID... walletIds) {
+        List<ReentrantLock> acquired = acquire(walletIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    release(acquired);
+                }
+            });
+            return work.get();
+        }
+        try {
+            return work.get();
+        } finally {
+            release(acquired);
+        }
+    }
+
+    int stripeOf(UUID walletId) {
+        int hash = walletId.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), stripes.length);
+    }
+
+    private List<ReentrantLock> acquire(UUID... walletIds) {
+        int[] order = Arrays.stream(walletIds).mapToInt(this::stripeOf).distinct().sorted().toArray();
+        List<ReentrantLock> acquired = new ArrayList<>(order.length);
+        try {
+            for (int index : order) {
+                ReentrantLock stripe = stripes[index];
+                if (!stripe.tryLock(timeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new DomainException("Wallet is busy with another payment, please try again!");
+                }
+                acquired.add(stripe);
+            }
+            return acquired;
+        } catch (InterruptedException e) {
+            release(acquired);
+            Thread.currentThread().interrupt();
+            throw new DomainException("Interrupted while waiting for the wallet!", e);
+        } catch (RuntimeException e) {
+            release(acquired);
+            throw e;
+        }
+    }
+
+    private void release(List<ReentrantLock> acquired) {
+        for (int i = acquired.size() - 1; i >= 0; i--) {
+            acquired.get(i).unlock();
+        }
+    }
+}
@@ -8,6 +8,7 @@ import app.transaction.model.TransactionStatus;
 import app.transaction.model.TransactionType;
 import app.transaction.service.TransactionService;
 import app.user.model.User;
+import app.wallet.model.Money;
 import app.wallet.model.Wallet;
 import app.wallet.model.WalletStatus;
 import app.wallet.repository.WalletRepository;
@@ -15,6 +16,7 @@ import app.web.dto.TransferRequest;
 import jakarta.transaction.Transactional;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
@@ -27,19 +29,35 @@ import java.util.*;
 public class WalletService {
 
     private static final String SMART_WALLET_LTD = "SMART_WALLET_LTD.";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 64;
     private final WalletRepository walletRepository;
     private final TransactionService transactionService;
+    private final LedgerService ledgerService;
+    private final WalletLocks walletLocks;
 
     @Autowired
-    public WalletService(WalletRepository walletRepository, TransactionService transactionService, ApplicationEventPublisher eventPublisher) {
+    public WalletService(WalletRepository walletRepository, TransactionService transactionService, ApplicationEventPublisher eventPublisher,
+                         LedgerService ledgerService, WalletLocks walletLocks) {
         this.walletRepository = walletRepository;
         this.transactionService = transactionService;
+        this.ledgerService = ledgerService;
+        this.walletLocks = walletLocks;
     }
 
     public List<Wallet> getAllWalletsByUsername(String username) {
         return walletRepository.findAllByOwnerUsername(username);
     }
 
+    public List<Wallet> getActiveWalletsByOwnerIds(Collection<UUID> ownerIds) {
+        return walletRepository.findAllByOwnerIdInAndStatus(ownerIds, WalletStatus.ACTIVE);
+    }
+
+    public BigDecimal getBalance(Wallet wallet) {
+        return ledgerService.getBalance(wallet).toBigDecimal();
+    }
+
+    // The cached first page of the admin user list shows every user's wallet count
+    @CacheEvict(value = "users", key = "'first-page'")
     public void unlockNewWallet(User user) {
         List<Wallet> allUserWallets = walletRepository.findAllByOwnerUsername(user.getUsername());
         
@@ -54,18 +72,21 @@ public class WalletService {
             throw new DomainException("Max wallet count reached for user with id [%s] and subscription type [%s]! ".formatted(user.getId(), activeSubscription.getType()));
         }
 
+        LocalDateTime now = LocalDateTime.now();
         Wallet newWallet = Wallet.builder()
                 .owner(user)
                 .status(WalletStatus.ACTIVE)
                 .balance(new BigDecimal("0.00"))
+                .balanceSnapshotOn(now)
                 .currency(Currency.getInstance("EUR"))
-                .createdOn(LocalDateTime.now())
-                .updatedOn(LocalDateTime.now())
+                .createdOn(now)
+                .updatedOn(now)
                 .build();
 
         walletRepository.save(newWallet);
     }
 
+    @CacheEvict(value = "users", key = "'first-page'")
     public Wallet initializeFirstWallet(User user) {
         List<Wallet> allUserWallets =  walletRepository.findAllByOwnerUsername(user.getUsername());
         if (!allUserWallets.isEmpty()) {
@@ -78,174 +99,251 @@ public class WalletService {
         return wallet;
     }
 
+    @Transactional
     public Transaction transferFunds(User sender, TransferRequest transferRequest) {
 
-        Wallet senderWallet = getWalletById(transferRequest.getFromWalletId());
-
 //        Filter and find all active wallet by the receiver ID
         Optional<Wallet> receiverWalletOptional = walletRepository.findAllByOwnerUsername(transferRequest.getToUsername())
                 .stream()
                 .filter(wallet -> wallet.getStatus() == WalletStatus.ACTIVE)
                 .findFirst();
 
-        String transferDescription = "Transfer from %s to %s for %.2f EUR".formatted(
-                sender.getUsername(),
-                transferRequest.getToUsername(),
-                transferRequest.getAmount().doubleValue()
-        );
+        // Both wallets stay locked until the transfer commits, the balance check and the postings happen under them
+        UUID[] walletIds = receiverWalletOptional
+                .map(receiver -> new UUID[]{transferRequest.getFromWalletId(), receiver.getId()})
+                .orElseGet(() -> new UUID[]{transferRequest.getFromWalletId()});
+        String idempotencyKey = normalizeIdempotencyKey(transferRequest.getIdempotencyKey());
+        return walletLocks.withLocks(() -> findReplay(idempotencyKey, transferRequest.getFromWalletId(), transferRequest.getAmount())
+                .orElseGet(() -> transferFundsLocked(sender, transferRequest, receiverWalletOptional, idempotencyKey)), walletIds);
+    }
 
-        if (receiverWalletOptional.isEmpty()) {
-            String failureReason = "Receiver wallet is inactive";
+    private Transaction transferFundsLocked(User sender, TransferRequest transferRequest, Optional<Wallet> receiverWalletOptional,
+                                            String idempotencyKey) {
+        Wallet senderWallet = getWalletById(transferRequest.getFromWalletId());
+        Money amount = Money.of(transferRequest.getAmount(), senderWallet.getCurrency());
+        BigDecimal value = amount.toBigDecimal();
+
+        String transferDescription = amount.appendAmount(new StringBuilder(64)
+                        .append("Transfer from ").append(sender.getUsername())
+                        .append(" to ").append(transferRequest.getToUsername())
+                        .append(" for "))
+                .append(' ').append(amount.currency().getCurrencyCode())
+                .toString();
+
+        Money senderBalance = ledgerService.getBalance(senderWallet);
+        String failureReason = receiverWalletOptional.isEmpty() ? "Receiver wallet is inactive" : getChargeFailureReason(senderWallet, senderBalance, amount);
+        if (failureReason != null) {
             return transactionService.createNewTransaction(
                     sender,
+                    senderWallet,
                     senderWallet.getId().toString(),
                     transferRequest.getToUsername(),
-                    transferRequest.getAmount(),
-                    senderWallet.getBalance(),
+                    value,
+                    senderBalance.toBigDecimal(),
                     senderWallet.getCurrency(),
                     TransactionType.WITHDRAWAL,
                     TransactionStatus.FAILED,
                     transferDescription,
-                    failureReason
+                    failureReason,
+                    idempotencyKey
             );
         }
 
-        Transaction withdrawal = charge(sender, senderWallet.getId(), transferRequest.getAmount(), transferDescription);
-
-        if (withdrawal.getStatus() == TransactionStatus.FAILED) {
-            return withdrawal;
-        }
-
         Wallet receiverWallet = receiverWalletOptional.get();
+        Money receiverBalance = ledgerService.getBalance(receiverWallet);
+
+        // Both sides are booked as one journal entry, so the debit and the credit commit together
+        ledgerService.recordTransfer(senderWallet, receiverWallet, amount, transferDescription);
 
-        receiverWallet.setBalance(receiverWallet.getBalance().add(transferRequest.getAmount()));
-        receiverWallet.setUpdatedOn(LocalDateTime.now());
-        walletRepository.save(receiverWallet);
+        Transaction withdrawal = transactionService.createNewTransaction(
+                sender,
+                senderWallet,
+                senderWallet.getId().toString(),
+                receiverWallet.getId().toString(),
+                value,
+                senderBalance.minus(amount).toBigDecimal(),
+                senderWallet.getCurrency(),
+                TransactionType.WITHDRAWAL,
+                TransactionStatus.SUCCEEDED,
+                transferDescription,
+                null,
+                idempotencyKey
+        );
         transactionService.createNewTransaction(
                 receiverWallet.getOwner(),
+                receiverWallet,
                 senderWallet.getId().toString(),
                 receiverWallet.getId().toString(),
-                transferRequest.getAmount(),
-                receiverWallet.getBalance(),
+                value,
+                receiverBalance.plus(amount).toBigDecimal(),
                 receiverWallet.getCurrency(),
                 TransactionType.DEPOSIT,
                 TransactionStatus.SUCCEEDED,
                 transferDescription,
+                null,
                 null
         );
-        log.info("Successfully transferred funds from wallet [%s] to wallet [%s] for %.2f".formatted(receiverWallet.getId(), senderWallet.getId(), transferRequest.getAmount().doubleValue()));
+        log.info("Successfully transferred funds from wallet [{}] to wallet [{}] for [{}]", senderWallet.getId(), receiverWallet.getId(), amount);
         return withdrawal;
     }
 
     @Transactional
-    public Transaction topUp(UUID walletId, BigDecimal amount) {
+    public Transaction topUp(UUID walletId, BigDecimal amount, String idempotencyKey) {
+        String key = normalizeIdempotencyKey(idempotencyKey);
+        return walletLocks.withLocks(() -> findReplay(key, walletId, amount)
+                .orElseGet(() -> topUpLocked(walletId, amount, key)), walletId);
+    }
+
+    private Transaction topUpLocked(UUID walletId, BigDecimal requestedAmount, String idempotencyKey) {
         Wallet wallet = getWalletById(walletId);
-        String description = "Top Up %.2f".formatted(amount.doubleValue());
+        Money amount = Money.of(requestedAmount, wallet.getCurrency());
+        BigDecimal value = amount.toBigDecimal();
+        String description = amount.appendAmount(new StringBuilder(24).append("Top Up ")).toString();
+        Money balance = ledgerService.getBalance(wallet);
         if (wallet.getStatus() == WalletStatus.DEACTIVATED) {
             return transactionService.createNewTransaction(wallet.getOwner(),
+                    wallet,
                     SMART_WALLET_LTD,
                     walletId.toString(),
-                    amount,
-                    wallet.getBalance(),
+                    value,
+                    balance.toBigDecimal(),
                     wallet.getCurrency(),
                     TransactionType.DEPOSIT,
                     TransactionStatus.FAILED,
                     description,
-                    "Inactive Wallet");
+                    "Inactive Wallet",
+                    idempotencyKey);
         }
 
-        wallet.setBalance(wallet.getBalance().add(amount));
-        wallet.setUpdatedOn(LocalDateTime.now());
-        walletRepository.save(wallet);
+        ledgerService.recordTopUp(wallet, amount, description);
 
         return transactionService.createNewTransaction(
                 wallet.getOwner(),
+                wallet,
                 SMART_WALLET_LTD,
                 walletId.toString(),
-                amount,
-                wallet.getBalance(),
+                value,
+                balance.plus(amount).toBigDecimal(),
                 wallet.getCurrency(),
                 TransactionType.DEPOSIT,
                 TransactionStatus.SUCCEEDED,
                 description,
-                null
+                null,
+                idempotencyKey
         );
     }
 
     @Transactional
-    public Transaction charge(User user, UUID walletId, BigDecimal amount, String description) {
+    public Transaction charge(User user, UUID walletId, BigDecimal amount, String description, String idempotencyKey) {
+        String key = normalizeIdempotencyKey(idempotencyKey);
+        return walletLocks.withLocks(() -> findReplay(key, walletId, amount)
+                .orElseGet(() -> chargeLocked(user, walletId, amount, description, key)), walletId);
+    }
 
+    private Transaction chargeLocked(User user, UUID walletId, BigDecimal requestedAmount, String description, String idempotencyKey) {
         Wallet wallet = getWalletById(walletId);
+        Money amount = Money.of(requestedAmount, wallet.getCurrency());
+        BigDecimal value = amount.toBigDecimal();
+        Money balance = ledgerService.getBalance(wallet);
+        String failureReason = getChargeFailureReason(wallet, balance, amount);
 
-        boolean isFailedTransaction = false;
-        String failureReason = null;
-
-        if (wallet.getStatus() == WalletStatus.DEACTIVATED) {
-            failureReason = "Inactive wallet status";
-            isFailedTransaction = true;
-        }
-
-        if (wallet.getBalance().compareTo(amount) < 0) {
-            failureReason = "Insufficient balance";
-            isFailedTransaction = true;
-        }
-
-        if (isFailedTransaction) {
+        if (failureReason != null) {
             return transactionService.createNewTransaction(
                     user,
+                    wallet,
                     wallet.getId().toString(),
                     SMART_WALLET_LTD,
-                    amount,
-                    wallet.getBalance(),
+                    value,
+                    balance.toBigDecimal(),
                     wallet.getCurrency(),
                     TransactionType.WITHDRAWAL,
                     TransactionStatus.FAILED,
                     description,
-                    failureReason
+                    failureReason,
+                    idempotencyKey
             );
         }
 
-        wallet.setBalance(wallet.getBalance().subtract(amount));
-        wallet.setUpdatedOn(LocalDateTime.now());
-        walletRepository.save(wallet);
+        ledgerService.recordCharge(wallet, amount, description);
 
         return transactionService.createNewTransaction(
                 user,
+                wallet,
                 wallet.getId().toString(),
                 SMART_WALLET_LTD,
-                amount,
-                wallet.getBalance(),
+                value,
+                balance.minus(amount).toBigDecimal(),
                 wallet.getCurrency(),
                 TransactionType.WITHDRAWAL,
                 TransactionStatus.SUCCEEDED,
                 description,
-                null
+                null,
+                idempotencyKey
         );
     }
 
+    /**
+     * Runs under the wallet lock, so a resubmit waits for the first attempt to commit and then finds its transaction.
+     * Failed attempts are replayed as well, the client has to send a new key to try again.
+     */
+    private Optional<Transaction> findReplay(String idempotencyKey, UUID walletId, BigDecimal amount) {
+        if (idempotencyKey == null) {
+            return Optional.empty();
+        }
+        Optional<Transaction> stored = transactionService.findByIdempotencyKey(idempotencyKey);
+        stored.ifPresent(transaction -> {
+            boolean samePayment = transaction.getWallet() != null && walletId.equals(transaction.getWallet().getId())
+                    && transaction.getAmount().compareTo(amount) == 0;
+            if (!samePayment) {
+                throw new DomainException("Idempotency key [%s] was already used for another payment!".formatted(idempotencyKey));
+            }
+            transaction.setReplayed(true);
+            log.info("Replaying transaction [{}] for idempotency key [{}]", transaction.getId(), idempotencyKey);
+        });
+        return stored;
+    }
+
+    private String normalizeIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            return null;
+        }
+        String key = idempotencyKey.strip();
+        if (key.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new DomainException("Idempotency key must be at most %d characters long!".formatted(MAX_IDEMPOTENCY_KEY_LENGTH));
+        }
+        return key;
+    }
+
+    private String getChargeFailureReason(Wallet wallet, Money balance, Money amount) {
+        if (balance.isLessThan(amount)) {
+            return "Insufficient balance";
+        }
+        if (wallet.getStatus() == WalletStatus.DEACTIVATED) {
+            return "Inactive wallet status";
+        }
+        return null;
+    }
+
     private Wallet getWalletById(UUID walletId) {
         return walletRepository.findById(walletId).orElseThrow(() ->
                 new DomainException("Wallet with [%s] does not exist".formatted(walletId)));
     }
 
     private Wallet initWallet(User user) {
+        LocalDateTime now = LocalDateTime.now();
         return Wallet.builder()
                 .owner(user)
                 .status(WalletStatus.ACTIVE)
                 .balance(new BigDecimal("20.00"))
+                .balanceSnapshotOn(now)
                 .currency(Currency.getInstance("EUR"))
-                .createdOn(LocalDateTime.now())
-                .updatedOn(LocalDateTime.now())
+                .createdOn(now)
+                .updatedOn(now)
                 .build();
     }
 
     public Map<UUID, List<Transaction>> getLastFourTransactions(List<Wallet> wallets) {
-        Map<UUID, List<Transaction>> transactionsByWalletId = new LinkedHashMap<>();
-        for (Wallet wallet : wallets) {
-            List<Transaction> lastFourTransactions = transactionService.getLastFourTransactionsByWallet(wallet);
-            transactionsByWalletId.put(wallet.getId(), lastFourTransactions);
-        }
-        return transactionsByWalletId;
+        return transactionService.getLastFourTransactionsByWallets(wallets);
     }
 
     public void switchStatus(UUID walletId, UUID ownerId) {
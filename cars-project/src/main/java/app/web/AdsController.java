@@ -1,6 +1,7 @@
 package app.web;
 
 import app.advert.model.Advert;
+import app.advert.model.AdvertCardView;
 import app.advert.service.AdvertService;
 import app.exception.AdvertNotFoundException;
 import app.exception.DomainException;
@@ -8,15 +9,17 @@ import app.exception.NumberFormatExceptionHandler;
 import app.exception.UserNotAllowedToEditAdvert;
 import app.security.AuthenticationMetadata;
 import app.subscription.service.SubscriptionService;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
+import app.user.service.CurrentUserService;
 import app.user.service.UserService;
 import app.utils.Utilities;
 import app.vin.client.VinClient;
 import app.vin.service.VinHistoryService;
 import app.web.dto.CreateNewAdvertRequest;
+import app.web.dto.VinCheckResult;
 import app.web.mapper.DtoMapper;
 import jakarta.validation.Valid;
-import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.BindingResult;
@@ -24,7 +27,6 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.ModelAndView;
 
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -37,15 +39,17 @@ public class AdsController {
     private final VinClient vinClient;
     private final SubscriptionService subscriptionService;
     private final VinHistoryService vinHistoryService;
+    private final CurrentUserService currentUserService;
 
     public AdsController(AdvertService advertService, UserService userService,
                         VinClient vinClient, SubscriptionService subscriptionService,
-                        VinHistoryService vinHistoryService) {
+                        VinHistoryService vinHistoryService, CurrentUserService currentUserService) {
         this.advertService = advertService;
         this.userService = userService;
         this.vinClient = vinClient;
         this.subscriptionService = subscriptionService;
         this.vinHistoryService = vinHistoryService;
+        this.currentUserService = currentUserService;
     }
 
     @GetMapping("")
@@ -56,9 +60,10 @@ public class AdsController {
         int currentPage = 0;
         String sortType = "DESC";
         String sortField = "createdOn";
-        User user = userService.getById(authenticationMetadata.getUserId());
-        List<Advert> adverts = advertService.getAllShownAdvertsByPage(currentPage, sortType, sortField);
+        CurrentUserView user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
+        List<AdvertCardView> adverts = advertService.getAllShownAdvertsByPage(currentPage, sortType, sortField);
         int totalVisibleAds = advertService.getAdvertCount();
+        modelAndView.addObject("nextCursor", advertService.getNextCursor(adverts, sortField));
         int totalPages = (int) Math.ceil((double) totalVisibleAds / 20);
         if (error.isPresent() && error.get() == 1) {
             modelAndView.addObject("error", "Advert not found!");
@@ -84,9 +89,9 @@ public class AdsController {
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("ad-info");
 //        Update view count of the advert
-        advert.setViewCount(advert.getViewCount() + 1);
-        advertService.updateAdvert(UUID.fromString(id), advert);
-        User user = userService.getById(authenticationMetadata.getUserId());
+        long pendingViews = advertService.incrementViewCount(advertId);
+        advert.setViewCount(advert.getViewCount() + (int) pendingViews);
+        User user = userService.getByIdWithSubscriptions(authenticationMetadata.getUserId());
         modelAndView.addObject("advert", advert);
         modelAndView.addObject("user", user);
         return modelAndView;
@@ -101,23 +106,25 @@ public class AdsController {
         Advert advert = advertService.getAdvertById(advertId);
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("new-advert");
-//        Update view count of the advert
-        User user = userService.getById(authenticationMetadata.getUserId());
+        CurrentUserView user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         modelAndView.addObject("createAdvertRequest", DtoMapper.mapAdvertToCreateNewAdvertRequest(advert));
         modelAndView.addObject("user", user);
         return modelAndView;
     }
 
     @GetMapping("page/{page}")
-    public ModelAndView getAdvertsPage(@PathVariable int page, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+    public ModelAndView getAdvertsPage(@PathVariable int page,
+                                       @RequestParam("after") Optional<String> after,
+                                       @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("all-ads");
-        User user = userService.getById(authenticationMetadata.getUserId());
+        CurrentUserView user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         page = page < 1 ? 1 : page - 1;
         String sortType = "DESC";
         String sortField = "createdOn";
-        List<Advert> adverts = advertService.getAllShownAdvertsByPage(page, sortType, sortField);
+        List<AdvertCardView> adverts = advertService.getShownAdvertsPage(page, after.orElse(null), sortType, sortField);
         modelAndView.addObject("adverts", adverts);
+        modelAndView.addObject("nextCursor", advertService.getNextCursor(adverts, sortField));
         int totalVisibleAds = advertService.getAdvertCount();
         int totalPages = (int) Math.ceil((double) totalVisibleAds / 20);
         modelAndView.addObject("totalVisibleAds", totalVisibleAds);
@@ -131,8 +138,8 @@ public class AdsController {
     public ModelAndView getMyAdvertsPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("my-ads");
-        User user = userService.getById(authenticationMetadata.getUserId());
-        List<Advert> adverts = advertService.getAdvertsByOwnerId(user.getId());
+        CurrentUserView user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
+        List<AdvertCardView> adverts = advertService.getAdvertsByOwnerId(user.id());
         int totalVisibleAds = adverts.size();
         int totalPages = 1;
         int currentPage = 0;
@@ -147,10 +154,10 @@ public class AdsController {
 
     @GetMapping("/my-reservations")
     public ModelAndView getMyReservationsPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
-        User user = userService.getById(authenticationMetadata.getUserId());
+        CurrentUserView user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("my-reservations");
-        List<Advert> reservedCarAdverts = advertService.getAdvertsByWinnerId(user.getId());
+        List<AdvertCardView> reservedCarAdverts = advertService.getAdvertsByWinnerId(user.id());
         modelAndView.addObject("reservedCars", reservedCarAdverts);
         modelAndView.addObject("user", user);
         modelAndView.addObject("currentUri", "/ads/my-reservations");
@@ -166,7 +173,7 @@ public class AdsController {
     @GetMapping ("/new")
     public ModelAndView getNewAdPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
         ModelAndView modelAndView = new ModelAndView();
-        User user = userService.getById(authenticationMetadata.getUserId());
+        CurrentUserView user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         modelAndView.setViewName("new-advert");
         modelAndView.addObject("createAdvertRequest", new CreateNewAdvertRequest());
         modelAndView.addObject("user", user);
@@ -182,7 +189,7 @@ public class AdsController {
         if (bindingResult.hasErrors()) {
             ModelAndView modelAndView = new ModelAndView("new-advert");
             modelAndView.addObject("org.springframework.validation.BindingResult.createAdvertRequest", bindingResult);
-            modelAndView.addObject("user", authenticationMetadata.getUserId() != null ? userService.getById(authenticationMetadata.getUserId()) : null);
+            modelAndView.addObject("user", authenticationMetadata.getUserId() != null ? currentUserService.getCurrentUser(authenticationMetadata.getUserId()) : null);
             modelAndView.addObject("createAdvertRequest", createAdvertRequest);
             return modelAndView;
         }
@@ -200,7 +207,7 @@ public class AdsController {
             ModelAndView modelAndView = new ModelAndView("new-advert");
             modelAndView.addObject("createAdvertRequest", createAdvertRequest);
             modelAndView.addObject("org.springframework.validation.BindingResult.createAdvertRequest", bindingResult);
-            modelAndView.addObject("user", userService.getById(authenticationMetadata.getUserId()));
+            modelAndView.addObject("user", currentUserService.getCurrentUser(authenticationMetadata.getUserId()));
             return modelAndView;
         }
         User user = userService.getById(authenticationMetadata.getUserId());
@@ -226,107 +233,53 @@ public class AdsController {
     @GetMapping("/{id}/check-vin")
     public ModelAndView checkVin(@PathVariable UUID id, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
         Advert advert = advertService.getAdvertById(id);
-        User user = userService.getById(authenticationMetadata.getUserId());
+        User user = userService.getByIdWithSubscriptions(authenticationMetadata.getUserId());
         ModelAndView modelAndView = new ModelAndView("ad-info");
 
         // Check if VIN exists
         if (advert != null && advert.getVinNumber() != null && !advert.getVinNumber().isEmpty()) {
-            boolean alreadyChecked = vinClient.hasUserCheckedVin(advert.getVinNumber(), user.getId());
-
-            if (alreadyChecked) {
-                System.out.println("User already checked this VIN: " + advert.getVinNumber());
-                modelAndView.addObject("vinAlreadyChecked", true);
-
-                ResponseEntity<String> vinResponse = vinClient.getVINInformation(advert.getVinNumber());
-                String responseBody = vinResponse.getBody();
-                modelAndView.addObject("vinInfo", responseBody);
-
-                if (responseBody != null && responseBody.contains("manufacturer")) {
-                    modelAndView.addObject("vinManufacturer", extractJsonValue(responseBody, "manufacturer"));
-                    modelAndView.addObject("vinModelYear", extractJsonValue(responseBody, "model_year"));
-                    modelAndView.addObject("vinAssemblyPlant", extractJsonValue(responseBody, "assembly_plant_code"));
-                    modelAndView.addObject("vinStatus", extractJsonValue(responseBody, "status"));
-                    modelAndView.addObject("vinCheckSuccess", true);
+            boolean hasVinChecksLeft = !user.getSubscriptions().isEmpty() && user.getSubscriptions().get(0).getVinChecksLeft() > 0;
+            try {
+                // One round trip decodes the VIN, tells whether it was checked before and records a new check
+                VinCheckResult vinCheck = vinClient.checkVin(advert.getVinNumber(), user.getId(), hasVinChecksLeft);
+
+                if (vinCheck.isAlreadyChecked()) {
+                    modelAndView.addObject("vinAlreadyChecked", true);
+                    addVinInfo(modelAndView, vinCheck.getResultJson());
                 }
-            }
-            else if (!user.getSubscriptions().isEmpty() && user.getSubscriptions().get(0).getVinChecksLeft() > 0) {
-                try {
+                else if (hasVinChecksLeft) {
                     // Reduce user vin checks count - only for new checks
                     subscriptionService.reduceVinChecksWithOne(user);
+                    user = userService.getByIdWithSubscriptions(authenticationMetadata.getUserId());
 
-                    user = userService.getById(authenticationMetadata.getUserId());
-                    // First get basic VIN information from microservice
-                    ResponseEntity<String> vinResponse = vinClient.getVINInformation(advert.getVinNumber());
-                    String responseBody = vinResponse.getBody();
-
-                    // Store the raw response for debugging
-                    modelAndView.addObject("vinInfo", responseBody);
-
-                    // Default values for invalid/error cases
-                    String manufacturer = "Unknown";
-                    String modelYear = "Unknown";
-                    String assemblyPlant = "Unknown";
-                    String status = "Invalid";
-                    boolean isValid = false;
-
-                    // Extract information from the JSON response for the view
-                    if (responseBody != null && responseBody.contains("manufacturer")) {
-                        manufacturer = extractJsonValue(responseBody, "manufacturer");
-                        modelAndView.addObject("vinManufacturer", manufacturer);
-                        modelYear = extractJsonValue(responseBody, "model_year");
-                        modelAndView.addObject("vinModelYear", modelYear);
-                        assemblyPlant = extractJsonValue(responseBody, "assembly_plant_code");
-                        modelAndView.addObject("vinAssemblyPlant", assemblyPlant);
-                        status = extractJsonValue(responseBody, "status");
-                        modelAndView.addObject("vinStatus", status);
-                        isValid = true;
-                    } else {
-                        // Set view attributes for invalid VIN
-                        modelAndView.addObject("vinManufacturer", manufacturer);
-                        modelAndView.addObject("vinModelYear", modelYear);
-                        modelAndView.addObject("vinAssemblyPlant", assemblyPlant);
-                        modelAndView.addObject("vinStatus", status);
-                    }
-
-                    // Save the VIN check using the microservice's POST endpoint
-                    try {
-                        System.out.println("Before calling VIN microservice save for: " + advert.getVinNumber());
-                        ResponseEntity<Map<String, Object>> savedCheckResponse = vinClient.saveVinCheck(advert.getVinNumber(), user.getId());
-                        System.out.println("VIN check saved to microservice with status: " + savedCheckResponse.getStatusCode());
-                        System.out.println("Response body: " + savedCheckResponse.getBody());
-                    } catch (Exception ex) {
-                        // Log the error but don't use local fallback
-                        System.err.println("Error saving to VIN microservice: " + ex.getMessage());
-                        System.out.println("VIN check not saved due to microservice error");
-                    }
-
-                    modelAndView.addObject("vinCheckSuccess", isValid);
+                    boolean isValid = addVinInfo(modelAndView, vinCheck.getResultJson());
                     if (!isValid) {
+                        // Set view attributes for invalid VIN
+                        modelAndView.addObject("vinManufacturer", "Unknown");
+                        modelAndView.addObject("vinModelYear", "Unknown");
+                        modelAndView.addObject("vinAssemblyPlant", "Unknown");
+                        modelAndView.addObject("vinStatus", "Invalid");
+                        modelAndView.addObject("vinCheckSuccess", false);
                         modelAndView.addObject("vinCheckWarning", "The VIN appears to be invalid or could not be verified. The check has been recorded in your history.");
                     }
-                } catch (Exception e) {
-                    // In case of microservice failure, try to save via microservice one more time
-                    try {
-                        vinClient.saveVinCheck(advert.getVinNumber(), user.getId());
-                    } catch (Exception ex) {
-                        // If microservice completely fails, fall back to local save
-                        vinHistoryService.saveVinCheck(
-                            user,
-                            advert.getVinNumber(),
-                            "Error: " + e.getMessage(),
-                            "Error",
-                            "Error",
-                            "Error",
-                            "Error"
-                        );
-                    }
-
-                    modelAndView.addObject("user", user);
-                    modelAndView.addObject("vinCheckError", "Could not verify VIN: " + e.getMessage());
                 }
-            }
-            else {
-                modelAndView.addObject("vinCheckError", "Not enough VIN checks left. Please upgrade your subscription.");
+                else {
+                    modelAndView.addObject("vinCheckError", "Not enough VIN checks left. Please upgrade your subscription.");
+                }
+            } catch (Exception e) {
+                if (hasVinChecksLeft) {
+                    // The VIN service could not record the check, keep it in the local history instead
+                    vinHistoryService.saveVinCheck(
+                        user,
+                        advert.getVinNumber(),
+                        "Error: " + e.getMessage(),
+                        "Error",
+                        "Error",
+                        "Error",
+                        "Error"
+                    );
+                }
+                modelAndView.addObject("vinCheckError", "Could not verify VIN: " + e.getMessage());
             }
         } else {
             modelAndView.addObject("vinCheckError", "No VIN number available for this vehicle");
@@ -338,6 +291,19 @@ public class AdsController {
         return modelAndView;
     }
 
+    private boolean addVinInfo(ModelAndView modelAndView, String resultJson) {
+        modelAndView.addObject("vinInfo", resultJson);
+        if (resultJson == null || !resultJson.contains("manufacturer")) {
+            return false;
+        }
+        modelAndView.addObject("vinManufacturer", extractJsonValue(resultJson, "manufacturer"));
+        modelAndView.addObject("vinModelYear", extractJsonValue(resultJson, "model_year"));
+        modelAndView.addObject("vinAssemblyPlant", extractJsonValue(resultJson, "assembly_plant_code"));
+        modelAndView.addObject("vinStatus", extractJsonValue(resultJson, "status"));
+        modelAndView.addObject("vinCheckSuccess", true);
+        return true;
+    }
+
     private String extractJsonValue(String json, String key) {
         // Simple JSON value extractor
         String searchKey = "\"" + key + "\":";
@@ -1,12 +1,16 @@
 package app.web;
 
-import app.advert.model.Advert;
-import app.advert.service.AdvertService;
 import app.bid.model.Bid;
+import app.bid.service.BidEngine;
 import app.bid.service.BidsService;
+import app.exception.AdvertNotFoundException;
+import app.exception.DomainException;
 import app.security.AuthenticationMetadata;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
+import app.user.service.CurrentUserService;
 import app.user.service.UserService;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
@@ -14,23 +18,26 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.ModelAndView;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
+@Slf4j
 @Controller
 @RequestMapping("bids")
 public class BidsController {
 
-    private final AdvertService advertService;
     private final UserService userService;
     private final BidsService bidsService;
+    private final BidEngine bidEngine;
+    private final CurrentUserService currentUserService;
 
     @Autowired
-    public BidsController(AdvertService advertService, UserService userService, BidsService bidsService) {
-        this.advertService = advertService;
+    public BidsController(UserService userService, BidsService bidsService, BidEngine bidEngine,
+                          CurrentUserService currentUserService) {
         this.userService = userService;
         this.bidsService = bidsService;
+        this.bidEngine = bidEngine;
+        this.currentUserService = currentUserService;
     }
 
     @GetMapping("")
@@ -47,7 +54,7 @@ public class BidsController {
     @GetMapping("/{bidId}")
     public ModelAndView getInformationAboutBigPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata,
                                                    @PathVariable UUID bidId) {
-        User user = userService.getById(authenticationMetadata.getUserId());
+        CurrentUserView user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         Bid bid = bidsService.getById(bidId);
         ModelAndView modelAndView = new ModelAndView("bid-info");
         modelAndView.addObject("user", user);
@@ -60,17 +67,14 @@ public class BidsController {
     public String addBid(@PathVariable UUID advertId, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata,
                          @RequestParam("bidPrice") BigDecimal bidPrice,
                          @RequestParam("maxBidPrice") BigDecimal maxBidPrice) {
-        User user = userService.getById(authenticationMetadata.getUserId());
-        Advert advert = advertService.getAdvertById(advertId);
-        Bid createdBid = this.bidsService.createBid(advert, bidPrice, maxBidPrice, user);
-        if (createdBid != null) {
-            LocalDateTime now = LocalDateTime.now();
-            advert.setCurrentBidPrice(createdBid.getBidPrice());
-            advert.setLastBidder(user);
-            advert.setLastBidDate(now);
-            advertService.updateAdvert(advertId, advert);
-            return "redirect:/bids/" + createdBid.getId();
+        try {
+            bidEngine.placeBid(advertId, authenticationMetadata.getUserId(), bidPrice, maxBidPrice);
+        } catch (DomainException e) {
+            log.warn("Bid of user [{}] for advert [{}] was rejected: {}", authenticationMetadata.getUserId(), advertId, e.getMessage());
+            return "redirect:/ads/" + advertId + "/info";
+        } catch (AdvertNotFoundException e) {
+            return "redirect:/ads?error=1";
         }
-        return "redirect:/ads/" + advertId;
+        return "redirect:/bids";
     }
 }
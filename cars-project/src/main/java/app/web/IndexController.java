@@ -1,9 +1,11 @@
 package app.web;
 
-import app.advert.model.Advert;
+import app.advert.model.AdvertCardView;
 import app.advert.service.AdvertService;
 import app.security.AuthenticationMetadata;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
+import app.user.service.CurrentUserService;
 import app.web.dto.RegisterRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,11 +28,13 @@ public class IndexController {
 
     private final UserService userService;
     private final AdvertService advertService;
+    private final CurrentUserService currentUserService;
 
     @Autowired
-    public IndexController(UserService userService, AdvertService advertService) {
+    public IndexController(UserService userService, AdvertService advertService, CurrentUserService currentUserService) {
         this.userService = userService;
         this.advertService = advertService;
+        this.currentUserService = currentUserService;
     }
 
     @GetMapping("")
@@ -38,11 +42,11 @@ public class IndexController {
                                    @RequestParam(required = false) String path) {
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("index");
-        User user = new User();
+        CurrentUserView user = CurrentUserView.anonymous();
         if (authenticationMetadata != null) {
-            user = userService.getById(authenticationMetadata.getUserId());
+            user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         }
-        List<Advert> adverts = advertService.getFirst20VisibleAdverts();
+        List<AdvertCardView> adverts = advertService.getFirst20VisibleAdverts();
         modelAndView.addObject("user", user);
         modelAndView.addObject("adverts", adverts);
         modelAndView.addObject("currentUri", path != null ? path : "/");
@@ -85,9 +89,9 @@ public class IndexController {
     private ModelAndView getModelAndView(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata, String viewName) {
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName(viewName);
-        User user = new User();
+        CurrentUserView user = CurrentUserView.anonymous();
         if (authenticationMetadata != null) {
-            user = userService.getById(authenticationMetadata.getUserId());
+            user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         }
         modelAndView.addObject("user", user);
         modelAndView.addObject("currentUri", "/" + viewName);
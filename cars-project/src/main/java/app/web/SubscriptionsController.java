@@ -37,15 +37,18 @@ public class SubscriptionsController {
     public ModelAndView getSubscriptionsPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("subscriptions");
-        User user = userService.getById(authenticationMetadata.getUserId());
+        User user = userService.getByIdWithSubscriptions(authenticationMetadata.getUserId());
         modelAndView.addObject("user", user);
         modelAndView.addObject("currentUri", "/subscriptions");
+        modelAndView.addObject("idempotencyKey", UUID.randomUUID().toString());
         return modelAndView;
     }
 
     @PostMapping("/change/{planType}")
-    public String changeSubscriptionType(@PathVariable int planType, @RequestParam("period") String period, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
-        User user = userService.getById(authenticationMetadata.getUserId());
+    public String changeSubscriptionType(@PathVariable int planType, @RequestParam("period") String period,
+                                         @RequestParam(name = "idempotencyKey", required = false) String idempotencyKey,
+                                         @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
+        User user = userService.getByIdWithWallets(authenticationMetadata.getUserId());
         SubscriptionPeriod subscriptionPeriod = SubscriptionPeriod.valueOf(period.toUpperCase());
         SubscriptionType subscriptionType = switch (planType) {
             case 1 -> SubscriptionType.PLUS;
@@ -56,13 +59,14 @@ public class SubscriptionsController {
         if (user.getWallets() == null || user.getWallets().isEmpty()) {
             // Create a wallet for the user if they don't have one
             walletId = walletService.initializeFirstWallet(user).getId();
-            user = userService.getById(user.getId()); // Refresh user data
+            user = userService.getByIdWithWallets(user.getId()); // Refresh user data
         } else {
             walletId = user.getWallets().get(0).getId();
         }
         UpgradeRequest upgradeRequest = UpgradeRequest.builder()
                 .subscriptionPeriod(subscriptionPeriod)
                 .walletId(walletId)
+                .idempotencyKey(idempotencyKey)
                 .build();
         Transaction upgradeResult = subscriptionService.upgrade(user, subscriptionType, upgradeRequest);
         return "redirect:/transactions/" + upgradeResult.getId();
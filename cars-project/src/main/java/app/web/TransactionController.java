@@ -2,12 +2,19 @@ package app.web;
 
 import app.security.AuthenticationMetadata;
 import app.transaction.model.Transaction;
+import app.transaction.model.TransactionExportFormat;
 import app.transaction.service.TransactionService;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
+import app.user.service.CurrentUserService;
 import app.user.service.UserService;
 import app.wallet.model.Wallet;
 import app.wallet.service.WalletService;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Window;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -18,7 +25,9 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.ModelAndView;
 import org.springframework.web.servlet.view.RedirectView;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 
@@ -29,30 +38,52 @@ public class TransactionController {
     private final TransactionService transactionService;
     private final UserService userService;
     private final WalletService walletService;
+    private final CurrentUserService currentUserService;
 
     @Autowired
-    public TransactionController(TransactionService transactionService, UserService userService, WalletService walletService) {
+    public TransactionController(TransactionService transactionService, UserService userService, WalletService walletService,
+                                 CurrentUserService currentUserService) {
         this.transactionService = transactionService;
         this.userService = userService;
         this.walletService = walletService;
+        this.currentUserService = currentUserService;
     }
 
     @GetMapping("")
-    public ModelAndView getAllTransactions(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
-        User user = userService.getById(authenticationMetadata.getUserId());
-        List<Transaction> transactions = transactionService.getAllByOwnerId(authenticationMetadata.getUserId());
+    public ModelAndView getAllTransactions(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata,
+                                           @RequestParam(name = "after", required = false) String after) {
+        UUID userId = authenticationMetadata.getUserId();
+        CurrentUserView user = currentUserService.getCurrentUser(userId);
+        Window<Transaction> transactions = transactionService.getHistoryPage(userId, after);
         ModelAndView modelAndView = new ModelAndView("transactions");
-        modelAndView.addObject("transactions", transactions);
+        modelAndView.addObject("transactions", transactions.getContent());
+        modelAndView.addObject("nextCursor", transactionService.getNextCursor(transactions));
+        modelAndView.addObject("totalTransactions", transactionService.countByOwnerId(userId));
+        modelAndView.addObject("firstPage", after == null);
         modelAndView.addObject("user", user);
         modelAndView.addObject("currentUri", "/transactions");
         return modelAndView;
     }
 
+    @GetMapping("/export")
+    public void exportTransactions(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata,
+                                   @RequestParam(name = "format", defaultValue = "CSV") TransactionExportFormat format,
+                                   HttpServletResponse response) throws IOException {
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("transactions." + format.getFileExtension())
+                .build()
+                .toString());
+        // Rows go straight to the response as they are read, the history is never held in memory
+        transactionService.exportByOwnerId(authenticationMetadata.getUserId(), format, response.getWriter());
+    }
+
     @GetMapping("/{id}")
     public ModelAndView getTransactionById(@PathVariable UUID id, @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
         Transaction transaction = transactionService.getById(id);
         UUID userId = authenticationMetadata.getUserId();
-        User user = userService.getById(userId);
+        CurrentUserView user = currentUserService.getCurrentUser(userId);
         ModelAndView modelAndView = new ModelAndView("transaction-result");
         modelAndView.addObject("transaction", transaction);
         modelAndView.addObject("user", user);
@@ -61,15 +92,17 @@ public class TransactionController {
     
     @GetMapping("/top-up")
     public ModelAndView showTopUpPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
-        User user = userService.getById(authenticationMetadata.getUserId());
+        CurrentUserView user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         ModelAndView modelAndView = new ModelAndView("wallet-top-up");
         modelAndView.addObject("user", user);
         modelAndView.addObject("currentUri", "/transactions/top-up");
+        modelAndView.addObject("idempotencyKey", UUID.randomUUID().toString());
         
         // Get the user's first wallet if they have one
-        List<Wallet> wallets = walletService.getAllWalletsByUsername(user.getUsername());
+        List<Wallet> wallets = walletService.getAllWalletsByUsername(user.username());
         if (!wallets.isEmpty()) {
             modelAndView.addObject("wallet", wallets.get(0));
+            modelAndView.addObject("walletBalance", walletService.getBalance(wallets.get(0)));
         }
         
         return modelAndView;
@@ -79,10 +112,11 @@ public class TransactionController {
     public RedirectView processTopUp(
             @AuthenticationPrincipal AuthenticationMetadata authenticationMetadata,
             @RequestParam UUID walletId,
-            @RequestParam BigDecimal amount) {
+            @RequestParam BigDecimal amount,
+            @RequestParam(name = "idempotencyKey", required = false) String idempotencyKey) {
         
-        // Process the top-up
-        Transaction transaction = walletService.topUp(walletId, amount);
+        // Process the top-up, a resubmitted form gets the original transaction back
+        Transaction transaction = walletService.topUp(walletId, amount, idempotencyKey);
         
         // Redirect to the transaction result page
         return new RedirectView("/transactions/" + transaction.getId());
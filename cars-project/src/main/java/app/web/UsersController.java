@@ -3,16 +3,21 @@ package app.web;
 import app.exception.AdvertNotFoundException;
 import app.exception.UsernameNotFoundException;
 import app.security.AuthenticationMetadata;
+import app.user.model.AdminUserRow;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
 import app.user.model.UserRole;
+import app.user.service.CurrentUserService;
 import app.user.service.UserService;
 import app.utils.Utilities;
 import app.vin.client.VinClient;
 import app.vin.model.VinHistory;
+import app.wallet.service.WalletService;
 import app.web.dto.UserEditRequest;
 import app.web.mapper.DtoMapper;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -35,20 +40,26 @@ public class UsersController {
 
     private final UserService userService;
     private final VinClient vinClient;
+    private final CurrentUserService currentUserService;
+    private final WalletService walletService;
 
     @Autowired
-    public UsersController(UserService userService, VinClient vinClient) {
+    public UsersController(UserService userService, VinClient vinClient, CurrentUserService currentUserService,
+                           WalletService walletService) {
         this.userService = userService;
         this.vinClient = vinClient;
+        this.currentUserService = currentUserService;
+        this.walletService = walletService;
     }
 
     @GetMapping ("/my-profile")
     public ModelAndView getProfilePage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
-        User user = userService.getById(authenticationMetadata.getUserId());
+        User user = userService.getByIdWithSubscriptions(authenticationMetadata.getUserId());
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.addObject("user", user);
         modelAndView.addObject("userEditRequest", DtoMapper.mapUserToUserEditRequest(user));
         modelAndView.addObject("currentUri", "/users/my-profile");
+        addWalletBalance(modelAndView, user);
         
         // Fetch VIN check history from microservice - no local fallback
         try {
@@ -122,7 +133,7 @@ public class UsersController {
     
     @GetMapping("/vin-history")
     public ModelAndView getVinHistoryPage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
-        User user = userService.getById(authenticationMetadata.getUserId());
+        CurrentUserView user = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         
         ModelAndView modelAndView = new ModelAndView();
         modelAndView.setViewName("vin-history");
@@ -131,9 +142,9 @@ public class UsersController {
         
         // Use VIN microservice to get history - no local fallback
         try {
-            System.out.println("Requesting VIN history for user in vin-history page: " + user.getId());
+            System.out.println("Requesting VIN history for user in vin-history page: " + user.id());
             
-            ResponseEntity<Object[]> vinHistoryResponse = vinClient.getUserVinHistory(user.getId());
+            ResponseEntity<Object[]> vinHistoryResponse = vinClient.getUserVinHistory(user.id());
             Object[] responseBody = vinHistoryResponse.getBody();
             
             if (responseBody != null) {
@@ -189,10 +200,11 @@ public class UsersController {
     @PutMapping ("/{$userId}/profile")
     public ModelAndView getProfilePage(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata, @Valid UserEditRequest userEditRequest, BindingResult bindingResult) {
         if (bindingResult.hasErrors()) {
-            User user = userService.getById(authenticationMetadata.getUserId());
+            User user = userService.getByIdWithSubscriptions(authenticationMetadata.getUserId());
             ModelAndView modelAndView = new ModelAndView();
             modelAndView.addObject("user", user);
             modelAndView.addObject("userEditRequest", userEditRequest);
+            addWalletBalance(modelAndView, user);
             modelAndView.setViewName("my-profile");
             return modelAndView;
         }
@@ -202,11 +214,17 @@ public class UsersController {
     
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("")
-    public ModelAndView getAllUsers(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata) {
-        List<User> allUsers = userService.getAllUsers();
-        User admin = userService.getById(authenticationMetadata.getUserId());
+    public ModelAndView getAllUsers(@AuthenticationPrincipal AuthenticationMetadata authenticationMetadata,
+                                    @RequestParam(value = "page", defaultValue = "1") int page,
+                                    @RequestParam(value = "search", required = false) String search) {
+        Page<AdminUserRow> users = userService.getAdminUserPage(search, page - 1);
+        CurrentUserView admin = currentUserService.getCurrentUser(authenticationMetadata.getUserId());
         ModelAndView modelAndView = new ModelAndView();
-        modelAndView.addObject("users", allUsers);
+        modelAndView.addObject("users", users.getContent());
+        modelAndView.addObject("currentPage", users.getNumber() + 1);
+        modelAndView.addObject("totalPages", users.getTotalPages());
+        modelAndView.addObject("totalUsers", users.getTotalElements());
+        modelAndView.addObject("search", search);
         modelAndView.addObject("user", admin);
         modelAndView.addObject("currentUri", "/users");
         modelAndView.setViewName("admin/users");
@@ -252,6 +270,12 @@ public class UsersController {
         return new ModelAndView("redirect:/users");
     }
 
+    private void addWalletBalance(ModelAndView modelAndView, User user) {
+        if (!user.getWallets().isEmpty()) {
+            modelAndView.addObject("walletBalance", walletService.getBalance(user.getWallets().get(0)));
+        }
+    }
+
     @ExceptionHandler(UsernameNotFoundException.class)
     public String handleUsernameNotValid() {
         return "redirect:/index?error=1";
@@ -14,4 +14,6 @@ public class UpgradeRequest {
     private SubscriptionPeriod subscriptionPeriod;
 
     private UUID walletId;
+
+    private String idempotencyKey;
 }
@@ -0,0 +1,33 @@
+package app.web.dto;
+
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class VinBatchResult {
+
+    private String vin;
+
+    private UUID id;
+
+    private String status;
+
+    private String manufacturer;
+
+    @JsonProperty("model_year")
+    private String modelYear;
+
+    @JsonProperty("assembly_plant_code")
+    private String assemblyPlantCode;
+}
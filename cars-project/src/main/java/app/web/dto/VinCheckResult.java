@@ -0,0 +1,21 @@
+package app.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VinCheckResult {
+
+    private boolean alreadyChecked;
+
+    private boolean recorded;
+
+    private String status;
+
+    private String resultJson;
+}
@@ -71,7 +71,7 @@ public class DtoMapper {
                 .biddingOpen(Boolean.TRUE.equals(createAdvertRequest.getIsBiddingOpen()))
                 .minBidPrice(createAdvertRequest.getMinBidPrice())
                 .mileage(createAdvertRequest.getMileage())
-                .currentBidPrice(createAdvertRequest.getCurrentBidPrice())
+                .currentBidPrice(existingAdvert.getCurrentBidPrice())
                 .lastBidDate(existingAdvert.getLastBidDate())
                 .lastBidder(existingAdvert.getLastBidder())
                 .owner(existingAdvert.getOwner())
@@ -81,6 +81,7 @@ public class DtoMapper {
                 .winner(createAdvertRequest.getWinner())
                 .vinNumber(createAdvertRequest.getVinNumber())
                 .updatedOn(now)
+                .version(existingAdvert.getVersion())
                 .build();
     }
 
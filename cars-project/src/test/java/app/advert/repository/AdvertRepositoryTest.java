@@ -0,0 +1,99 @@
+package app.advert.repository;
+
+import app.advert.model.Advert;
+import app.advert.model.AdvertCardView;
+import app.advert.model.CarBrand;
+import app.user.model.User;
+import app.user.model.UserRole;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class AdvertRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private AdvertRepository advertRepository;
+
+    @Test
+    @DisplayName("Should select the cards of one owner")
+    void shouldFindCardsByOwnerId() {
+        // Arrange
+        User owner = persistUser("owner");
+        User otherUser = persistUser("other");
+        Advert advert = persistAdvert(owner, "Golf", true, LocalDateTime.now());
+        persistAdvert(otherUser, "Passat", true, LocalDateTime.now());
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<AdvertCardView> cards = advertRepository.findCardsByOwnerId(owner.getId());
+
+        // Assert
+        assertEquals(1, cards.size());
+        AdvertCardView card = cards.get(0);
+        assertEquals(advert.getId(), card.id());
+        assertEquals("Golf", card.advertName());
+        assertEquals(CarBrand.values()[0], card.carBrand());
+        assertEquals(0, BigDecimal.valueOf(15000).compareTo(card.buyNowPrice()));
+        assertEquals(owner.getId(), card.ownerId());
+    }
+
+    @Test
+    @DisplayName("Should select the newest visible cards first")
+    void shouldFindNewestVisibleCards() {
+        // Arrange
+        User owner = persistUser("owner");
+        LocalDateTime now = LocalDateTime.now();
+        persistAdvert(owner, "Older", true, now.minusDays(1));
+        persistAdvert(owner, "Newer", true, now);
+        persistAdvert(owner, "Hidden", false, now.plusDays(1));
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<AdvertCardView> cards = advertRepository.findFirst20CardsByVisibleTrueOrderByCreatedOnDesc();
+
+        // Assert
+        assertEquals(List.of("Newer", "Older"), cards.stream().map(AdvertCardView::advertName).toList());
+    }
+
+    private User persistUser(String username) {
+        LocalDateTime now = LocalDateTime.now();
+        return entityManager.persist(User.builder()
+                .username(username)
+                .password("password")
+                .role(UserRole.USER)
+                .isActive(true)
+                .createdOn(now)
+                .updatedOn(now)
+                .build());
+    }
+
+    private Advert persistAdvert(User owner, String name, boolean visible, LocalDateTime createdOn) {
+        return entityManager.persist(Advert.builder()
+                .advertName(name)
+                .owner(owner)
+                .carBrand(CarBrand.values()[0])
+                .carModel("Model")
+                .buyNowPrice(BigDecimal.valueOf(15000))
+                .mileage(BigDecimal.valueOf(120000))
+                .description("Well kept")
+                .visible(visible)
+                .createdOn(createdOn)
+                .updatedOn(createdOn)
+                .expireDate(createdOn.plusDays(7))
+                .build());
+    }
+}
@@ -0,0 +1,206 @@
+package app.advert.service;
+
+import app.advert.model.AdvertBidState;
+import app.advert.model.CarStatus;
+import app.advert.repository.AdvertRepository;
+import app.exception.AdvertNotFoundException;
+import app.exception.DomainException;
+import app.user.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AdvertBidCommitServiceTest {
+
+    @Mock
+    private AdvertRepository advertRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private SimpleMeterRegistry meterRegistry;
+    private AdvertBidCommitService advertBidCommitService;
+
+    private UUID advertId;
+    private UUID bidderId;
+    private User bidder;
+    private LocalDateTime bidDate;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        advertBidCommitService = new AdvertBidCommitService(advertRepository, entityManager, transactionManager, meterRegistry, 3, 0);
+        advertId = UUID.randomUUID();
+        bidderId = UUID.randomUUID();
+        bidder = User.builder().id(bidderId).build();
+        bidDate = LocalDateTime.now();
+    }
+
+    @Test
+    @DisplayName("Should commit the bid when the advert version is unchanged")
+    void shouldCommitBidWhenVersionMatches() {
+        // Arrange
+        when(advertRepository.findBidStateById(advertId)).thenReturn(Optional.of(bidState(4, BigDecimal.valueOf(1000))));
+        when(entityManager.getReference(User.class, bidderId)).thenReturn(bidder);
+        when(advertRepository.compareAndSetBidState(advertId, 4, BigDecimal.valueOf(1200), bidder, bidDate)).thenReturn(1);
+
+        // Act
+        boolean committed = advertBidCommitService.commitBid(advertId, BigDecimal.valueOf(1200), bidderId, bidDate);
+
+        // Assert
+        assertTrue(committed);
+        assertEquals(0, meterRegistry.counter("bids.commit.conflicts").count());
+    }
+
+    @Test
+    @DisplayName("Should re-read and retry when another writer changed the advert")
+    void shouldRetryOnVersionConflict() {
+        // Arrange
+        when(advertRepository.findBidStateById(advertId))
+                .thenReturn(Optional.of(bidState(4, BigDecimal.valueOf(1000))))
+                .thenReturn(Optional.of(bidState(5, BigDecimal.valueOf(1000))));
+        when(entityManager.getReference(User.class, bidderId)).thenReturn(bidder);
+        when(advertRepository.compareAndSetBidState(advertId, 4, BigDecimal.valueOf(1200), bidder, bidDate)).thenReturn(0);
+        when(advertRepository.compareAndSetBidState(advertId, 5, BigDecimal.valueOf(1200), bidder, bidDate)).thenReturn(1);
+
+        // Act
+        boolean committed = advertBidCommitService.commitBid(advertId, BigDecimal.valueOf(1200), bidderId, bidDate);
+
+        // Assert
+        assertTrue(committed);
+        assertEquals(1, meterRegistry.counter("bids.commit.conflicts").count());
+        assertEquals(1, meterRegistry.counter("bids.commit.retries").count());
+    }
+
+    @Test
+    @DisplayName("Should skip the update when a higher bid is already stored")
+    void shouldSkipWhenHigherBidIsStored() {
+        // Arrange
+        when(advertRepository.findBidStateById(advertId)).thenReturn(Optional.of(bidState(4, BigDecimal.valueOf(1500))));
+
+        // Act
+        boolean committed = advertBidCommitService.commitBid(advertId, BigDecimal.valueOf(1200), bidderId, bidDate);
+
+        // Assert
+        assertFalse(committed);
+        verify(advertRepository, never()).compareAndSetBidState(any(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should skip the update when the advert is sold or hidden")
+    void shouldSkipWhenAdvertNoLongerTakesBids() {
+        // Arrange
+        when(advertRepository.findBidStateById(advertId)).thenReturn(
+                Optional.of(bidState(4, BigDecimal.valueOf(1000), false, CarStatus.SOLD, bidDate.minusMinutes(1))),
+                Optional.of(bidState(4, BigDecimal.valueOf(1000), false, CarStatus.AVAILABLE, LocalDateTime.now().plusDays(1))));
+
+        // Act
+        boolean sold = advertBidCommitService.commitBid(advertId, BigDecimal.valueOf(1200), bidderId, bidDate);
+        boolean hidden = advertBidCommitService.commitBid(advertId, BigDecimal.valueOf(1200), bidderId, bidDate);
+
+        // Assert
+        assertFalse(sold);
+        assertFalse(hidden);
+        verify(advertRepository, never()).compareAndSetBidState(any(), anyLong(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should commit the last bid of an auction that has expired since")
+    void shouldCommitBidOfExpiredAuction() {
+        // Arrange
+        when(advertRepository.findBidStateById(advertId)).thenReturn(
+                Optional.of(bidState(4, BigDecimal.valueOf(1000), false, CarStatus.AVAILABLE, LocalDateTime.now().minusSeconds(1))));
+        when(entityManager.getReference(User.class, bidderId)).thenReturn(bidder);
+        when(advertRepository.compareAndSetBidState(advertId, 4L, BigDecimal.valueOf(1200), bidder, bidDate)).thenReturn(1);
+
+        // Act
+        boolean committed = advertBidCommitService.commitBid(advertId, BigDecimal.valueOf(1200), bidderId, bidDate);
+
+        // Assert
+        assertTrue(committed);
+    }
+
+    @Test
+    @DisplayName("Should give up after the maximum number of attempts")
+    void shouldGiveUpAfterMaxAttempts() {
+        // Arrange
+        when(advertRepository.findBidStateById(advertId)).thenReturn(Optional.of(bidState(4, null)));
+        when(entityManager.getReference(User.class, bidderId)).thenReturn(bidder);
+        when(advertRepository.compareAndSetBidState(eq(advertId), eq(4L), any(), any(), any())).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(DomainException.class, () -> advertBidCommitService.commitBid(advertId, BigDecimal.valueOf(1200), bidderId, bidDate));
+        verify(advertRepository, times(3)).compareAndSetBidState(eq(advertId), eq(4L), any(), any(), any());
+        assertEquals(1, meterRegistry.counter("bids.commit.failures").count());
+        assertEquals(2, meterRegistry.counter("bids.commit.retries").count());
+    }
+
+    @Test
+    @DisplayName("Should throw when the advert does not exist")
+    void shouldThrowWhenAdvertDoesNotExist() {
+        when(advertRepository.findBidStateById(advertId)).thenReturn(Optional.empty());
+
+        assertThrows(AdvertNotFoundException.class, () -> advertBidCommitService.commitBid(advertId, BigDecimal.TEN, bidderId, bidDate));
+    }
+
+    private static AdvertBidState bidState(long version, BigDecimal currentBidPrice) {
+        return bidState(version, currentBidPrice, true, CarStatus.AVAILABLE, LocalDateTime.now().plusDays(1));
+    }
+
+    private static AdvertBidState bidState(long version, BigDecimal currentBidPrice, boolean visible, CarStatus carStatus,
+                                           LocalDateTime expireDate) {
+        return new AdvertBidState() {
+            @Override
+            public long getVersion() {
+                return version;
+            }
+
+            @Override
+            public BigDecimal getCurrentBidPrice() {
+                return currentBidPrice;
+            }
+
+            @Override
+            public Boolean getVisible() {
+                return visible;
+            }
+
+            @Override
+            public CarStatus getCarStatus() {
+                return carStatus;
+            }
+
+            @Override
+            public LocalDateTime getExpireDate() {
+                return expireDate;
+            }
+        };
+    }
+}
@@ -0,0 +1,113 @@
+package app.advert.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdvertExpiryWheelTest {
+
+    private static final long START = 1_700_000_000L;
+
+    private AdvertExpiryWheel wheel;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new AdvertExpiryWheel(START, ZoneOffset.UTC);
+    }
+
+    @Test
+    @DisplayName("Should fire every advert exactly at its second across all levels")
+    void shouldFireAtDeadlineAcrossLevels() {
+        // Arrange
+        long[] offsets = {1, 63, 64, 65, 4095, 4096, 4097, 100_000, AdvertExpiryWheel.HORIZON_SECONDS - 1};
+        List<UUID> advertIds = new ArrayList<>();
+        for (long offset : offsets) {
+            UUID advertId = UUID.randomUUID();
+            advertIds.add(advertId);
+            assertTrue(wheel.schedule(advertId, START + offset));
+        }
+
+        // Act & Assert
+        for (int i = 0; i < offsets.length; i++) {
+            long previousOffset = i == 0 ? 0 : offsets[i - 1];
+            assertTrue(wheel.advanceTo(START + offsets[i] - 1).isEmpty(),
+                    "Nothing may fire between %d and %d".formatted(previousOffset, offsets[i] - 1));
+            assertEquals(List.of(advertIds.get(i)), wheel.advanceTo(START + offsets[i]));
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should fire all adverts sharing a second in one tick")
+    void shouldFireAdvertsSharingSecondTogether() {
+        // Arrange
+        for (int i = 0; i < 5000; i++) {
+            wheel.schedule(UUID.randomUUID(), START + 3600);
+        }
+
+        // Act
+        List<UUID> due = wheel.advanceTo(START + 3600);
+
+        // Assert
+        assertEquals(5000, due.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should fire a rescheduled advert only at its new deadline and never a cancelled one")
+    void shouldHonourRescheduleAndCancel() {
+        // Arrange
+        UUID moved = UUID.randomUUID();
+        UUID cancelled = UUID.randomUUID();
+        wheel.schedule(moved, START + 10);
+        wheel.schedule(cancelled, START + 10);
+        wheel.schedule(moved, START + 5000);
+        wheel.cancel(cancelled);
+
+        // Act & Assert
+        assertTrue(wheel.advanceTo(START + 4999).isEmpty());
+        assertEquals(List.of(moved), wheel.advanceTo(START + 5000));
+    }
+
+    @Test
+    @DisplayName("Should hand out overdue adverts on the next tick and refuse deadlines past the horizon")
+    void shouldHandleOverdueAndFarDeadlines() {
+        // Arrange
+        UUID overdue = UUID.randomUUID();
+        UUID far = UUID.randomUUID();
+
+        // Act
+        wheel.schedule(overdue, START - 600);
+        boolean held = wheel.schedule(far, START + AdvertExpiryWheel.HORIZON_SECONDS);
+
+        // Assert
+        assertFalse(held);
+        assertEquals(List.of(overdue), wheel.advanceTo(START));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should round expire dates up to the next second and survive a long pause")
+    void shouldRoundUpAndCatchUpAfterPause() {
+        // Arrange
+        UUID advertId = UUID.randomUUID();
+        UUID later = UUID.randomUUID();
+        LocalDateTime expireDate = LocalDateTime.ofEpochSecond(START + 30, 500_000_000, ZoneOffset.UTC);
+        wheel.schedule(advertId, expireDate);
+        wheel.schedule(later, START + AdvertExpiryWheel.HORIZON_SECONDS - 1);
+
+        // Act & Assert
+        assertTrue(wheel.advanceTo(expireDate.withNano(0)).isEmpty());
+        assertEquals(List.of(advertId), wheel.advanceTo(expireDate.withNano(0).plusSeconds(1)));
+        assertEquals(Set.of(later), Set.copyOf(wheel.advanceTo(START + 2 * AdvertExpiryWheel.HORIZON_SECONDS)));
+    }
+}
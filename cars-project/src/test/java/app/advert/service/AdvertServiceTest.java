@@ -1,11 +1,14 @@
 package app.advert.service;
 
 import app.advert.model.Advert;
+import app.advert.model.AdvertCardView;
+import app.advert.model.AdvertExpiry;
 import app.advert.model.CarBrand;
 import app.advert.model.CarStatus;
 import app.advert.model.FuelType;
 import app.advert.model.GearboxType;
 import app.advert.repository.AdvertRepository;
+import app.bid.service.BidEngine;
 import app.exception.AdvertNotFoundException;
 import app.user.model.User;
 import app.user.model.UserRole;
@@ -21,13 +24,16 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -35,9 +41,13 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -47,6 +57,15 @@ class AdvertServiceTest {
     @Mock
     private AdvertRepository advertRepository;
 
+    @Mock
+    private BidEngine bidEngine;
+
+    @Mock
+    private AdvertViewCounter advertViewCounter;
+
+    @Mock
+    private AdvertExpiryWheel advertExpiryWheel;
+
     @InjectMocks
     private AdvertService advertService;
 
@@ -55,6 +74,7 @@ class AdvertServiceTest {
 
     private User testUser;
     private Advert testAdvert;
+    private AdvertCardView testCard;
     private CreateNewAdvertRequest createRequest;
     private UUID testId;
 
@@ -92,6 +112,8 @@ class AdvertServiceTest {
                 .updatedOn(LocalDateTime.now())
                 .expireDate(LocalDateTime.now().plusDays(30))
                 .build();
+        testCard = new AdvertCardView(testId, "Test Car", CarBrand.BMW, "X5", null, "Test Description",
+                BigDecimal.valueOf(25000), 2020, true, null, CarStatus.AVAILABLE, LocalDateTime.of(2025, 3, 1, 12, 0), testUser.getId());
 
         createRequest = new CreateNewAdvertRequest();
         createRequest.setAdvertName("Test Car");
@@ -141,15 +163,15 @@ class AdvertServiceTest {
     void shouldGetAdvertsByOwnerId() {
         // Arrange
         UUID ownerId = UUID.randomUUID();
-        List<Advert> expectedAdverts = Collections.singletonList(testAdvert);
-        when(advertRepository.findAdvertByOwnerId(ownerId)).thenReturn(expectedAdverts);
+        List<AdvertCardView> expectedAdverts = Collections.singletonList(testCard);
+        when(advertRepository.findCardsByOwnerId(ownerId)).thenReturn(expectedAdverts);
 
         // Act
-        List<Advert> result = advertService.getAdvertsByOwnerId(ownerId);
+        List<AdvertCardView> result = advertService.getAdvertsByOwnerId(ownerId);
 
         // Assert
         assertEquals(expectedAdverts, result);
-        verify(advertRepository).findAdvertByOwnerId(ownerId);
+        verify(advertRepository).findCardsByOwnerId(ownerId);
     }
 
     @Test
@@ -157,15 +179,15 @@ class AdvertServiceTest {
     void shouldGetAdvertsByWinnerId() {
         // Arrange
         UUID winnerId = UUID.randomUUID();
-        List<Advert> expectedAdverts = Collections.singletonList(testAdvert);
-        when(advertRepository.findAdvertByWinnerId(winnerId)).thenReturn(expectedAdverts);
+        List<AdvertCardView> expectedAdverts = Collections.singletonList(testCard);
+        when(advertRepository.findCardsByWinnerId(winnerId)).thenReturn(expectedAdverts);
 
         // Act
-        List<Advert> result = advertService.getAdvertsByWinnerId(winnerId);
+        List<AdvertCardView> result = advertService.getAdvertsByWinnerId(winnerId);
 
         // Assert
         assertEquals(expectedAdverts, result);
-        verify(advertRepository).findAdvertByWinnerId(winnerId);
+        verify(advertRepository).findCardsByWinnerId(winnerId);
     }
 
     @Test
@@ -178,15 +200,15 @@ class AdvertServiceTest {
         Sort sort = Sort.by(sortField).ascending();
         Pageable pageable = PageRequest.of(page, 20, sort);
         
-        List<Advert> expectedAdverts = Collections.singletonList(testAdvert);
-        when(advertRepository.findByVisible(true, pageable)).thenReturn(expectedAdverts);
+        List<AdvertCardView> expectedAdverts = Collections.singletonList(testCard);
+        when(advertRepository.findCardsByVisible(true, pageable)).thenReturn(expectedAdverts);
 
         // Act
-        List<Advert> result = advertService.getAllShownAdvertsByPage(page, sortType, sortField);
+        List<AdvertCardView> result = advertService.getAllShownAdvertsByPage(page, sortType, sortField);
 
         // Assert
         assertEquals(expectedAdverts, result);
-        verify(advertRepository).findByVisible(true, pageable);
+        verify(advertRepository).findCardsByVisible(true, pageable);
     }
 
     @Test
@@ -199,15 +221,60 @@ class AdvertServiceTest {
         Sort sort = Sort.by(sortField).descending();
         Pageable pageable = PageRequest.of(page, 20, sort);
         
-        List<Advert> expectedAdverts = Collections.singletonList(testAdvert);
-        when(advertRepository.findByVisible(true, pageable)).thenReturn(expectedAdverts);
+        List<AdvertCardView> expectedAdverts = Collections.singletonList(testCard);
+        when(advertRepository.findCardsByVisible(true, pageable)).thenReturn(expectedAdverts);
 
         // Act
-        List<Advert> result = advertService.getAllShownAdvertsByPage(page, sortType, sortField);
+        List<AdvertCardView> result = advertService.getAllShownAdvertsByPage(page, sortType, sortField);
 
         // Assert
         assertEquals(expectedAdverts, result);
-        verify(advertRepository).findByVisible(true, pageable);
+        verify(advertRepository).findCardsByVisible(true, pageable);
+    }
+
+    @Test
+    @DisplayName("Should seek past the cursor with the id as tie breaker")
+    void shouldSeekPastCursor() {
+        // Arrange
+        String cursor = AdvertCursor.encode(testCard, "createdOn");
+        Sort sort = Sort.by(Sort.Direction.DESC, "createdOn", "id");
+        when(advertRepository.findFirst20CardsByVisibleTrue(any(ScrollPosition.class), eq(sort)))
+                .thenReturn(Window.from(List.of(testCard), ScrollPosition::offset));
+
+        // Act
+        List<AdvertCardView> result = advertService.getShownAdvertsPage(3, cursor, "DESC", "createdOn");
+
+        // Assert
+        assertEquals(List.of(testCard), result);
+        verify(advertRepository).findFirst20CardsByVisibleTrue(
+                eq(ScrollPosition.forward(Map.of("createdOn", testCard.createdOn(), "id", testId))), eq(sort));
+        verify(advertRepository, never()).findCardsByVisible(eq(true), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Should fall back to offset paging for an invalid cursor")
+    void shouldFallBackToOffsetPagingForInvalidCursor() {
+        // Arrange
+        Pageable pageable = PageRequest.of(3, 20, Sort.by("createdOn").descending());
+        when(advertRepository.findCardsByVisible(true, pageable)).thenReturn(List.of(testCard));
+
+        // Act
+        List<AdvertCardView> result = advertService.getShownAdvertsPage(3, "not-a-cursor", "DESC", "createdOn");
+
+        // Assert
+        assertEquals(List.of(testCard), result);
+    }
+
+    @Test
+    @DisplayName("Should only hand out a next cursor for a full page")
+    void shouldOnlyHandOutNextCursorForFullPage() {
+        // Arrange
+        List<AdvertCardView> fullPage = Collections.nCopies(20, testCard);
+
+        // Act & Assert
+        assertNotNull(advertService.getNextCursor(fullPage, "createdOn"));
+        assertNull(advertService.getNextCursor(List.of(testCard), "createdOn"));
+        assertNull(advertService.getNextCursor(fullPage, "mileage"));
     }
 
     @Test
@@ -227,18 +294,14 @@ class AdvertServiceTest {
     @DisplayName("Should get advert count")
     void shouldGetAdvertCount() {
         // Arrange
-        List<Advert> adverts = new ArrayList<>();
-        for (int i = 0; i < 5; i++) {
-            adverts.add(testAdvert);
-        }
-        
-        when(advertRepository.findByVisible(eq(true), any(Pageable.class))).thenReturn(adverts);
+        when(advertRepository.countByVisibleTrue()).thenReturn(5L);
 
         // Act
         int count = advertService.getAdvertCount();
 
         // Assert
         assertEquals(5, count);
+        verify(advertRepository, never()).findCardsByVisible(eq(true), any(Pageable.class));
     }
 
     @Test
@@ -335,58 +398,117 @@ class AdvertServiceTest {
         assertNotNull(capturedAdvert.getUpdatedOn());
     }
 
+    @Test
+    @DisplayName("Should keep stored bid state and view count when updating advert")
+    void shouldKeepBidStateAndViewCountWhenUpdatingAdvert() {
+        // Arrange
+        User lastBidder = User.builder().id(UUID.randomUUID()).build();
+        testAdvert.setCurrentBidPrice(BigDecimal.valueOf(18000));
+        testAdvert.setLastBidder(lastBidder);
+        testAdvert.setViewCount(42);
+        Advert staleAdvert = Advert.builder()
+                .advertName("Updated Car")
+                .currentBidPrice(BigDecimal.valueOf(16000))
+                .viewCount(3)
+                .version(7)
+                .build();
+        when(advertRepository.findById(testId)).thenReturn(Optional.of(testAdvert));
+
+        // Act
+        advertService.updateAdvert(testId, staleAdvert);
+
+        // Assert
+        verify(advertRepository).save(advertCaptor.capture());
+        Advert capturedAdvert = advertCaptor.getValue();
+        assertEquals(BigDecimal.valueOf(18000), capturedAdvert.getCurrentBidPrice());
+        assertEquals(lastBidder, capturedAdvert.getLastBidder());
+        assertEquals(42, capturedAdvert.getViewCount());
+        assertEquals(7, capturedAdvert.getVersion());
+    }
+
+    @Test
+    @DisplayName("Should buffer view count increments without saving the advert")
+    void shouldIncrementViewCount() {
+        // Arrange
+        when(advertViewCounter.getPendingViews(testId)).thenReturn(3L);
+
+        // Act
+        long pendingViews = advertService.incrementViewCount(testId);
+
+        // Assert
+        assertEquals(3L, pendingViews);
+        verify(advertViewCounter).increment(testId);
+        verify(advertRepository, never()).save(any(Advert.class));
+    }
+
     @Test
     @DisplayName("Should get first 20 visible adverts")
     void shouldGetFirst20VisibleAdverts() {
         // Arrange
-        List<Advert> visibleAdverts = new ArrayList<>();
-        for (int i = 0; i < 25; i++) {
-            Advert advert = Advert.builder()
-                    .id(UUID.randomUUID())
-                    .advertName("Test " + i)
-                    .visible(true)
-                    .build();
-            visibleAdverts.add(advert);
-        }
-        
-        when(advertRepository.findByVisibleTrue()).thenReturn(visibleAdverts);
+        List<AdvertCardView> visibleAdverts = Collections.nCopies(20, testCard);
+        when(advertRepository.findFirst20CardsByVisibleTrueOrderByCreatedOnDesc()).thenReturn(visibleAdverts);
 
         // Act
-        List<Advert> result = advertService.getFirst20VisibleAdverts();
+        List<AdvertCardView> result = advertService.getFirst20VisibleAdverts();
 
         // Assert
         assertEquals(20, result.size());
     }
 
     @Test
-    @DisplayName("Should get all expired adverts")
-    void shouldGetAllExpiredAdverts() {
+    @DisplayName("Should put the upcoming expiries on the expiry wheel")
+    void shouldLoadUpcomingExpiries() {
         // Arrange
-        List<Advert> expiredAdverts = Collections.singletonList(testAdvert);
-        when(advertRepository.findByExpireDate(any(LocalDateTime.class))).thenReturn(expiredAdverts);
+        LocalDateTime expireDate = LocalDateTime.now().plusHours(1);
+        AdvertExpiry expiry = mock(AdvertExpiry.class);
+        when(expiry.getId()).thenReturn(testId);
+        when(expiry.getExpireDate()).thenReturn(expireDate);
+        when(advertRepository.findExpiriesByVisibleTrueAndExpireDateBefore(any(LocalDateTime.class))).thenReturn(List.of(expiry));
 
         // Act
-        List<Advert> result = advertService.getAllExpiredAdverts();
+        int loaded = advertService.loadUpcomingExpiries(LocalDateTime.now().plusHours(24));
 
         // Assert
-        assertEquals(expiredAdverts, result);
-        verify(advertRepository).findByExpireDate(any(LocalDateTime.class));
+        assertEquals(1, loaded);
+        verify(advertExpiryWheel).schedule(testId, expireDate);
     }
 
     @Test
-    @DisplayName("Should expire advert")
-    void shouldExpireAdvert() {
+    @DisplayName("Should expire due adverts with bulk updates and evict their order books")
+    void shouldExpireDueAdvertsInBulk() {
         // Arrange
-        when(advertRepository.save(any(Advert.class))).thenAnswer(invocation -> invocation.getArgument(0));
-        
+        List<UUID> dueAdverts = new ArrayList<>();
+        for (int i = 0; i < 1500; i++) {
+            dueAdverts.add(UUID.randomUUID());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        when(advertRepository.expireVisible(any(), eq(now))).thenReturn(1000, 500);
+
         // Act
-        advertService.expireAdvert(testAdvert);
+        int expired = advertService.expireAdverts(dueAdverts, now);
 
         // Assert
-        verify(advertRepository).save(advertCaptor.capture());
-        Advert capturedAdvert = advertCaptor.getValue();
-        
-        assertFalse(capturedAdvert.getVisible());
-        assertNotNull(capturedAdvert.getUpdatedOn());
+        assertEquals(1500, expired);
+        verify(advertRepository, times(2)).expireVisible(any(), eq(now));
+        verify(bidEngine, times(1500)).evictOrderBook(any(UUID.class));
+        verify(advertRepository, never()).save(any(Advert.class));
+    }
+
+    @Test
+    @DisplayName("Should reschedule the expiry of an updated advert and drop it once hidden")
+    void shouldRescheduleExpiryOnUpdate() {
+        // Arrange
+        testAdvert.setVisible(true);
+        when(advertRepository.findById(testId)).thenReturn(Optional.of(testAdvert));
+        Advert changes = Advert.builder().visible(true).expireDate(LocalDateTime.now().plusDays(2)).build();
+        Advert hidden = Advert.builder().visible(false).expireDate(LocalDateTime.now().plusDays(2)).build();
+
+        // Act
+        advertService.updateAdvert(testId, changes);
+        advertService.updateAdvert(testId, hidden);
+
+        // Assert
+        verify(advertExpiryWheel).schedule(testId, changes.getExpireDate());
+        verify(advertExpiryWheel).cancel(testId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,119 @@
+package app.advert.service;
+
+import app.advert.repository.AdvertRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AdvertViewCounterTest {
+
+    @Mock
+    private AdvertRepository advertRepository;
+
+    @InjectMocks
+    private AdvertViewCounter advertViewCounter;
+
+    private UUID firstAdvertId;
+    private UUID secondAdvertId;
+
+    @BeforeEach
+    void setUp() {
+        firstAdvertId = UUID.randomUUID();
+        secondAdvertId = UUID.randomUUID();
+    }
+
+    @Test
+    @DisplayName("Should group adverts with the same delta into one update")
+    void shouldGroupAdvertsBySameDelta() {
+        // Arrange
+        advertViewCounter.increment(firstAdvertId);
+        advertViewCounter.increment(secondAdvertId);
+
+        // Act
+        advertViewCounter.flush();
+
+        // Assert
+        verify(advertRepository, times(1)).addViewCount(eq(1),
+                argThat(ids -> ids.size() == 2 && ids.containsAll(List.of(firstAdvertId, secondAdvertId))));
+        assertEquals(0, advertViewCounter.getPendingViews(firstAdvertId));
+    }
+
+    @Test
+    @DisplayName("Should not write anything when there are no new views")
+    void shouldNotWriteWithoutNewViews() {
+        // Arrange
+        advertViewCounter.increment(firstAdvertId);
+        advertViewCounter.flush();
+
+        // Act
+        advertViewCounter.flush();
+
+        // Assert
+        verify(advertRepository, times(1)).addViewCount(anyInt(), anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should stop tracking adverts that were not viewed since the last flush")
+    void shouldDropIdleAdverts() {
+        // Arrange
+        advertViewCounter.increment(firstAdvertId);
+        advertViewCounter.increment(secondAdvertId);
+        advertViewCounter.flush();
+        advertViewCounter.increment(secondAdvertId);
+
+        // Act
+        advertViewCounter.flush();
+
+        // Assert
+        Map<UUID, ?> pendingViews = (Map<UUID, ?>) ReflectionTestUtils.getField(advertViewCounter, "pendingViews");
+        assertEquals(Set.of(secondAdvertId), pendingViews.keySet());
+    }
+
+    @Test
+    @DisplayName("Should keep the views pending when flushing fails")
+    void shouldKeepViewsWhenFlushFails() {
+        // Arrange
+        advertViewCounter.increment(firstAdvertId);
+        advertViewCounter.increment(firstAdvertId);
+        when(advertRepository.addViewCount(eq(2), anyCollection())).thenThrow(new RuntimeException("db down"));
+
+        // Act
+        advertViewCounter.flush();
+
+        // Assert
+        assertEquals(2, advertViewCounter.getPendingViews(firstAdvertId));
+    }
+
+    @Test
+    @DisplayName("Should flush pending views on shutdown")
+    void shouldFlushOnShutdown() {
+        // Arrange
+        advertViewCounter.increment(firstAdvertId);
+
+        // Act
+        advertViewCounter.shutdown();
+
+        // Assert
+        verify(advertRepository).addViewCount(eq(1), eq(List.of(firstAdvertId)));
+    }
+}
@@ -0,0 +1,326 @@
+package app.bid.service;
+
+import app.advert.model.Advert;
+import app.advert.repository.AdvertRepository;
+import app.advert.service.AdvertBidCommitService;
+import app.bid.model.PlacedBid;
+import app.bid.model.ProxyResolution;
+import app.bid.model.BidOrderBook;
+import app.exception.AdvertNotFoundException;
+import app.exception.DomainException;
+import app.user.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BidEngineTest {
+
+    @Mock
+    private AdvertRepository advertRepository;
+
+    @Mock
+    private BidsService bidsService;
+
+    @Mock
+    private AdvertBidCommitService advertBidCommitService;
+
+    private BidEngine bidEngine;
+
+    private UUID advertId;
+    private UUID ownerId;
+
+    @BeforeEach
+    void setUp() {
+        advertId = UUID.randomUUID();
+        ownerId = UUID.randomUUID();
+        bidEngine = new BidEngine(advertRepository, bidsService, advertBidCommitService, new ProxyBidResolver(BigDecimal.valueOf(50)), 2000, 500);
+
+        Advert advert = Advert.builder()
+                .id(advertId)
+                .owner(User.builder().id(ownerId).build())
+                .biddingOpen(true)
+                .minBidPrice(BigDecimal.valueOf(1000))
+                .expireDate(LocalDateTime.now().plusDays(1))
+                .build();
+        lenient().when(advertRepository.findById(advertId)).thenReturn(Optional.of(advert));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        bidEngine.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should accept a valid bid and load the advert only once")
+    void shouldAcceptValidBidAndLoadAdvertOnce() {
+        // Act
+        PlacedBid first = bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1000), null);
+        PlacedBid second = bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1100), BigDecimal.valueOf(1500));
+
+        // Assert
+        assertEquals(BigDecimal.valueOf(1000), first.maxBidPrice());
+        assertEquals(BigDecimal.valueOf(1500), second.maxBidPrice());
+        verify(advertRepository, times(1)).findById(advertId);
+    }
+
+    @Test
+    @DisplayName("Should reject bids below the minimum or current price")
+    void shouldRejectBidsBelowMinimumOrCurrentPrice() {
+        // Arrange
+        bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1200), null);
+
+        // Act & Assert
+        assertThrows(DomainException.class, () -> bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(900), null));
+        assertThrows(DomainException.class, () -> bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1200), null));
+    }
+
+    @Test
+    @DisplayName("Should reject bids from the advert owner")
+    void shouldRejectBidsFromOwner() {
+        assertThrows(DomainException.class, () -> bidEngine.placeBid(advertId, ownerId, BigDecimal.valueOf(5000), null));
+    }
+
+    @Test
+    @DisplayName("Should throw when the advert does not exist")
+    void shouldThrowWhenAdvertDoesNotExist() {
+        UUID unknownId = UUID.randomUUID();
+        when(advertRepository.findById(unknownId)).thenReturn(Optional.empty());
+
+        assertThrows(AdvertNotFoundException.class, () -> bidEngine.placeBid(unknownId, UUID.randomUUID(), BigDecimal.TEN, null));
+    }
+
+    @Test
+    @DisplayName("Should serialize concurrent bids so every accepted bid raises the price")
+    void shouldSerializeConcurrentBids() throws InterruptedException {
+        // Arrange
+        int bidders = 50;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch done = new CountDownLatch(bidders);
+        AtomicInteger accepted = new AtomicInteger();
+
+        // Act
+        for (int i = 0; i < bidders; i++) {
+            BigDecimal price = BigDecimal.valueOf(1000 + i * 10L);
+            pool.execute(() -> {
+                try {
+                    bidEngine.placeBid(advertId, UUID.randomUUID(), price, null);
+                    accepted.incrementAndGet();
+                } catch (DomainException ignored) {
+                    // outbid by a concurrent bidder
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        pool.shutdown();
+        bidEngine.flushAcceptedBids();
+
+        // Assert
+        ArgumentCaptor<List<PlacedBid>> batches = ArgumentCaptor.forClass(List.class);
+        verify(bidsService).saveAcceptedBids(batches.capture());
+        List<PlacedBid> persisted = new ArrayList<>(batches.getValue());
+        assertEquals(accepted.get(), persisted.size());
+        for (int i = 1; i < persisted.size(); i++) {
+            assertTrue(persisted.get(i).bidPrice().compareTo(persisted.get(i - 1).bidPrice()) > 0);
+        }
+    }
+
+    @Test
+    @DisplayName("Should save the bids of a failed batch one by one")
+    void shouldSaveFailedBatchOneByOne() {
+        // Arrange
+        bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1000), null);
+        doThrow(new RuntimeException("db down")).doNothing().when(bidsService).saveAcceptedBids(anyList());
+
+        // Act
+        bidEngine.flushAcceptedBids();
+        bidEngine.flushAcceptedBids();
+
+        // Assert
+        verify(bidsService, times(2)).saveAcceptedBids(anyList());
+        verify(advertBidCommitService, times(1)).commitBid(eq(advertId), eq(BigDecimal.valueOf(1000)), any(UUID.class), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Should drop a bid that cannot be saved without holding back the bids after it")
+    void shouldDropBidThatCannotBeSaved() {
+        // Arrange
+        UUID brokenBidder = UUID.randomUUID();
+        UUID lastBidder = UUID.randomUUID();
+        bidEngine.placeBid(advertId, brokenBidder, BigDecimal.valueOf(1000), null);
+        bidEngine.placeBid(advertId, lastBidder, BigDecimal.valueOf(1100), null);
+        doThrow(new RuntimeException("constraint violation")).when(bidsService).saveAcceptedBids(argThat(bids ->
+                bids.stream().anyMatch(bid -> bid.bidderId().equals(brokenBidder))));
+
+        // Act
+        bidEngine.flushAcceptedBids();
+        bidEngine.flushAcceptedBids();
+
+        // Assert
+        // The batch, then each of its two bids, and nothing is left for the second flush
+        verify(bidsService, times(3)).saveAcceptedBids(anyList());
+        verify(advertBidCommitService).commitBid(eq(advertId), eq(BigDecimal.valueOf(1100)), eq(lastBidder), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Should replay bids that are not committed yet when an evicted book is reloaded")
+    void shouldReplayUncommittedBidsAfterEviction() {
+        // Arrange
+        bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1200), null);
+
+        // Act
+        bidEngine.evictOrderBook(advertId);
+
+        // Assert
+        assertThrows(DomainException.class, () -> bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1100), null));
+        bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1300), null);
+        verify(advertRepository, times(2)).findById(advertId);
+    }
+
+    @Test
+    @DisplayName("Should never accept a bid whose caller already timed out")
+    void shouldSkipBidAfterCallerTimedOut() throws Exception {
+        // Arrange
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ProxyBidResolver slowResolver = new ProxyBidResolver(BigDecimal.valueOf(50)) {
+            @Override
+            public ProxyResolution resolve(BidOrderBook book, UUID bidderId, BigDecimal bidPrice, BigDecimal maxBidPrice) {
+                if (bidPrice.compareTo(BigDecimal.valueOf(1000)) == 0) {
+                    writerBusy.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.resolve(book, bidderId, bidPrice, maxBidPrice);
+            }
+        };
+        bidEngine.shutdown();
+        bidEngine = new BidEngine(advertRepository, bidsService, advertBidCommitService, slowResolver, 100, 500);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<PlacedBid> first = pool.submit(() -> bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1000), null));
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+
+        // Act
+        assertThrows(DomainException.class, () -> bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1100), null));
+        release.countDown();
+        PlacedBid accepted = first.get(5, TimeUnit.SECONDS);
+        pool.shutdown();
+        bidEngine.flushAcceptedBids();
+
+        // Assert
+        // The first caller waited past its timeout as well, but its bid was already being decided
+        ArgumentCaptor<List<PlacedBid>> batches = ArgumentCaptor.forClass(List.class);
+        verify(bidsService).saveAcceptedBids(batches.capture());
+        assertEquals(List.of(accepted), batches.getValue());
+    }
+
+    @Test
+    @DisplayName("Should evict a book inside a transaction only once it commits")
+    void shouldEvictAfterCommit() {
+        // Arrange
+        bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1000), null);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            bidEngine.evictOrderBook(advertId);
+            bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1100), null);
+            verify(advertRepository, times(1)).findById(advertId);
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1200), null);
+
+        // Assert
+        verify(advertRepository, times(2)).findById(advertId);
+    }
+
+    @Test
+    @DisplayName("Should reload a book that was evicted while the advert was being read")
+    void shouldDiscardBookEvictedWhileLoading() {
+        // Arrange
+        Advert reserved = Advert.builder()
+                .id(advertId)
+                .owner(User.builder().id(ownerId).build())
+                .biddingOpen(false)
+                .expireDate(LocalDateTime.now().plusDays(1))
+                .build();
+        Advert stale = advertRepository.findById(advertId).orElseThrow();
+        when(advertRepository.findById(advertId)).thenAnswer(invocation -> {
+            // The reservation commits and evicts between the read and the install of the book
+            bidEngine.evictOrderBook(advertId);
+            return Optional.of(stale);
+        }).thenReturn(Optional.of(reserved));
+
+        // Act & Assert
+        assertThrows(DomainException.class, () -> bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1000), null));
+        verify(advertRepository, times(3)).findById(advertId);
+    }
+
+    @Test
+    @DisplayName("Should let an existing proxy outbid a lower manual bid in one resolution")
+    void shouldLetExistingProxyOutbidLowerManualBid() {
+        // Arrange
+        UUID proxyBidder = UUID.randomUUID();
+        bidEngine.placeBid(advertId, proxyBidder, BigDecimal.valueOf(1000), BigDecimal.valueOf(2000));
+
+        // Act
+        bidEngine.placeBid(advertId, UUID.randomUUID(), BigDecimal.valueOf(1200), BigDecimal.valueOf(1500));
+        bidEngine.flushAcceptedBids();
+
+        // Assert
+        ArgumentCaptor<List<PlacedBid>> batches = ArgumentCaptor.forClass(List.class);
+        verify(bidsService).saveAcceptedBids(batches.capture());
+        PlacedBid last = batches.getValue().get(batches.getValue().size() - 1);
+        assertEquals(proxyBidder, last.bidderId());
+        assertEquals(BigDecimal.valueOf(1550), last.bidPrice());
+        verify(advertBidCommitService).commitBid(eq(advertId), eq(BigDecimal.valueOf(1550)), eq(proxyBidder), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("Should not persist anything when no bids were accepted")
+    void shouldNotPersistWhenNothingAccepted() {
+        bidEngine.flushAcceptedBids();
+
+        verify(bidsService, never()).saveAcceptedBids(anyList());
+    }
+}
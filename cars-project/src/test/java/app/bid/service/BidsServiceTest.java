@@ -4,10 +4,12 @@ import app.advert.model.Advert;
 import app.advert.model.CarBrand;
 import app.advert.model.CarStatus;
 import app.bid.model.Bid;
+import app.bid.model.PlacedBid;
 import app.bid.repository.BidsRepository;
 import app.exception.DomainException;
 import app.user.model.User;
 import app.user.model.UserRole;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -29,6 +31,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -38,12 +41,18 @@ class BidsServiceTest {
     @Mock
     private BidsRepository bidsRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
     @InjectMocks
     private BidsService bidsService;
 
     @Captor
     private ArgumentCaptor<Bid> bidCaptor;
 
+    @Captor
+    private ArgumentCaptor<List<Bid>> bidsCaptor;
+
     private User testUser;
     private Advert testAdvert;
     private Bid testBid;
@@ -164,4 +173,41 @@ class BidsServiceTest {
         assertEquals(expectedBids, result);
         verify(bidsRepository).findAllByAdvertIdAndBidder(testAdvertId, testUser);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should save a created bid only once")
+    void shouldSaveCreatedBidOnlyOnce() {
+        // Arrange
+        when(bidsRepository.save(any(Bid.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Bid result = bidsService.createBid(testAdvert, BigDecimal.valueOf(16000), BigDecimal.valueOf(18000), testUser);
+
+        // Assert
+        verify(bidsRepository, times(1)).save(any(Bid.class));
+        assertEquals(testAdvert, result.getAdvert());
+    }
+
+    @Test
+    @DisplayName("Should persist accepted bids in one batch")
+    void shouldPersistAcceptedBidsInOneBatch() {
+        // Arrange
+        UUID secondBidderId = UUID.randomUUID();
+        LocalDateTime now = LocalDateTime.now();
+        User secondBidder = User.builder().id(secondBidderId).build();
+        PlacedBid first = new PlacedBid(testAdvertId, testUser.getId(), BigDecimal.valueOf(16000), BigDecimal.valueOf(16000), now);
+        PlacedBid second = new PlacedBid(testAdvertId, secondBidderId, BigDecimal.valueOf(17000), BigDecimal.valueOf(19000), now.plusSeconds(1));
+        when(entityManager.getReference(Advert.class, testAdvertId)).thenReturn(testAdvert);
+        when(entityManager.getReference(User.class, testUser.getId())).thenReturn(testUser);
+        when(entityManager.getReference(User.class, secondBidderId)).thenReturn(secondBidder);
+
+        // Act
+        bidsService.saveAcceptedBids(List.of(first, second));
+
+        // Assert
+        verify(bidsRepository).saveAll(bidsCaptor.capture());
+        assertEquals(2, bidsCaptor.getValue().size());
+        assertEquals(secondBidder, bidsCaptor.getValue().get(1).getBidder());
+        assertTrue(bidsCaptor.getValue().get(1).getIsAccepted());
+    }
+}
@@ -0,0 +1,74 @@
+package app.bid.service;
+
+import app.bid.model.BidOrderBook;
+import app.bid.model.ProxyResolution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ProxyBidResolverTest {
+
+    private ProxyBidResolver proxyBidResolver;
+    private BidOrderBook book;
+
+    @BeforeEach
+    void setUp() {
+        proxyBidResolver = new ProxyBidResolver(BigDecimal.valueOf(50));
+        book = new BidOrderBook(UUID.randomUUID(), UUID.randomUUID(), BigDecimal.valueOf(1000), true,
+                LocalDateTime.now().plusDays(1), null, null, null);
+    }
+
+    @Test
+    @DisplayName("Should keep the manual price when there is no competing proxy")
+    void shouldKeepManualPriceWithoutCompetition() {
+        // Arrange
+        UUID bidder = UUID.randomUUID();
+
+        // Act
+        ProxyResolution resolution = proxyBidResolver.resolve(book, bidder, BigDecimal.valueOf(1000), BigDecimal.valueOf(3000));
+
+        // Assert
+        assertEquals(bidder, resolution.leaderId());
+        assertEquals(BigDecimal.valueOf(1000), resolution.price());
+        assertEquals(BigDecimal.valueOf(3000), resolution.leaderMaxBidPrice());
+    }
+
+    @Test
+    @DisplayName("Should price the leader one increment above the runner-up")
+    void shouldPriceLeaderOneIncrementAboveRunnerUp() {
+        // Arrange
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        proxyBidResolver.resolve(book, first, BigDecimal.valueOf(1000), BigDecimal.valueOf(1800));
+
+        // Act
+        ProxyResolution resolution = proxyBidResolver.resolve(book, second, BigDecimal.valueOf(1100), BigDecimal.valueOf(2500));
+
+        // Assert
+        assertEquals(second, resolution.leaderId());
+        assertEquals(BigDecimal.valueOf(1850), resolution.price());
+        assertFalse(book.getProxyMaxByBidder().containsKey(first));
+    }
+
+    @Test
+    @DisplayName("Should cap the price at the leader max and keep the earlier proxy on a tie")
+    void shouldCapPriceAndPreferEarlierProxyOnTie() {
+        // Arrange
+        UUID first = UUID.randomUUID();
+        proxyBidResolver.resolve(book, first, BigDecimal.valueOf(1000), BigDecimal.valueOf(2000));
+
+        // Act
+        ProxyResolution resolution = proxyBidResolver.resolve(book, UUID.randomUUID(), BigDecimal.valueOf(1500), BigDecimal.valueOf(2000));
+
+        // Assert
+        assertEquals(first, resolution.leaderId());
+        assertEquals(BigDecimal.valueOf(2000), resolution.price());
+    }
+}
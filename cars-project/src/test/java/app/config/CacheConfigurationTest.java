@@ -0,0 +1,61 @@
+package app.config;
+
+import app.transaction.service.TransactionService;
+import app.user.service.CurrentUserService;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CacheConfigurationTest {
+
+    private final CacheManager cacheManager = new CacheConfiguration()
+            .cacheManager("maximumSize=10,recordStats", 100, 10, 30, 5, 100, 100, 1);
+
+    @Test
+    @DisplayName("Should register every cache used by the services up front")
+    void shouldRegisterKnownCaches() {
+        assertTrue(cacheManager.getCacheNames().containsAll(List.of("users", "visibleAdvertCount", CurrentUserService.CACHE_NAME,
+                TransactionService.IDEMPOTENCY_CACHE_NAME)));
+    }
+
+    @Test
+    @DisplayName("Should bound the users cache by the number of users it holds")
+    void shouldBoundUsersCacheByWeight() {
+        // Arrange
+        Cache<Object, Object> users = ((CaffeineCache) cacheManager.getCache("users")).getNativeCache();
+
+        // Act
+        users.put("all", Collections.nCopies(101, "user"));
+        users.cleanUp();
+
+        // Assert
+        assertEquals(0, users.estimatedSize());
+    }
+
+    @Test
+    @DisplayName("Should record hits and misses for the metrics endpoint")
+    void shouldRecordStats() {
+        // Arrange
+        org.springframework.cache.Cache currentUser = cacheManager.getCache(CurrentUserService.CACHE_NAME);
+        UUID userId = UUID.randomUUID();
+
+        // Act
+        currentUser.get(userId);
+        currentUser.put(userId, "view");
+        currentUser.get(userId);
+
+        // Assert
+        Cache<Object, Object> nativeCache = ((CaffeineCache) currentUser).getNativeCache();
+        assertEquals(1, nativeCache.stats().hitCount());
+        assertEquals(1, nativeCache.stats().missCount());
+    }
+}
@@ -0,0 +1,132 @@
+package app.config;
+
+import app.vin.client.VinClientBulkhead;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VinClientConfigurationTest {
+
+    private final VinClientConfiguration configuration = new VinClientConfiguration();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HttpServer vinService;
+    private ExecutorService vinServiceExecutor;
+    private String baseUrl;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private VinClientBulkhead bulkhead;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        vinService = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        vinService.createContext("/vin-svc/api/v1/get-vin", exchange -> respond(exchange, 600, "{}"));
+        vinService.createContext("/vin-svc/api/v1/save-vin-check", exchange -> respond(exchange, 400, "{}"));
+        vinService.createContext("/vin-svc/api/v1/has-checked-vin", exchange -> respond(exchange, 0, "true"));
+        vinService.createContext("/vin-svc/api/v1/save-vin-checks", exchange -> respond(exchange, 1400, "{}"));
+        vinServiceExecutor = Executors.newCachedThreadPool();
+        vinService.setExecutor(vinServiceExecutor);
+        vinService.start();
+        baseUrl = "http://localhost:" + vinService.getAddress().getPort() + "/vin-svc/api/v1";
+
+        connectionManager = configuration.vinConnectionManager(meterRegistry, 4, 500, 30);
+        httpClient = configuration.vinHttpClient(connectionManager, 30);
+        bulkhead = configuration.vinClientBulkhead(meterRegistry, 4, 50);
+        restTemplate = configuration.vinRestTemplate(new RestTemplateBuilder(), httpClient, bulkhead, 250, 200, 1000, 2000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.close();
+        vinService.stop(0);
+        vinServiceExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should give up on a lookup once its response timeout passes")
+    void shouldTimeOutSlowLookup() {
+        assertThrows(ResourceAccessException.class, () -> restTemplate.getForEntity(baseUrl + "/get-vin?vin=X", String.class));
+    }
+
+    @Test
+    @DisplayName("Should give writes the longer write timeout")
+    void shouldAllowSlowerWrites() {
+        // Act
+        String body = restTemplate.postForObject(baseUrl + "/save-vin-check", "{}", String.class);
+
+        // Assert
+        assertEquals("{}", body);
+    }
+
+    @Test
+    @DisplayName("Should give the batch endpoint its own longer timeout")
+    void shouldAllowSlowerBatches() {
+        // Act
+        String body = restTemplate.postForObject(baseUrl + "/save-vin-checks", "{}", String.class);
+
+        // Assert
+        assertEquals("{}", body);
+    }
+
+    @Test
+    @DisplayName("Should hold the bulkhead permit while the response body is read")
+    void shouldHoldPermitWhileBodyIsRead() {
+        // Act
+        Integer activeWhileReading = restTemplate.execute(baseUrl + "/has-checked-vin", HttpMethod.GET, null, response -> {
+            response.getBody().readAllBytes();
+            return bulkhead.getActiveCalls();
+        });
+
+        // Assert
+        assertEquals(1, activeWhileReading);
+        assertEquals(0, bulkhead.getActiveCalls());
+    }
+
+    @Test
+    @DisplayName("Should reuse pooled connections and publish the pool metrics")
+    void shouldReusePooledConnections() {
+        // Act
+        for (int i = 0; i < 5; i++) {
+            assertEquals("true", restTemplate.getForObject(baseUrl + "/has-checked-vin", String.class));
+        }
+
+        // Assert
+        assertEquals(1, connectionManager.getTotalStats().getAvailable());
+        assertEquals(4, meterRegistry.get("httpcomponents.httpclient.pool.total.max").gauge().value());
+    }
+
+    private static void respond(HttpExchange exchange, long delayMs, String body) throws IOException {
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
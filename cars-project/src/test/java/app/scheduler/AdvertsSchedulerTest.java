@@ -1,23 +1,25 @@
 package app.scheduler;
 
-import app.advert.model.Advert;
 import app.advert.service.AdvertService;
+import app.exception.DomainException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
-import java.util.ArrayList;
+import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
-import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -27,55 +29,63 @@ class AdvertsSchedulerTest {
     @Mock
     private AdvertService advertService;
 
-    @InjectMocks
     private AdvertsScheduler advertsScheduler;
 
-    private List<Advert> expiredAdverts;
-
     @BeforeEach
     void setUp() {
-        expiredAdverts = new ArrayList<>();
-        
-        Advert advert1 = Advert.builder()
-                .id(UUID.randomUUID())
-                .advertName("Expired Car 1")
-                .build();
-                
-        Advert advert2 = Advert.builder()
-                .id(UUID.randomUUID())
-                .advertName("Expired Car 2")
-                .build();
-                
-        expiredAdverts.add(advert1);
-        expiredAdverts.add(advert2);
+        advertsScheduler = new AdvertsScheduler(advertService, 24);
     }
 
     @Test
-    @DisplayName("Should expire all expired adverts")
-    void shouldExpireAllExpiredAdverts() {
+    @DisplayName("Should expire all due adverts in one call")
+    void shouldExpireAllDueAdverts() {
         // Arrange
-        when(advertService.getAllExpiredAdverts()).thenReturn(expiredAdverts);
+        List<UUID> dueAdverts = List.of(UUID.randomUUID(), UUID.randomUUID());
+        when(advertService.getDueExpiries(any(LocalDateTime.class))).thenReturn(dueAdverts);
 
         // Act
         advertsScheduler.expireAdverts();
 
         // Assert
-        verify(advertService).getAllExpiredAdverts();
-        verify(advertService, times(1)).expireAdvert(expiredAdverts.get(0));
-        verify(advertService, times(1)).expireAdvert(expiredAdverts.get(1));
+        verify(advertService).expireAdverts(eq(dueAdverts), any(LocalDateTime.class));
     }
 
     @Test
-    @DisplayName("Should not expire any adverts when none are expired")
-    void shouldNotExpireAnyAdvertsWhenNoneAreExpired() {
+    @DisplayName("Should not touch the database when no advert is due")
+    void shouldNotExpireAnyAdvertsWhenNoneAreDue() {
         // Arrange
-        when(advertService.getAllExpiredAdverts()).thenReturn(Collections.emptyList());
+        when(advertService.getDueExpiries(any(LocalDateTime.class))).thenReturn(Collections.emptyList());
 
         // Act
         advertsScheduler.expireAdverts();
 
         // Assert
-        verify(advertService).getAllExpiredAdverts();
-        verify(advertService, never()).expireAdvert(any(Advert.class));
+        verify(advertService, never()).expireAdverts(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should keep ticking when expiring a batch fails")
+    void shouldSurviveFailedExpiry() {
+        // Arrange
+        when(advertService.getDueExpiries(any(LocalDateTime.class))).thenReturn(List.of(UUID.randomUUID()));
+        when(advertService.expireAdverts(any(), any())).thenThrow(new DomainException("Database is down"));
+
+        // Act & Assert
+        assertDoesNotThrow(() -> advertsScheduler.expireAdverts());
+    }
+
+    @Test
+    @DisplayName("Should load the expiries within the horizon")
+    void shouldLoadExpiriesWithinHorizon() {
+        // Arrange
+        ArgumentCaptor<LocalDateTime> until = ArgumentCaptor.forClass(LocalDateTime.class);
+
+        // Act
+        advertsScheduler.loadUpcomingExpiries();
+
+        // Assert
+        verify(advertService).loadUpcomingExpiries(until.capture());
+        assertTrue(until.getValue().isAfter(LocalDateTime.now().plusHours(23)));
+        assertTrue(until.getValue().isBefore(LocalDateTime.now().plusHours(25)));
     }
-}
\ No newline at end of file
+}
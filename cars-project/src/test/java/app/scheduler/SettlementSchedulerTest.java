@@ -0,0 +1,132 @@
+package app.scheduler;
+
+import app.exception.DomainException;
+import app.settlement.model.Settlement;
+import app.settlement.model.SettlementCandidate;
+import app.settlement.service.SettlementService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SettlementSchedulerTest {
+
+    @Mock
+    private SettlementService settlementService;
+
+    private SettlementScheduler settlementScheduler;
+
+    @BeforeEach
+    void setUp() {
+        settlementScheduler = new SettlementScheduler(settlementService, 2, 2, 5000);
+    }
+
+    @Test
+    @DisplayName("Should settle batches until no closed auction is left")
+    void shouldSettleBatchesUntilNothingIsLeft() {
+        // Arrange
+        List<SettlementCandidate> first = List.of(candidate(), candidate());
+        List<SettlementCandidate> second = List.of(candidate());
+        when(settlementService.getPendingSettlements(any(LocalDateTime.class), eq(2))).thenReturn(first, second, List.of());
+        when(settlementService.settleBatch(first)).thenReturn(List.of(new Settlement(), new Settlement()));
+        when(settlementService.settleBatch(second)).thenReturn(List.of(new Settlement()));
+
+        // Act
+        settlementScheduler.settleClosedAuctions();
+
+        // Assert
+        verify(settlementService, times(3)).getPendingSettlements(any(LocalDateTime.class), eq(2));
+        verify(settlementService, times(2)).settleBatch(any());
+    }
+
+    @Test
+    @DisplayName("Should settle a fetched batch in chunks that each commit on their own")
+    void shouldSettleBatchInChunks() {
+        // Arrange
+        settlementScheduler = new SettlementScheduler(settlementService, 3, 1, 5000);
+        SettlementCandidate first = candidate();
+        SettlementCandidate second = candidate();
+        SettlementCandidate third = candidate();
+        when(settlementService.getPendingSettlements(any(LocalDateTime.class), eq(3)))
+                .thenReturn(List.of(first, second, third), List.of());
+        when(settlementService.settleBatch(any())).thenReturn(List.of(new Settlement()));
+
+        // Act
+        settlementScheduler.settleClosedAuctions();
+
+        // Assert
+        verify(settlementService).settleBatch(List.of(first));
+        verify(settlementService).settleBatch(List.of(second));
+        verify(settlementService).settleBatch(List.of(third));
+    }
+
+    @Test
+    @DisplayName("Should only settle auctions that expired before the grace period")
+    void shouldLeaveGracePeriodForLastBids() {
+        // Arrange
+        when(settlementService.getPendingSettlements(any(LocalDateTime.class), eq(2))).thenReturn(List.of());
+        LocalDateTime before = LocalDateTime.now();
+
+        // Act
+        settlementScheduler.settleClosedAuctions();
+
+        // Assert
+        verify(settlementService).getPendingSettlements(argThat(closedBy -> !closedBy.isBefore(before.minusSeconds(5))
+                && !closedBy.isAfter(LocalDateTime.now().minusSeconds(5))), eq(2));
+    }
+
+    @Test
+    @DisplayName("Should settle a failed batch one by one and record the broken settlement as failed")
+    void shouldIsolateBrokenSettlement() {
+        // Arrange
+        SettlementCandidate good = candidate();
+        SettlementCandidate broken = candidate();
+        List<SettlementCandidate> batch = List.of(good, broken);
+        when(settlementService.getPendingSettlements(any(LocalDateTime.class), anyInt())).thenReturn(batch, List.of());
+        when(settlementService.settleBatch(batch)).thenThrow(new DomainException("Cannot transfer between wallets"));
+        when(settlementService.settleBatch(List.of(good))).thenReturn(List.of(new Settlement()));
+        when(settlementService.settleBatch(List.of(broken))).thenThrow(new DomainException("Cannot transfer between wallets"));
+
+        // Act
+        settlementScheduler.settleClosedAuctions();
+
+        // Assert
+        verify(settlementService).recordFailure(broken, "Cannot transfer between wallets");
+        verify(settlementService, never()).recordFailure(eq(good), anyString());
+    }
+
+    @Test
+    @DisplayName("Should stop the run when nothing of a batch could be recorded")
+    void shouldStopWhenNothingIsRecorded() {
+        // Arrange
+        SettlementCandidate broken = candidate();
+        when(settlementService.getPendingSettlements(any(LocalDateTime.class), anyInt())).thenReturn(List.of(broken));
+        when(settlementService.settleBatch(any())).thenThrow(new DomainException("Database is down"));
+        when(settlementService.recordFailure(any(), any())).thenThrow(new DomainException("Database is down"));
+
+        // Act
+        settlementScheduler.settleClosedAuctions();
+
+        // Assert
+        verify(settlementService, times(1)).getPendingSettlements(any(LocalDateTime.class), anyInt());
+    }
+
+    private SettlementCandidate candidate() {
+        return new SettlementCandidate(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), "seller", BigDecimal.TEN);
+    }
+}
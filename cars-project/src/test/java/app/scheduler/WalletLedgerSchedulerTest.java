@@ -0,0 +1,62 @@
+package app.scheduler;
+
+import app.wallet.service.LedgerService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class WalletLedgerSchedulerTest {
+
+    @Mock
+    private LedgerService ledgerService;
+
+    private WalletLedgerScheduler walletLedgerScheduler;
+
+    @BeforeEach
+    void setUp() {
+        walletLedgerScheduler = new WalletLedgerScheduler(ledgerService, 60);
+    }
+
+    @Test
+    @DisplayName("Should only snapshot postings older than the configured lag")
+    void shouldSnapshotBalancesBehindLag() {
+        // Arrange
+        when(ledgerService.snapshotBalances(any(LocalDateTime.class))).thenReturn(3);
+        LocalDateTime before = LocalDateTime.now();
+
+        // Act
+        walletLedgerScheduler.snapshotBalances();
+
+        // Assert
+        ArgumentCaptor<LocalDateTime> cutoff = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(ledgerService).snapshotBalances(cutoff.capture());
+        assertFalse(cutoff.getValue().isAfter(before.minusSeconds(59)));
+    }
+
+    @Test
+    @DisplayName("Should scan the last day of postings for unbalanced entries")
+    void shouldReconcileLastDay() {
+        // Arrange
+        when(ledgerService.findUnbalancedJournalEntries(any(LocalDateTime.class))).thenReturn(List.of(UUID.randomUUID()));
+
+        // Act
+        walletLedgerScheduler.reconcile();
+
+        // Assert
+        verify(ledgerService).findUnbalancedJournalEntries(any(LocalDateTime.class));
+    }
+}
@@ -0,0 +1,184 @@
+package app.settlement.service;
+
+import app.advert.model.Advert;
+import app.advert.repository.AdvertRepository;
+import app.settlement.model.Settlement;
+import app.settlement.model.SettlementCandidate;
+import app.settlement.model.SettlementStatus;
+import app.settlement.repository.SettlementRepository;
+import app.transaction.model.Transaction;
+import app.transaction.model.TransactionStatus;
+import app.user.model.User;
+import app.wallet.model.Wallet;
+import app.wallet.model.WalletStatus;
+import app.wallet.service.WalletLocks;
+import app.wallet.service.WalletService;
+import app.web.dto.TransferRequest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SettlementServiceTest {
+
+    @Mock
+    private SettlementRepository settlementRepository;
+
+    @Mock
+    private AdvertRepository advertRepository;
+
+    @Mock
+    private WalletService walletService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private WalletLocks walletLocks = new WalletLocks(16, 1000);
+
+    @InjectMocks
+    private SettlementService settlementService;
+
+    private User buyer;
+    private User seller;
+    private Wallet buyerWallet;
+    private Wallet sellerWallet;
+
+    @BeforeEach
+    void setUp() {
+        buyer = User.builder().id(UUID.randomUUID()).username("buyer").build();
+        seller = User.builder().id(UUID.randomUUID()).username("seller").build();
+        LocalDateTime now = LocalDateTime.now();
+        buyerWallet = Wallet.builder().id(UUID.randomUUID()).owner(buyer).status(WalletStatus.ACTIVE).createdOn(now).build();
+        sellerWallet = Wallet.builder().id(UUID.randomUUID()).owner(seller).status(WalletStatus.ACTIVE).createdOn(now).build();
+        lenient().when(entityManager.getReference(eq(Advert.class), any())).thenAnswer(invocation -> Advert.builder().id(invocation.getArgument(1)).build());
+        lenient().when(entityManager.getReference(eq(User.class), any())).thenAnswer(invocation -> User.builder().id(invocation.getArgument(1)).build());
+    }
+
+    @Test
+    @DisplayName("Should settle a batch with one wallet query, lock its wallets up front and mark the adverts sold")
+    void shouldSettleBatchAndMarkAdvertsSold() {
+        // Arrange
+        SettlementCandidate first = new SettlementCandidate(UUID.randomUUID(), buyer.getId(), seller.getId(), "seller", new BigDecimal("1200.00"));
+        SettlementCandidate second = new SettlementCandidate(UUID.randomUUID(), buyer.getId(), seller.getId(), "seller", new BigDecimal("800.00"));
+        when(walletService.getActiveWalletsByOwnerIds(any())).thenReturn(List.of(buyerWallet, sellerWallet));
+        when(walletService.transferFunds(eq(buyer), any(TransferRequest.class)))
+                .thenReturn(Transaction.builder().status(TransactionStatus.SUCCEEDED).build());
+
+        // Act
+        List<Settlement> settlements = settlementService.settleBatch(List.of(first, second));
+
+        // Assert
+        assertEquals(2, settlements.size());
+        assertTrue(settlements.stream().allMatch(settlement -> settlement.getStatus() == SettlementStatus.SETTLED));
+        verify(walletService, times(1)).getActiveWalletsByOwnerIds(any());
+        ArgumentCaptor<UUID[]> locked = ArgumentCaptor.forClass(UUID[].class);
+        verify(walletLocks).withLocks(any(), locked.capture());
+        assertEquals(Set.of(buyerWallet.getId(), sellerWallet.getId()), Set.of(locked.getValue()));
+        verify(settlementRepository).saveAll(settlements);
+        verify(advertRepository).assignLastBidderAsWinner(List.of(first.advertId(), second.advertId()));
+        verify(advertRepository).markSold(eq(List.of(first.advertId(), second.advertId())), any(LocalDateTime.class));
+
+        ArgumentCaptor<TransferRequest> transfers = ArgumentCaptor.forClass(TransferRequest.class);
+        verify(walletService, times(2)).transferFunds(eq(buyer), transfers.capture());
+        TransferRequest transfer = transfers.getAllValues().get(0);
+        assertEquals(buyerWallet.getId(), transfer.getFromWalletId());
+        assertEquals("seller", transfer.getToUsername());
+        assertEquals("settlement-" + first.advertId(), transfer.getIdempotencyKey());
+    }
+
+    @Test
+    @DisplayName("Should only lock the paying wallet of a buyer")
+    void shouldLockOnlyPayingWalletOfBuyer() {
+        // Arrange
+        Wallet spareWallet = Wallet.builder().id(UUID.randomUUID()).owner(buyer).status(WalletStatus.ACTIVE)
+                .createdOn(buyerWallet.getCreatedOn().plusDays(1)).build();
+        SettlementCandidate candidate = new SettlementCandidate(UUID.randomUUID(), buyer.getId(), seller.getId(), "seller", BigDecimal.TEN);
+        when(walletService.getActiveWalletsByOwnerIds(any())).thenReturn(List.of(spareWallet, buyerWallet, sellerWallet));
+        when(walletService.transferFunds(eq(buyer), any(TransferRequest.class)))
+                .thenReturn(Transaction.builder().status(TransactionStatus.SUCCEEDED).build());
+
+        // Act
+        settlementService.settleBatch(List.of(candidate));
+
+        // Assert
+        ArgumentCaptor<UUID[]> locked = ArgumentCaptor.forClass(UUID[].class);
+        verify(walletLocks).withLocks(any(), locked.capture());
+        assertEquals(Set.of(buyerWallet.getId(), sellerWallet.getId()), Set.of(locked.getValue()));
+    }
+
+    @Test
+    @DisplayName("Should record failed settlements without selling the advert")
+    void shouldRecordFailedSettlements() {
+        // Arrange
+        User walletless = User.builder().id(UUID.randomUUID()).build();
+        SettlementCandidate broke = new SettlementCandidate(UUID.randomUUID(), buyer.getId(), seller.getId(), "seller", new BigDecimal("1200.00"));
+        SettlementCandidate noWallet = new SettlementCandidate(UUID.randomUUID(), walletless.getId(), seller.getId(), "seller", BigDecimal.TEN);
+        when(walletService.getActiveWalletsByOwnerIds(any())).thenReturn(List.of(buyerWallet, sellerWallet));
+        when(walletService.transferFunds(eq(buyer), any(TransferRequest.class)))
+                .thenReturn(Transaction.builder().status(TransactionStatus.FAILED).failureReason("Insufficient balance").build());
+
+        // Act
+        List<Settlement> settlements = settlementService.settleBatch(List.of(broke, noWallet));
+
+        // Assert
+        assertEquals(SettlementStatus.FAILED, settlements.get(0).getStatus());
+        assertEquals("Insufficient balance", settlements.get(0).getFailureReason());
+        assertNotNull(settlements.get(0).getTransaction());
+        assertEquals(SettlementStatus.FAILED, settlements.get(1).getStatus());
+        assertEquals("Buyer has no active wallet", settlements.get(1).getFailureReason());
+        verify(walletService, times(1)).transferFunds(any(), any());
+        verify(settlementRepository).saveAll(settlements);
+        verifyNoInteractions(advertRepository);
+    }
+
+    @Test
+    @DisplayName("Should fail a reserved advert without a buy now price instead of charging the buyer")
+    void shouldFailSettlementWithoutPrice() {
+        // Arrange
+        SettlementCandidate unpriced = new SettlementCandidate(UUID.randomUUID(), buyer.getId(), seller.getId(), "seller", null);
+        when(walletService.getActiveWalletsByOwnerIds(any())).thenReturn(List.of(buyerWallet, sellerWallet));
+
+        // Act
+        List<Settlement> settlements = settlementService.settleBatch(List.of(unpriced));
+
+        // Assert
+        assertEquals(SettlementStatus.FAILED, settlements.get(0).getStatus());
+        assertEquals("Reserved advert has no buy now price", settlements.get(0).getFailureReason());
+        assertEquals(BigDecimal.ZERO, settlements.get(0).getAmount());
+        verify(walletService, never()).transferFunds(any(), any());
+        verifyNoInteractions(advertRepository);
+    }
+
+    @Test
+    @DisplayName("Should cut long failure reasons to the column size")
+    void shouldTruncateRecordedFailureReason() {
+        // Arrange
+        SettlementCandidate candidate = new SettlementCandidate(UUID.randomUUID(), buyer.getId(), seller.getId(), "seller", BigDecimal.TEN);
+        when(settlementRepository.save(any(Settlement.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        Settlement settlement = settlementService.recordFailure(candidate, "x".repeat(400));
+
+        // Assert
+        assertEquals(SettlementStatus.FAILED, settlement.getStatus());
+        assertEquals(255, settlement.getFailureReason().length());
+    }
+}
@@ -138,7 +138,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any()))
                 .thenReturn(testTransaction);
         when(subscriptionRepository.save(any(Subscription.class))).thenReturn(testSubscription);
 
@@ -149,9 +149,33 @@ public class SubscriptionServiceTest {
         assertNotNull(result);
         assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
         verify(subscriptionRepository, times(2)).save(any(Subscription.class));
-        verify(walletService).charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString());
+        verify(walletService).charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any());
     }
     
+    @Test
+    @DisplayName("Should not apply a resubmitted upgrade a second time")
+    void shouldNotApplyReplayedUpgradeAgain() {
+        // Arrange
+        UpgradeRequest upgradeRequest = UpgradeRequest.builder()
+                .walletId(testWalletId)
+                .subscriptionPeriod(SubscriptionPeriod.MONTHLY)
+                .idempotencyKey("form-key")
+                .build();
+        testTransaction.setReplayed(true);
+
+        when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
+                .thenReturn(Optional.of(testSubscription));
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), eq("form-key")))
+                .thenReturn(testTransaction);
+
+        // Act
+        Transaction result = subscriptionService.upgrade(testUser, SubscriptionType.PLUS, upgradeRequest);
+
+        // Assert
+        assertSame(testTransaction, result);
+        verify(subscriptionRepository, never()).save(any(Subscription.class));
+    }
+
     @Test
     @DisplayName("Should upgrade subscription to PROFESSIONAL MONTHLY")
     void shouldUpgradeSubscriptionToProfessionalMonthly() {
@@ -163,7 +187,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any()))
                 .thenReturn(testTransaction);
         when(subscriptionRepository.save(any(Subscription.class))).thenReturn(testSubscription);
 
@@ -174,7 +198,7 @@ public class SubscriptionServiceTest {
         assertNotNull(result);
         assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
         verify(subscriptionRepository, times(2)).save(any(Subscription.class));
-        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("49.99")), anyString());
+        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("49.99")), anyString(), any());
     }
     
     @Test
@@ -188,7 +212,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any()))
                 .thenReturn(testTransaction);
         when(subscriptionRepository.save(any(Subscription.class))).thenReturn(testSubscription);
 
@@ -199,7 +223,7 @@ public class SubscriptionServiceTest {
         assertNotNull(result);
         assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
         verify(subscriptionRepository, times(2)).save(any(Subscription.class));
-        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("9.99")), anyString());
+        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("9.99")), anyString(), any());
     }
     
     @Test
@@ -213,7 +237,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any()))
                 .thenReturn(testTransaction);
         when(subscriptionRepository.save(any(Subscription.class))).thenReturn(testSubscription);
 
@@ -224,7 +248,7 @@ public class SubscriptionServiceTest {
         assertNotNull(result);
         assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
         verify(subscriptionRepository, times(2)).save(any(Subscription.class));
-        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("19.99")), anyString());
+        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("19.99")), anyString(), any());
     }
     
     @Test
@@ -238,7 +262,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any()))
                 .thenReturn(testTransaction);
         when(subscriptionRepository.save(any(Subscription.class))).thenReturn(testSubscription);
 
@@ -249,7 +273,7 @@ public class SubscriptionServiceTest {
         assertNotNull(result);
         assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
         verify(subscriptionRepository, times(2)).save(any(Subscription.class));
-        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("299.99")), anyString());
+        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("299.99")), anyString(), any());
     }
     
     @Test
@@ -263,7 +287,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any()))
                 .thenReturn(testTransaction);
         when(subscriptionRepository.save(any(Subscription.class))).thenReturn(testSubscription);
 
@@ -274,7 +298,7 @@ public class SubscriptionServiceTest {
         assertNotNull(result);
         assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
         verify(subscriptionRepository, times(2)).save(any(Subscription.class));
-        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("599.99")), anyString());
+        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(new BigDecimal("599.99")), anyString(), any());
     }
 
     @Test
@@ -313,7 +337,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any()))
                 .thenReturn(failedTransaction);
 
         // Act
@@ -425,7 +449,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), eq(BigDecimal.ZERO), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), eq(BigDecimal.ZERO), anyString(), any()))
                 .thenReturn(testTransaction);
         when(subscriptionRepository.save(any(Subscription.class))).thenReturn(testSubscription);
 
@@ -435,7 +459,7 @@ public class SubscriptionServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
-        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(BigDecimal.ZERO), anyString());
+        verify(walletService).charge(eq(testUser), eq(testWalletId), eq(BigDecimal.ZERO), anyString(), any());
     }
     
     @Test
@@ -451,7 +475,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any()))
                 .thenReturn(testTransaction);
         
         // Use argument captor to capture the saved Subscription
@@ -488,7 +512,7 @@ public class SubscriptionServiceTest {
 
         when(subscriptionRepository.findByStatusAndOwnerId(SubscriptionStatus.ACTIVE, testUserId))
                 .thenReturn(Optional.of(testSubscription));
-        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString()))
+        when(walletService.charge(eq(testUser), eq(testWalletId), any(BigDecimal.class), anyString(), any()))
                 .thenReturn(testTransaction);
         
         // Use argument captor to capture the saved Subscription
@@ -0,0 +1,135 @@
+package app.transaction.repository;
+
+import app.transaction.model.Transaction;
+import app.transaction.model.TransactionStatus;
+import app.transaction.model.TransactionType;
+import app.user.model.User;
+import app.user.model.UserRole;
+import app.wallet.model.Wallet;
+import app.wallet.model.WalletStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class TransactionRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Test
+    @DisplayName("Should select only transactions whose own side names a wallet of their owner")
+    void shouldFindBackfillChunk() {
+        // Arrange
+        User owner = persistUser("owner");
+        User otherUser = persistUser("other");
+        Wallet wallet = persistWallet(owner);
+        Wallet otherWallet = persistWallet(otherUser);
+        Transaction withdrawal = persistTransaction(owner, null, TransactionType.WITHDRAWAL, wallet.getId().toString(), otherWallet.getId().toString());
+        Transaction topUp = persistTransaction(owner, null, TransactionType.DEPOSIT, "Smart Wallet Ltd", wallet.getId().toString());
+        persistTransaction(owner, null, TransactionType.DEPOSIT, wallet.getId().toString(), "someone");
+        persistTransaction(owner, null, TransactionType.DEPOSIT, "someone", otherWallet.getId().toString());
+        persistTransaction(owner, wallet, TransactionType.DEPOSIT, "Smart Wallet Ltd", wallet.getId().toString());
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<Transaction> firstChunk = transactionRepository.findBackfillChunk(new UUID(0, 0), Limit.of(1));
+        List<Transaction> secondChunk = transactionRepository.findBackfillChunk(firstChunk.get(0).getId(), Limit.of(1));
+        List<Transaction> lastChunk = transactionRepository.findBackfillChunk(secondChunk.get(0).getId(), Limit.of(1));
+
+        // Assert
+        assertEquals(Set.of(withdrawal.getId(), topUp.getId()), Set.of(firstChunk.get(0).getId(), secondChunk.get(0).getId()));
+        assertEquals(List.of(), lastChunk);
+    }
+
+    @Test
+    @DisplayName("Should keep the newest successful transactions of each wallet")
+    void shouldFindLatestByWallets() {
+        // Arrange
+        User owner = persistUser("owner");
+        Wallet wallet = persistWallet(owner);
+        Wallet otherWallet = persistWallet(owner);
+        Wallet ignoredWallet = persistWallet(owner);
+        LocalDateTime now = LocalDateTime.now();
+        Transaction newest = persistTransaction(owner, wallet, TransactionStatus.SUCCEEDED, now);
+        Transaction second = persistTransaction(owner, wallet, TransactionStatus.SUCCEEDED, now.minusMinutes(1));
+        persistTransaction(owner, wallet, TransactionStatus.SUCCEEDED, now.minusMinutes(2));
+        persistTransaction(owner, wallet, TransactionStatus.FAILED, now.plusMinutes(1));
+        Transaction onlyOfOther = persistTransaction(owner, otherWallet, TransactionStatus.SUCCEEDED, now.minusMinutes(3));
+        persistTransaction(owner, ignoredWallet, TransactionStatus.SUCCEEDED, now);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        List<Transaction> latest = transactionRepository.findLatestByWallets(List.of(wallet.getId(), otherWallet.getId()), TransactionStatus.SUCCEEDED, 2);
+
+        // Assert
+        assertEquals(List.of(newest.getId(), second.getId(), onlyOfOther.getId()), latest.stream().map(Transaction::getId).toList());
+    }
+
+    private User persistUser(String username) {
+        LocalDateTime now = LocalDateTime.now();
+        return entityManager.persist(User.builder()
+                .username(username)
+                .password("password")
+                .role(UserRole.USER)
+                .isActive(true)
+                .createdOn(now)
+                .updatedOn(now)
+                .build());
+    }
+
+    private Wallet persistWallet(User owner) {
+        LocalDateTime now = LocalDateTime.now();
+        return entityManager.persist(Wallet.builder()
+                .owner(owner)
+                .status(WalletStatus.ACTIVE)
+                .balance(BigDecimal.ZERO)
+                .currency(Currency.getInstance("EUR"))
+                .createdOn(now)
+                .updatedOn(now)
+                .build());
+    }
+
+    private Transaction persistTransaction(User owner, Wallet wallet, TransactionStatus status, LocalDateTime createdOn) {
+        return entityManager.persist(transaction(owner, wallet, TransactionType.DEPOSIT, "someone", wallet.getId().toString())
+                .status(status)
+                .createdOn(createdOn)
+                .build());
+    }
+
+    private Transaction persistTransaction(User owner, Wallet wallet, TransactionType type, String sender, String receiver) {
+        return entityManager.persist(transaction(owner, wallet, type, sender, receiver).build());
+    }
+
+    private static Transaction.TransactionBuilder transaction(User owner, Wallet wallet, TransactionType type, String sender, String receiver) {
+        return Transaction.builder()
+                .owner(owner)
+                .wallet(wallet)
+                .sender(sender)
+                .receiver(receiver)
+                .amount(BigDecimal.TEN)
+                .balanceLeft(BigDecimal.TEN)
+                .currency(Currency.getInstance("EUR"))
+                .type(type)
+                .status(TransactionStatus.SUCCEEDED)
+                .description("Test")
+                .createdOn(LocalDateTime.now());
+    }
+}
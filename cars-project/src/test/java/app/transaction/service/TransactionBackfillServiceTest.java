@@ -0,0 +1,126 @@
+package app.transaction.service;
+
+import app.transaction.model.Transaction;
+import app.transaction.model.TransactionType;
+import app.transaction.repository.TransactionRepository;
+import app.user.model.User;
+import app.wallet.model.Wallet;
+import app.wallet.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionBackfillServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionBackfillService transactionBackfillService;
+
+    @BeforeEach
+    void setUp() {
+        transactionBackfillService = new TransactionBackfillService(transactionRepository, walletRepository, transactionManager, 2);
+    }
+
+    @Test
+    @DisplayName("Should set the wallet from the sender of a withdrawal and the receiver of a deposit")
+    void shouldBackfillWalletFromOwnSide() {
+        // Arrange
+        User owner = User.builder().id(UUID.randomUUID()).build();
+        Wallet wallet = Wallet.builder().id(UUID.randomUUID()).owner(owner).build();
+        Transaction withdrawal = transaction(owner, TransactionType.WITHDRAWAL, wallet.getId().toString(), UUID.randomUUID().toString());
+        Transaction topUp = transaction(owner, TransactionType.DEPOSIT, "Smart Wallet Ltd", wallet.getId().toString());
+        when(transactionRepository.findBackfillChunk(new UUID(0, 0), Limit.of(2))).thenReturn(List.of(withdrawal, topUp));
+        when(transactionRepository.findBackfillChunk(topUp.getId(), Limit.of(2))).thenReturn(List.of());
+        when(walletRepository.getReferenceById(wallet.getId())).thenReturn(wallet);
+
+        // Act
+        transactionBackfillService.backfillWallets();
+
+        // Assert
+        assertEquals(wallet, withdrawal.getWallet());
+        assertEquals(wallet, topUp.getWallet());
+    }
+
+    @Test
+    @DisplayName("Should commit each chunk on its own and continue after its last transaction")
+    void shouldBackfillInChunks() {
+        // Arrange
+        User owner = User.builder().id(UUID.randomUUID()).build();
+        UUID walletId = UUID.randomUUID();
+        Transaction first = transaction(owner, TransactionType.DEPOSIT, "someone", walletId.toString());
+        Transaction second = transaction(owner, TransactionType.DEPOSIT, "someone", walletId.toString());
+        Transaction third = transaction(owner, TransactionType.DEPOSIT, "someone", walletId.toString());
+        when(transactionRepository.findBackfillChunk(new UUID(0, 0), Limit.of(2))).thenReturn(List.of(first, second));
+        when(transactionRepository.findBackfillChunk(second.getId(), Limit.of(2))).thenReturn(List.of(third));
+        when(transactionRepository.findBackfillChunk(third.getId(), Limit.of(2))).thenReturn(List.of());
+
+        // Act
+        transactionBackfillService.backfillWallets();
+
+        // Assert
+        verify(transactionManager, times(3)).commit(any());
+        verify(walletRepository, times(3)).getReferenceById(walletId);
+    }
+
+    @Test
+    @DisplayName("Should stop at a chunk that fails and keep the chunks already committed")
+    void shouldStopAtFailedChunk() {
+        // Arrange
+        User owner = User.builder().id(UUID.randomUUID()).build();
+        UUID walletId = UUID.randomUUID();
+        Transaction first = transaction(owner, TransactionType.DEPOSIT, "someone", walletId.toString());
+        when(transactionRepository.findBackfillChunk(new UUID(0, 0), Limit.of(2))).thenReturn(List.of(first));
+        when(transactionRepository.findBackfillChunk(first.getId(), Limit.of(2))).thenThrow(new IllegalStateException("Connection lost"));
+
+        // Act
+        transactionBackfillService.backfillWallets();
+
+        // Assert
+        verify(transactionManager, times(1)).commit(any());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    @DisplayName("Should do nothing when nothing is left to backfill")
+    void shouldDoNothingWhenNothingToBackfill() {
+        when(transactionRepository.findBackfillChunk(eq(new UUID(0, 0)), any())).thenReturn(List.of());
+
+        transactionBackfillService.backfillWallets();
+
+        verify(walletRepository, never()).getReferenceById(any());
+    }
+
+    private static Transaction transaction(User owner, TransactionType type, String sender, String receiver) {
+        return Transaction.builder()
+                .id(UUID.randomUUID())
+                .owner(owner)
+                .type(type)
+                .sender(sender)
+                .receiver(receiver)
+                .build();
+    }
+}
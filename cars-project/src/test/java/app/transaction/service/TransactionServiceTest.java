@@ -2,6 +2,7 @@ package app.transaction.service;
 
 import app.exception.DomainException;
 import app.transaction.model.Transaction;
+import app.transaction.model.TransactionExportFormat;
 import app.transaction.model.TransactionStatus;
 import app.transaction.model.TransactionType;
 import app.transaction.repository.TransactionRepository;
@@ -9,6 +10,9 @@ import app.user.model.User;
 import app.user.model.UserRole;
 import app.wallet.model.Wallet;
 import app.wallet.model.WalletStatus;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -16,11 +20,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,6 +46,15 @@ class TransactionServiceTest {
     @Mock
     private TransactionRepository transactionRepository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Spy
+    private CacheManager cacheManager = new CaffeineCacheManager();
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -87,19 +110,107 @@ class TransactionServiceTest {
     }
 
     @Test
-    @DisplayName("Should get all transactions by owner ID")
-    void shouldGetAllByOwnerId() {
+    @DisplayName("Should load the newest history page without a cursor")
+    void shouldGetNewestHistoryPageWithoutCursor() {
         // Arrange
-        List<Transaction> expectedTransactions = Collections.singletonList(testTransaction);
-        when(transactionRepository.findAllByOwnerIdOrderByCreatedOnDesc(userId))
-                .thenReturn(expectedTransactions);
-        
+        Sort sort = Sort.by(Sort.Direction.DESC, "createdOn", "id");
+        Window<Transaction> page = Window.from(List.of(testTransaction), ScrollPosition::offset);
+        when(transactionRepository.findFirst50ByOwnerId(eq(userId), argThat(ScrollPosition::isInitial), eq(sort)))
+                .thenReturn(page);
+
         // Act
-        List<Transaction> result = transactionService.getAllByOwnerId(userId);
-        
+        Window<Transaction> result = transactionService.getHistoryPage(userId, null);
+
+        // Assert
+        assertEquals(page, result);
+        assertNull(transactionService.getNextCursor(result));
+    }
+
+    @Test
+    @DisplayName("Should seek past the cursor with the id as tie breaker")
+    void shouldSeekPastHistoryCursor() {
+        // Arrange
+        String cursor = TransactionCursor.encode(testTransaction);
+        when(transactionRepository.findFirst50ByOwnerId(eq(userId), any(ScrollPosition.class), any(Sort.class)))
+                .thenReturn(Window.from(List.of(), ScrollPosition::offset));
+
+        // Act
+        transactionService.getHistoryPage(userId, cursor);
+
+        // Assert
+        ArgumentCaptor<ScrollPosition> positionCaptor = ArgumentCaptor.forClass(ScrollPosition.class);
+        verify(transactionRepository).findFirst50ByOwnerId(eq(userId), positionCaptor.capture(), any(Sort.class));
+        KeysetScrollPosition position = (KeysetScrollPosition) positionCaptor.getValue();
+        assertEquals(testTransaction.getCreatedOn(), position.getKeys().get("createdOn"));
+        assertEquals(transactionId, position.getKeys().get("id"));
+    }
+
+    @Test
+    @DisplayName("Should start from the newest transaction when the cursor is invalid")
+    void shouldFallBackToNewestPageOnInvalidCursor() {
+        // Arrange
+        when(transactionRepository.findFirst50ByOwnerId(eq(userId), argThat(ScrollPosition::isInitial), any(Sort.class)))
+                .thenReturn(Window.from(List.of(), ScrollPosition::offset));
+
+        // Act
+        Window<Transaction> result = transactionService.getHistoryPage(userId, "not-a-cursor");
+
+        // Assert
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should point the next cursor at the last transaction of a full page")
+    void shouldReturnNextCursorWhenMoreTransactionsExist() {
+        // Arrange
+        Window<Transaction> page = Window.from(List.of(testTransaction), ScrollPosition::offset, true);
+
+        // Act
+        String cursor = transactionService.getNextCursor(page);
+
+        // Assert
+        assertEquals(TransactionCursor.encode(testTransaction), cursor);
+    }
+
+    @Test
+    @DisplayName("Should export transactions as CSV and detach every exported row")
+    void shouldExportTransactionsAsCsv() throws IOException {
+        // Arrange
+        testTransaction.setDescription("Top up, \"bonus\"");
+        when(transactionRepository.streamAllByOwnerId(userId)).thenReturn(Stream.of(testTransaction));
+        StringWriter writer = new StringWriter();
+
+        // Act
+        transactionService.exportByOwnerId(userId, TransactionExportFormat.CSV, writer);
+
+        // Assert
+        String[] lines = writer.toString().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals("id,createdOn,type,status,amount,currency,balanceLeft,sender,receiver,description,failureReason", lines[0]);
+        assertTrue(lines[1].startsWith(transactionId + "," + testTransaction.getCreatedOn() + ",WITHDRAWAL,SUCCEEDED,10,EUR,90.00,"));
+        assertTrue(lines[1].endsWith(",\"Top up, \"\"bonus\"\"\","));
+        verify(entityManager).detach(testTransaction);
+    }
+
+    @Test
+    @DisplayName("Should export transactions as one JSON object per line")
+    void shouldExportTransactionsAsNdjson() throws IOException {
+        // Arrange
+        when(transactionRepository.streamAllByOwnerId(userId)).thenReturn(Stream.of(testTransaction, testTransaction));
+        StringWriter writer = new StringWriter();
+
+        // Act
+        transactionService.exportByOwnerId(userId, TransactionExportFormat.NDJSON, writer);
+
         // Assert
-        assertEquals(expectedTransactions, result);
-        verify(transactionRepository).findAllByOwnerIdOrderByCreatedOnDesc(userId);
+        String[] lines = writer.toString().split("\n");
+        assertEquals(2, lines.length);
+        JsonNode row = new ObjectMapper().readTree(lines[0]);
+        assertEquals(transactionId.toString(), row.get("id").asText());
+        assertEquals("SUCCEEDED", row.get("status").asText());
+        assertEquals(0, BigDecimal.TEN.compareTo(row.get("amount").decimalValue()));
+        assertTrue(row.get("failureReason").isNull());
+        verify(entityManager, times(2)).detach(testTransaction);
     }
 
     @Test
@@ -118,12 +229,13 @@ class TransactionServiceTest {
         
         // Act
         Transaction result = transactionService.createNewTransaction(
-                testUser, sender, receiver, amount, balanceLeft, currency,
-                TransactionType.WITHDRAWAL, TransactionStatus.SUCCEEDED, description, null);
+                testUser, testWallet, sender, receiver, amount, balanceLeft, currency,
+                TransactionType.WITHDRAWAL, TransactionStatus.SUCCEEDED, description, null, null);
         
         // Assert
         assertNotNull(result);
         assertEquals(testUser, result.getOwner());
+        assertEquals(testWallet, result.getWallet());
         assertEquals(sender, result.getSender());
         assertEquals(receiver, result.getReceiver());
         assertEquals(amount, result.getAmount());
@@ -142,6 +254,45 @@ class TransactionServiceTest {
         assertNotNull(capturedTransaction.getCreatedOn());
     }
 
+    @Test
+    @DisplayName("Should resolve a freshly stored idempotency key from the cache by primary key")
+    void shouldResolveStoredIdempotencyKeyFromCache() {
+        // Arrange
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction saved = invocation.getArgument(0);
+            saved.setId(transactionId);
+            return saved;
+        });
+        Transaction stored = transactionService.createNewTransaction(testUser, testWallet, "sender", "receiver", BigDecimal.TEN,
+                BigDecimal.TEN, Currency.getInstance("EUR"), TransactionType.DEPOSIT, TransactionStatus.SUCCEEDED, "Top Up", null, "key-1");
+        when(transactionRepository.findById(transactionId)).thenReturn(Optional.of(stored));
+
+        // Act
+        Optional<Transaction> result = transactionService.findByIdempotencyKey("key-1");
+
+        // Assert
+        assertEquals(Optional.of(stored), result);
+        assertEquals("key-1", stored.getIdempotencyKey());
+        verify(transactionRepository, never()).findByIdempotencyKey(any());
+    }
+
+    @Test
+    @DisplayName("Should fall back to the unique key index when the cached transaction never committed")
+    void shouldFallBackToIndexForStaleIdempotencyKey() {
+        // Arrange
+        UUID rolledBackId = UUID.randomUUID();
+        cacheManager.getCache(TransactionService.IDEMPOTENCY_CACHE_NAME).put("key-2", rolledBackId);
+        when(transactionRepository.findById(rolledBackId)).thenReturn(Optional.empty());
+        when(transactionRepository.findByIdempotencyKey("key-2")).thenReturn(Optional.empty());
+
+        // Act
+        Optional<Transaction> result = transactionService.findByIdempotencyKey("key-2");
+
+        // Assert
+        assertTrue(result.isEmpty());
+        assertNull(cacheManager.getCache(TransactionService.IDEMPOTENCY_CACHE_NAME).get("key-2"));
+    }
+
     @Test
     @DisplayName("Should get transaction by ID")
     void shouldGetById() {
@@ -173,44 +324,47 @@ class TransactionServiceTest {
     }
 
     @Test
-    @DisplayName("Should get last four transactions by wallet")
-    void shouldGetLastFourTransactionsByWallet() {
+    @DisplayName("Should group the latest transactions of all wallets with a single query")
+    void shouldGetLastFourTransactionsByWallets() {
         // Arrange
-        String walletIdString = walletId.toString();
-        
-        // Create multiple transactions
-        List<Transaction> allTransactions = new ArrayList<>();
-        for (int i = 0; i < 6; i++) {
-            Transaction transaction = Transaction.builder()
+        Wallet emptyWallet = Wallet.builder()
+                .id(UUID.randomUUID())
+                .owner(testUser)
+                .build();
+
+        List<Transaction> latest = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            latest.add(Transaction.builder()
                     .id(UUID.randomUUID())
                     .owner(testUser)
-                    .sender(i % 2 == 0 ? walletIdString : "other")
-                    .receiver(i % 2 == 0 ? "other" : walletIdString)
+                    .wallet(testWallet)
                     .amount(BigDecimal.valueOf(i + 1))
                     .status(TransactionStatus.SUCCEEDED)
                     .createdOn(LocalDateTime.now().minusDays(i))
-                    .build();
-            allTransactions.add(transaction);
+                    .build());
         }
-        
-        when(transactionRepository.findAllBySenderOrReceiverOrderByCreatedOnDesc(
-                walletIdString, walletIdString))
-                .thenReturn(allTransactions);
-        
+
+        when(transactionRepository.findLatestByWallets(Set.of(walletId, emptyWallet.getId()), TransactionStatus.SUCCEEDED, 4))
+                .thenReturn(latest);
+
         // Act
-        List<Transaction> result = transactionService.getLastFourTransactionsByWallet(testWallet);
-        
+        Map<UUID, List<Transaction>> result = transactionService.getLastFourTransactionsByWallets(List.of(testWallet, emptyWallet));
+
         // Assert
-        assertEquals(4, result.size());
-        
-        // Verify the transactions are ordered by created date descending
-        LocalDateTime previousDate = null;
-        for (Transaction transaction : result) {
-            if (previousDate != null) {
-                assertTrue(previousDate.isAfter(transaction.getCreatedOn()) || 
-                        previousDate.isEqual(transaction.getCreatedOn()));
-            }
-            previousDate = transaction.getCreatedOn();
-        }
+        assertEquals(List.of(walletId, emptyWallet.getId()), new ArrayList<>(result.keySet()));
+        assertEquals(latest, result.get(walletId));
+        assertTrue(result.get(emptyWallet.getId()).isEmpty());
+        verify(transactionRepository, times(1)).findLatestByWallets(any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should not query transactions when there are no wallets")
+    void shouldNotQueryTransactionsWithoutWallets() {
+        // Act
+        Map<UUID, List<Transaction>> result = transactionService.getLastFourTransactionsByWallets(List.of());
+
+        // Assert
+        assertTrue(result.isEmpty());
+        verifyNoInteractions(transactionRepository);
     }
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+package app.user.repository;
+
+import app.user.model.AdminUserRow;
+import app.user.model.User;
+import app.user.model.UserRole;
+import app.wallet.model.Wallet;
+import app.wallet.model.WalletStatus;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@DataJpaTest
+class UserRepositoryTest {
+
+    private static final PageRequest FIRST_PAGE = PageRequest.of(0, 50, Sort.by(Sort.Direction.DESC, "createdOn").and(Sort.by("id")));
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    @DisplayName("Should match an escaped % or _ in the admin search literally")
+    void shouldMatchEscapedWildcardsLiterally() {
+        // Arrange
+        User underscore = persistUser("car_fan");
+        persistUser("carxfan");
+        User percent = persistUser("car%fan");
+        persistUser("carzfan");
+        persistWallet(underscore);
+        persistWallet(underscore);
+        entityManager.flush();
+        entityManager.clear();
+
+        // Act
+        Page<AdminUserRow> underscoreRows = userRepository.findAdminRows("car\\_", FIRST_PAGE);
+        Page<AdminUserRow> percentRows = userRepository.findAdminRows("car\\%", FIRST_PAGE);
+
+        // Assert
+        assertEquals(List.of("car_fan"), underscoreRows.map(AdminUserRow::username).getContent());
+        assertEquals(1, underscoreRows.getTotalElements());
+        assertEquals(2, underscoreRows.getContent().get(0).walletCount());
+        assertEquals(List.of(percent.getId()), percentRows.map(AdminUserRow::id).getContent());
+    }
+
+    @Test
+    @DisplayName("Should list every user for an empty search")
+    void shouldListAllUsersForEmptySearch() {
+        // Arrange
+        persistUser("first");
+        persistUser("second");
+        entityManager.flush();
+
+        // Act
+        Page<AdminUserRow> rows = userRepository.findAdminRows("", FIRST_PAGE);
+
+        // Assert
+        assertEquals(2, rows.getTotalElements());
+        assertEquals(0, rows.getContent().get(0).walletCount());
+    }
+
+    private User persistUser(String username) {
+        LocalDateTime now = LocalDateTime.now();
+        return entityManager.persist(User.builder()
+                .username(username)
+                .password("password")
+                .role(UserRole.USER)
+                .isActive(true)
+                .createdOn(now)
+                .updatedOn(now)
+                .build());
+    }
+
+    private void persistWallet(User owner) {
+        LocalDateTime now = LocalDateTime.now();
+        entityManager.persist(Wallet.builder()
+                .owner(owner)
+                .status(WalletStatus.ACTIVE)
+                .balance(BigDecimal.ZERO)
+                .currency(Currency.getInstance("EUR"))
+                .createdOn(now)
+                .updatedOn(now)
+                .build());
+    }
+}
@@ -0,0 +1,107 @@
+package app.user.service;
+
+import app.exception.DomainException;
+import app.user.model.CurrentUserView;
+import app.user.model.UserRole;
+import app.user.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class CurrentUserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private ConcurrentMapCacheManager cacheManager;
+    private CurrentUserService currentUserService;
+
+    private UUID userId;
+    private CurrentUserView view;
+
+    @BeforeEach
+    void setUp() {
+        cacheManager = new ConcurrentMapCacheManager(CurrentUserService.CACHE_NAME);
+        currentUserService = new CurrentUserService(userRepository, cacheManager);
+        userId = UUID.randomUUID();
+        view = new CurrentUserView(userId, "tester", "Test", "User", null, UserRole.USER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @DisplayName("Should load the current user once and serve the next lookups from the cache")
+    void shouldLoadCurrentUserOnce() {
+        // Arrange
+        when(userRepository.findCurrentUserViewById(userId)).thenReturn(Optional.of(view));
+
+        // Act
+        currentUserService.getCurrentUser(userId);
+        CurrentUserView result = currentUserService.getCurrentUser(userId);
+
+        // Assert
+        assertEquals(view, result);
+        verify(userRepository, times(1)).findCurrentUserViewById(userId);
+    }
+
+    @Test
+    @DisplayName("Should reuse the view within a request even after the shared cache was cleared")
+    void shouldReuseViewWithinRequest() {
+        // Arrange
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        when(userRepository.findCurrentUserViewById(userId)).thenReturn(Optional.of(view));
+
+        // Act
+        currentUserService.getCurrentUser(userId);
+        cacheManager.getCache(CurrentUserService.CACHE_NAME).clear();
+        currentUserService.getCurrentUser(userId);
+
+        // Assert
+        verify(userRepository, times(1)).findCurrentUserViewById(userId);
+    }
+
+    @Test
+    @DisplayName("Should reload the current user after eviction")
+    void shouldReloadAfterEviction() {
+        // Arrange
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest()));
+        when(userRepository.findCurrentUserViewById(userId)).thenReturn(Optional.of(view));
+
+        // Act
+        currentUserService.getCurrentUser(userId);
+        currentUserService.evict(userId);
+        currentUserService.getCurrentUser(userId);
+
+        // Assert
+        verify(userRepository, times(2)).findCurrentUserViewById(userId);
+    }
+
+    @Test
+    @DisplayName("Should throw when the user does not exist")
+    void shouldThrowWhenUserDoesNotExist() {
+        when(userRepository.findCurrentUserViewById(userId)).thenReturn(Optional.empty());
+
+        assertThrows(DomainException.class, () -> currentUserService.getCurrentUser(userId));
+    }
+}
@@ -0,0 +1,74 @@
+package app.user.service;
+
+import app.exception.DomainException;
+import app.subscription.service.SubscriptionService;
+import app.user.model.User;
+import app.user.repository.UserRepository;
+import app.wallet.service.WalletService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserBackfillServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private SubscriptionService subscriptionService;
+
+    @Mock
+    private WalletService walletService;
+
+    @InjectMocks
+    private UserBackfillService userBackfillService;
+
+    @Test
+    @DisplayName("Should create defaults only for users missing them")
+    void shouldCreateDefaultsOnlyForUsersMissingThem() {
+        // Arrange
+        User withoutSubscription = User.builder().id(UUID.randomUUID()).username("no-subscription").build();
+        User withoutWallet = User.builder().id(UUID.randomUUID()).username("no-wallet").build();
+        when(userRepository.findAllWithoutSubscriptions()).thenReturn(List.of(withoutSubscription));
+        when(userRepository.findAllWithoutWallets()).thenReturn(List.of(withoutWallet));
+
+        // Act
+        userBackfillService.backfillMissingDefaults();
+
+        // Assert
+        verify(subscriptionService).createDefaultSubscription(withoutSubscription);
+        verify(subscriptionService, never()).createDefaultSubscription(withoutWallet);
+        verify(walletService).initializeFirstWallet(withoutWallet);
+        verify(walletService, never()).initializeFirstWallet(withoutSubscription);
+    }
+
+    @Test
+    @DisplayName("Should keep repairing the remaining users when one of them fails")
+    void shouldContinueWhenOneUserFails() {
+        // Arrange
+        User first = User.builder().id(UUID.randomUUID()).username("first").build();
+        User second = User.builder().id(UUID.randomUUID()).username("second").build();
+        when(userRepository.findAllWithoutSubscriptions()).thenReturn(List.of());
+        when(userRepository.findAllWithoutWallets()).thenReturn(List.of(first, second));
+        when(walletService.initializeFirstWallet(first)).thenThrow(new DomainException("already has a wallet"));
+
+        // Act
+        userBackfillService.backfillMissingDefaults();
+
+        // Assert
+        verify(walletService).initializeFirstWallet(second);
+        verify(subscriptionService, never()).createDefaultSubscription(any());
+    }
+}
@@ -7,6 +7,7 @@ import app.subscription.model.SubscriptionPeriod;
 import app.subscription.model.SubscriptionStatus;
 import app.subscription.model.SubscriptionType;
 import app.subscription.service.SubscriptionService;
+import app.user.model.AdminUserRow;
 import app.user.model.User;
 import app.user.model.UserRole;
 import app.user.repository.UserRepository;
@@ -24,8 +25,9 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.mockito.junit.jupiter.MockitoSettings;
-import org.mockito.quality.Strictness;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -39,6 +41,9 @@ import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -57,6 +62,9 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private CurrentUserService currentUserService;
+
     @InjectMocks
     private UserService userService;
 
@@ -198,69 +206,61 @@ class UserServiceTest {
         assertEquals("updated@example.com", capturedUser.getEmail());
         assertEquals("new-avatar.png", capturedUser.getProfilePicture());
         assertNotNull(capturedUser.getUpdatedOn());
+        verify(currentUserService).evict(testUserId);
     }
 
     @Test
-    @DisplayName("Should get all users")
-    void shouldGetAllUsers() {
+    @DisplayName("Should get a page of admin user rows filtered by username prefix")
+    void shouldGetAdminUserPage() {
         // Arrange
-        List<User> users = new ArrayList<>();
-        users.add(testUser);
-        when(userRepository.findAll()).thenReturn(users);
+        AdminUserRow row = new AdminUserRow(testUserId, "testuser", "Test", "User", "test@example.com", UserRole.USER,
+                true, LocalDateTime.now(), 1);
+        Page<AdminUserRow> page = new PageImpl<>(List.of(row));
+        when(userRepository.findAdminRows(eq("test"), any(Pageable.class))).thenReturn(page);
 
         // Act
-        List<User> result = userService.getAllUsers();
+        Page<AdminUserRow> result = userService.getAdminUserPage(" test ", 2);
 
         // Assert
-        assertEquals(users, result);
-        verify(userRepository).findAll();
+        assertEquals(page, result);
+        ArgumentCaptor<Pageable> pageableCaptor = ArgumentCaptor.forClass(Pageable.class);
+        verify(userRepository).findAdminRows(eq("test"), pageableCaptor.capture());
+        assertEquals(2, pageableCaptor.getValue().getPageNumber());
+        assertEquals(50, pageableCaptor.getValue().getPageSize());
+        verify(userRepository, never()).findAll();
     }
 
     @Test
-    @DisplayName("Should get user by ID")
-    @ExtendWith(MockitoExtension.class)
-    @MockitoSettings (strictness = Strictness.LENIENT)
-    void shouldGetUserById() {
-        testUser = User.builder()
-                .id(testUserId)
-                .email("test@example.com")
-                .subscriptions(new ArrayList<>()) // simulate missing subscriptions
-                .wallets(new ArrayList<>())       // simulate missing wallets
-                .username("tester")
-                .build();
+    @DisplayName("Should search for LIKE wildcards in the username literally")
+    void shouldEscapeWildcardsInSearch() {
+        // Arrange
+        when(userRepository.findAdminRows(anyString(), any(Pageable.class))).thenReturn(Page.empty());
 
-        testSubscription = Subscription.builder()
-                .id(UUID.randomUUID())
-                .owner(testUser)
-                .type(SubscriptionType.DEFAULT)
-                .period(SubscriptionPeriod.MONTHLY)
-                .status(SubscriptionStatus.ACTIVE)
-                .price(BigDecimal.valueOf(9.99))
-                .createdOn(LocalDateTime.now())
-                .completedOn(LocalDateTime.now().plusMonths(1))
-                .build();
+        // Act
+        userService.getAdminUserPage("a_b%c\\", 0);
 
-        testWallet = Wallet.builder()
-                .id(UUID.randomUUID())
-                .build();
+        // Assert
+        verify(userRepository).findAdminRows(eq("a\\_b\\%c\\\\"), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Should get user by ID without creating missing defaults")
+    void shouldGetUserById() {
         // Arrange
+        testUser.setSubscriptions(new ArrayList<>());
+        testUser.setWallets(new ArrayList<>());
         when(userRepository.findById(testUserId)).thenReturn(Optional.of(testUser));
-        when(subscriptionService.createDefaultSubscription(testUser)).thenReturn(testSubscription);
-        when(walletService.initializeFirstWallet(testUser)).thenReturn(testWallet);
-        when(userService.getById(testUserId)).thenReturn(testUser);
 
         // Act
         User result = userService.getById(testUserId);
 
         // Assert
         assertEquals(testUser, result);
-        assertNotNull(result);
-        assertEquals(testUserId, result.getId());
-        assertEquals(1, result.getSubscriptions().size());
-        assertEquals(testSubscription, result.getSubscriptions().get(0));
-        assertEquals(1, result.getWallets().size());
-        assertEquals(testWallet, result.getWallets().get(0));
-        verify(userRepository).save(testUser);
+        assertTrue(result.getSubscriptions().isEmpty());
+        assertTrue(result.getWallets().isEmpty());
+        verify(subscriptionService, never()).createDefaultSubscription(any());
+        verify(walletService, never()).initializeFirstWallet(any());
+        verify(userRepository, never()).save(any());
     }
 
     @Test
@@ -277,6 +277,44 @@ class UserServiceTest {
         assertTrue(exception.getMessage().contains("User with ID [" + nonExistentId + "] is not found!"));
     }
 
+    @Test
+    @DisplayName("Should load user with subscriptions through the entity graph")
+    void shouldGetUserByIdWithSubscriptions() {
+        // Arrange
+        when(userRepository.findWithSubscriptionsById(testUserId)).thenReturn(Optional.of(testUser));
+
+        // Act
+        User result = userService.getByIdWithSubscriptions(testUserId);
+
+        // Assert
+        assertEquals(testUser, result);
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should load user with wallets through the entity graph")
+    void shouldGetUserByIdWithWallets() {
+        // Arrange
+        when(userRepository.findWithWalletsById(testUserId)).thenReturn(Optional.of(testUser));
+
+        // Act
+        User result = userService.getByIdWithWallets(testUserId);
+
+        // Assert
+        assertEquals(testUser, result);
+        verify(userRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("Should throw exception when user with wallets is not found")
+    void shouldThrowExceptionWhenUserWithWalletsNotFound() {
+        // Arrange
+        when(userRepository.findWithWalletsById(testUserId)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(DomainException.class, () -> userService.getByIdWithWallets(testUserId));
+    }
+
     @Test
     @DisplayName("Should load user by username")
     void shouldLoadUserByUsername() {
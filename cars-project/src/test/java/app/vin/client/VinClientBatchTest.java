@@ -0,0 +1,88 @@
+package app.vin.client;
+
+import app.web.dto.VinBatchResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VinClientBatchTest {
+
+    private HttpServer vinService;
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+    private VinClient vinClient;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        vinService = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        vinService.createContext("/vin-svc/api/v1/save-vin-checks", this::streamResults);
+        vinService.start();
+
+        vinClient = new VinClient(new RestTemplate());
+        ReflectionTestUtils.setField(vinClient, "vinServiceUrl", "http://localhost:" + vinService.getAddress().getPort());
+        ReflectionTestUtils.setField(vinClient, "batchSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        vinService.stop(0);
+    }
+
+    @Test
+    @DisplayName("Should send VINs in batches and hand every streamed result to the consumer in order")
+    void shouldSaveVinChecksInBatches() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        List<String> vins = List.of("WBAWL73589P473158", "5YJ3E1EA0PF446330", "ZZZ12345678901234");
+        List<VinBatchResult> results = new ArrayList<>();
+
+        // Act
+        int received = vinClient.saveVinChecks(vins, userId, results::add);
+
+        // Assert
+        assertEquals(3, received);
+        assertEquals(2, requestBodies.size());
+        assertTrue(requestBodies.get(0).contains(userId.toString()));
+        assertEquals(vins, results.stream().map(VinBatchResult::getVin).toList());
+        assertEquals("VALID", results.get(0).getStatus());
+        assertEquals("2009", results.get(0).getModelYear());
+        assertEquals("P", results.get(0).getAssemblyPlantCode());
+        assertNotNull(results.get(0).getId());
+    }
+
+    private void streamResults(HttpExchange exchange) throws IOException {
+        String request = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        requestBodies.add(request);
+
+        StringBuilder lines = new StringBuilder();
+        for (String vin : List.of("WBAWL73589P473158", "5YJ3E1EA0PF446330", "ZZZ12345678901234")) {
+            if (request.contains(vin)) {
+                lines.append("{\"vin\":\"").append(vin).append("\",\"id\":\"").append(UUID.randomUUID())
+                        .append("\",\"status\":\"VALID\",\"manufacturer\":\"BMW\",\"model_year\":\"2009\",")
+                        .append("\"assembly_plant_code\":\"P\",\"check_digit_valid\":false}\n");
+            }
+        }
+
+        byte[] bytes = lines.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
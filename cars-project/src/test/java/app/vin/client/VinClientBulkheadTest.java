@@ -0,0 +1,112 @@
+package app.vin.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class VinClientBulkheadTest {
+
+    @Mock
+    private HttpRequest request;
+
+    @Mock
+    private ClientHttpRequestExecution execution;
+
+    private SimpleMeterRegistry meterRegistry;
+    private VinClientBulkhead bulkhead;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = new VinClientBulkhead(1, 10, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should pass calls through and release the permit once the response is closed")
+    void shouldPassCallsThrough() throws IOException {
+        // Arrange
+        ClientHttpResponse response = mock(ClientHttpResponse.class);
+        when(response.getBody()).thenReturn(new ByteArrayInputStream(new byte[0]));
+        when(execution.execute(any(), any())).thenReturn(response);
+
+        // Act
+        ClientHttpResponse result = bulkhead.intercept(request, new byte[0], execution);
+
+        // Assert
+        assertSame(response.getBody(), result.getBody());
+        assertEquals(1, bulkhead.getActiveCalls());
+        result.close();
+        result.close();
+        verify(response, times(2)).close();
+        assertEquals(0, bulkhead.getActiveCalls());
+        assertNotNull(bulkhead.intercept(request, new byte[0], execution));
+        assertThrows(ResourceAccessException.class, () -> bulkhead.intercept(request, new byte[0], execution));
+    }
+
+    @Test
+    @DisplayName("Should release the permit when the call fails")
+    void shouldReleasePermitOnFailure() throws IOException {
+        // Arrange
+        when(execution.execute(any(), any())).thenThrow(new SocketTimeoutException("Read timed out"));
+
+        // Act & Assert
+        assertThrows(SocketTimeoutException.class, () -> bulkhead.intercept(request, new byte[0], execution));
+        assertEquals(0, bulkhead.getActiveCalls());
+    }
+
+    @Test
+    @DisplayName("Should reject calls beyond the limit after the wait and count them")
+    void shouldRejectCallsBeyondLimit() throws Exception {
+        // Arrange
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(execution.execute(any(), any())).thenAnswer(invocation -> {
+            inFlight.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return mock(ClientHttpResponse.class);
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            Future<ClientHttpResponse> slowCall = executor.submit(() -> bulkhead.intercept(request, new byte[0], execution));
+            assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+
+            // Act & Assert
+            assertThrows(ResourceAccessException.class, () -> bulkhead.intercept(request, new byte[0], execution));
+            assertEquals(1, meterRegistry.counter("vin.client.bulkhead.rejected").count());
+            assertEquals(1, meterRegistry.get("vin.client.bulkhead.active").gauge().value());
+
+            release.countDown();
+            slowCall.get(5, TimeUnit.SECONDS).close();
+            assertEquals(0, bulkhead.getActiveCalls());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package app.wallet.model;
+
+import app.exception.DomainException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+    private static final Currency JPY = Currency.getInstance("JPY");
+
+    @Test
+    @DisplayName("Should convert decimals to minor units and back without losing the scale")
+    void shouldConvertToMinorUnitsAndBack() {
+        // Act
+        Money money = Money.of(new BigDecimal("12.5"), EUR);
+
+        // Assert
+        assertEquals(1250, money.minorUnits());
+        assertEquals(new BigDecimal("12.50"), money.toBigDecimal());
+        assertEquals(new Money(500, JPY), Money.of(new BigDecimal("500"), JPY));
+    }
+
+    @Test
+    @DisplayName("Should scale a whole unit to the minor units of the currency")
+    void shouldScaleUnitToMinorUnits() {
+        assertEquals(100, Money.minorUnitsPerUnit(EUR));
+        assertEquals(1, Money.minorUnitsPerUnit(JPY));
+    }
+
+    @Test
+    @DisplayName("Should reject amounts finer than the currency's minor unit")
+    void shouldRejectAmountsFinerThanMinorUnit() {
+        assertThrows(DomainException.class, () -> Money.of(new BigDecimal("0.005"), EUR));
+        assertThrows(DomainException.class, () -> Money.of(new BigDecimal("1.5"), JPY));
+    }
+
+    @Test
+    @DisplayName("Should add, subtract and compare amounts of the same currency only")
+    void shouldCombineAmountsOfSameCurrency() {
+        // Arrange
+        Money balance = new Money(10_000, EUR);
+        Money charge = new Money(2_550, EUR);
+
+        // Act & Assert
+        assertEquals(new Money(7_450, EUR), balance.minus(charge));
+        assertEquals(new Money(12_550, EUR), balance.plus(charge));
+        assertTrue(charge.isLessThan(balance));
+        assertFalse(Money.zero(EUR).isPositive());
+        assertThrows(DomainException.class, () -> balance.plus(new Money(1, JPY)));
+        assertThrows(ArithmeticException.class, () -> new Money(Long.MAX_VALUE, EUR).plus(new Money(1, EUR)));
+    }
+
+    @Test
+    @DisplayName("Should format amounts with a zero padded fraction independent of the locale")
+    void shouldFormatAmounts() {
+        assertEquals("1234.05", new Money(123_405, EUR).formatAmount());
+        assertEquals("0.00", Money.zero(EUR).formatAmount());
+        assertEquals("-0.07", new Money(-7, EUR).formatAmount());
+        assertEquals("500", new Money(500, JPY).formatAmount());
+        assertEquals("20.00 EUR", new Money(2_000, EUR).toString());
+    }
+}
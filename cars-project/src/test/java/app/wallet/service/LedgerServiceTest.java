@@ -0,0 +1,152 @@
+package app.wallet.service;
+
+import app.exception.DomainException;
+import app.wallet.model.JournalEntry;
+import app.wallet.model.JournalEntryType;
+import app.wallet.model.Money;
+import app.wallet.model.Posting;
+import app.wallet.model.PostingDirection;
+import app.wallet.model.Wallet;
+import app.wallet.model.WalletMovement;
+import app.wallet.model.WalletStatus;
+import app.wallet.repository.JournalEntryRepository;
+import app.wallet.repository.PostingRepository;
+import app.wallet.repository.WalletRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Currency;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceTest {
+
+    @Mock
+    private JournalEntryRepository journalEntryRepository;
+
+    @Mock
+    private PostingRepository postingRepository;
+
+    @Mock
+    private WalletRepository walletRepository;
+
+    @InjectMocks
+    private LedgerService ledgerService;
+
+    private static final Currency EUR = Currency.getInstance("EUR");
+
+    private Wallet wallet;
+    private Wallet otherWallet;
+    private LocalDateTime snapshotOn;
+
+    @BeforeEach
+    void setUp() {
+        snapshotOn = LocalDateTime.now().minusHours(1);
+        wallet = Wallet.builder()
+                .id(UUID.randomUUID())
+                .status(WalletStatus.ACTIVE)
+                .balance(new BigDecimal("100.00"))
+                .balanceSnapshotOn(snapshotOn)
+                .currency(Currency.getInstance("EUR"))
+                .createdOn(snapshotOn.minusDays(1))
+                .build();
+        otherWallet = Wallet.builder()
+                .id(UUID.randomUUID())
+                .status(WalletStatus.ACTIVE)
+                .balance(BigDecimal.ZERO)
+                .currency(Currency.getInstance("EUR"))
+                .createdOn(snapshotOn)
+                .build();
+        lenient().when(journalEntryRepository.save(any(JournalEntry.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    @DisplayName("Should read the balance in the minor units of the wallet currency")
+    void shouldReadBalanceInMinorUnits() {
+        // Arrange
+        when(postingRepository.sumBalanceMinorUnits(wallet.getId(), 100)).thenReturn(8750L);
+
+        // Act
+        Money balance = ledgerService.getBalance(wallet);
+
+        // Assert
+        assertEquals(new Money(8750, EUR), balance);
+    }
+
+    @Test
+    @DisplayName("Should book a transfer as one balanced entry with a debit and a credit leg")
+    void shouldRecordTransferAsBalancedEntry() {
+        // Act
+        JournalEntry entry = ledgerService.recordTransfer(wallet, otherWallet, new Money(2000, EUR), "Transfer");
+
+        // Assert
+        assertEquals(JournalEntryType.TRANSFER, entry.getType());
+        assertEquals(2, entry.getPostings().size());
+        Posting debit = entry.getPostings().get(0);
+        Posting credit = entry.getPostings().get(1);
+        assertEquals(PostingDirection.DEBIT, debit.getDirection());
+        assertEquals(wallet, debit.getWallet());
+        assertEquals(PostingDirection.CREDIT, credit.getDirection());
+        assertEquals(otherWallet, credit.getWallet());
+        assertEquals(new BigDecimal("20.00"), debit.getAmount());
+        assertEquals(debit.getAmount(), credit.getAmount());
+        assertSame(entry, debit.getJournalEntry());
+        verify(journalEntryRepository).save(entry);
+        verifyNoInteractions(walletRepository);
+    }
+
+    @Test
+    @DisplayName("Should post top ups and charges against the platform account")
+    void shouldRecordTopUpAndChargeAgainstPlatformAccount() {
+        // Act
+        JournalEntry topUp = ledgerService.recordTopUp(wallet, new Money(1000, EUR), "Top up");
+        JournalEntry charge = ledgerService.recordCharge(wallet, new Money(100, EUR), "Charge");
+
+        // Assert
+        assertNull(topUp.getPostings().get(0).getWallet());
+        assertEquals(wallet, topUp.getPostings().get(1).getWallet());
+        assertEquals(wallet, charge.getPostings().get(0).getWallet());
+        assertNull(charge.getPostings().get(1).getWallet());
+    }
+
+    @Test
+    @DisplayName("Should reject non positive amounts and postings across currencies")
+    void shouldRejectInvalidPostings() {
+        otherWallet.setCurrency(Currency.getInstance("USD"));
+
+        assertThrows(DomainException.class, () -> ledgerService.recordTopUp(wallet, Money.zero(EUR), "Top up"));
+        assertThrows(DomainException.class, () -> ledgerService.recordTransfer(wallet, otherWallet, new Money(1000, EUR), "Transfer"));
+        assertThrows(DomainException.class, () -> ledgerService.recordCharge(otherWallet, new Money(1000, EUR), "Charge"));
+        verify(journalEntryRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Should roll each snapshot forward from the point it was computed at")
+    void shouldRollSnapshotsForward() {
+        // Arrange
+        LocalDateTime cutoff = LocalDateTime.now().minusMinutes(1);
+        when(postingRepository.sumNetSinceSnapshotUntil(cutoff)).thenReturn(List.of(
+                new WalletMovement(wallet.getId(), new BigDecimal("5.00"), snapshotOn),
+                new WalletMovement(otherWallet.getId(), new BigDecimal("-1.00"), otherWallet.getCreatedOn())));
+        when(walletRepository.advanceBalanceSnapshot(wallet.getId(), new BigDecimal("5.00"), snapshotOn, cutoff)).thenReturn(1);
+        when(walletRepository.advanceBalanceSnapshot(otherWallet.getId(), new BigDecimal("-1.00"), otherWallet.getCreatedOn(), cutoff)).thenReturn(0);
+
+        // Act
+        int advanced = ledgerService.snapshotBalances(cutoff);
+
+        // Assert
+        assertEquals(1, advanced);
+    }
+}
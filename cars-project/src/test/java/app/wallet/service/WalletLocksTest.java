@@ -0,0 +1,149 @@
+package app.wallet.service;
+
+import app.exception.DomainException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WalletLocksTest {
+
+    private final WalletLocks walletLocks = new WalletLocks(64, 200);
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should serialize concurrent updates of the same wallet")
+    void shouldSerializeSameWallet() throws InterruptedException {
+        // Arrange
+        UUID walletId = UUID.randomUUID();
+        int[] balance = {0};
+        int updates = 2000;
+        CountDownLatch done = new CountDownLatch(updates);
+
+        // Act
+        for (int i = 0; i < updates; i++) {
+            pool.execute(() -> {
+                walletLocks.withLocks(() -> balance[0]++, walletId);
+                done.countDown();
+            });
+        }
+
+        // Assert
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(updates, balance[0]);
+    }
+
+    @Test
+    @DisplayName("Should not deadlock transfers between the same wallets in opposite directions")
+    void shouldNotDeadlockOppositeTransfers() throws InterruptedException {
+        // Arrange
+        WalletLocks patientLocks = new WalletLocks(64, 5000);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        int transfers = 1000;
+        CountDownLatch done = new CountDownLatch(transfers);
+
+        // Act
+        for (int i = 0; i < transfers; i++) {
+            UUID[] order = i % 2 == 0 ? new UUID[]{first, second} : new UUID[]{second, first};
+            pool.execute(() -> {
+                patientLocks.withLocks(() -> null, order);
+                done.countDown();
+            });
+        }
+
+        // Assert
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Should let unrelated wallets proceed in parallel")
+    void shouldNotBlockUnrelatedWallets() throws Exception {
+        // Arrange
+        UUID busy = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        while (walletLocks.stripeOf(other) == walletLocks.stripeOf(busy)) {
+            other = UUID.randomUUID();
+        }
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> walletLocks.withLocks(() -> {
+            holding.countDown();
+            await(release);
+            return null;
+        }, busy), pool);
+        assertTrue(holding.await(1, TimeUnit.SECONDS));
+
+        // Act & Assert
+        assertEquals("done", walletLocks.withLocks(() -> "done", other));
+        assertThrows(DomainException.class, () -> walletLocks.withLocks(() -> "blocked", busy));
+        release.countDown();
+        holder.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Should lock a wallet pair sharing one stripe only once")
+    void shouldLockSharedStripeOnce() {
+        UUID walletId = UUID.randomUUID();
+
+        assertEquals("ok", walletLocks.withLocks(() -> "ok", walletId, walletId));
+        assertEquals("again", walletLocks.withLocks(() -> "again", walletId));
+    }
+
+    @Test
+    @DisplayName("Should hold the locks until the surrounding transaction completes")
+    void shouldHoldLocksUntilTransactionCompletes() throws Exception {
+        // Arrange
+        UUID walletId = UUID.randomUUID();
+        TransactionSynchronizationManager.initSynchronization();
+
+        // Act
+        walletLocks.withLocks(() -> null, walletId);
+        AtomicBoolean acquiredElsewhere = new AtomicBoolean();
+        CompletableFuture.runAsync(() -> {
+            try {
+                walletLocks.withLocks(() -> null, walletId);
+                acquiredElsewhere.set(true);
+            } catch (DomainException ignored) {
+                // still held by the open transaction
+            }
+        }, pool).get(1, TimeUnit.SECONDS);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Assert
+        assertFalse(acquiredElsewhere.get());
+        assertEquals("free", CompletableFuture.supplyAsync(() -> walletLocks.withLocks(() -> "free", walletId), pool)
+                .get(1, TimeUnit.SECONDS));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -11,6 +11,7 @@ import app.transaction.model.TransactionType;
 import app.transaction.service.TransactionService;
 import app.user.model.User;
 import app.user.model.UserRole;
+import app.wallet.model.Money;
 import app.wallet.model.Wallet;
 import app.wallet.model.WalletStatus;
 import app.wallet.repository.WalletRepository;
@@ -22,6 +23,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.context.ApplicationEventPublisher;
 
@@ -45,6 +47,13 @@ class WalletServiceTest {
     @Mock
     private ApplicationEventPublisher eventPublisher;
 
+
+    @Mock
+    private LedgerService ledgerService;
+
+    @Spy
+    private WalletLocks walletLocks = new WalletLocks(16, 1000);
+
     @InjectMocks
     private WalletService walletService;
 
@@ -54,6 +63,7 @@ class WalletServiceTest {
     private Transaction testTransaction;
     private UUID walletId;
     private static final String TEST_USERNAME = "testuser";
+    private static final Currency EUR = Currency.getInstance("EUR");
 
     @BeforeEach
     void setUp() {
@@ -145,6 +155,7 @@ class WalletServiceTest {
         assertEquals(testUser, result.getOwner());
         assertEquals(WalletStatus.ACTIVE, result.getStatus());
         assertEquals(new BigDecimal("20.00"), result.getBalance());
+        assertEquals(result.getCreatedOn(), result.getBalanceSnapshotOn());
         assertEquals(Currency.getInstance("EUR"), result.getCurrency());
         verify(walletRepository).save(any(Wallet.class));
     }
@@ -204,39 +215,38 @@ class WalletServiceTest {
     }
 
     @Test
-    @DisplayName("Should top up wallet successfully")
+    @DisplayName("Should top up wallet by posting to the ledger")
     void shouldTopUpWalletSuccessfully() {
         // Arrange
         BigDecimal amount = new BigDecimal("50.00");
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(testWallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(testWallet);
+        when(ledgerService.getBalance(testWallet)).thenReturn(Money.of(new BigDecimal("100.00"), EUR));
         
         Transaction expectedTransaction = Transaction.builder()
                 .status(TransactionStatus.SUCCEEDED)
                 .build();
         when(transactionService.createNewTransaction(
                 eq(testUser), 
+                eq(testWallet), 
                 anyString(), 
                 anyString(), 
                 eq(amount), 
-                any(BigDecimal.class), 
+                eq(new BigDecimal("150.00")), 
                 any(Currency.class), 
                 eq(TransactionType.DEPOSIT), 
                 eq(TransactionStatus.SUCCEEDED), 
                 anyString(), 
+                isNull(), 
                 isNull())).thenReturn(expectedTransaction);
         
         // Act
-        Transaction result = walletService.topUp(walletId, amount);
+        Transaction result = walletService.topUp(walletId, amount, null);
         
         // Assert
         assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
-        verify(walletRepository).save(any(Wallet.class));
-        
-        // Verify balance was updated correctly
-        ArgumentCaptor<Wallet> walletCaptor = ArgumentCaptor.forClass(Wallet.class);
-        verify(walletRepository).save(walletCaptor.capture());
-        assertEquals(new BigDecimal("150.00"), walletCaptor.getValue().getBalance());
+        verify(ledgerService).recordTopUp(testWallet, Money.of(amount, EUR), "Top Up 50.00");
+        // Money movements are ledger inserts, the wallet row itself is left alone
+        verify(walletRepository, never()).save(any(Wallet.class));
     }
 
     @Test
@@ -246,12 +256,14 @@ class WalletServiceTest {
         testWallet.setStatus(WalletStatus.DEACTIVATED);
         BigDecimal amount = new BigDecimal("50.00");
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(testWallet));
+        when(ledgerService.getBalance(testWallet)).thenReturn(Money.of(new BigDecimal("100.00"), EUR));
         
         Transaction expectedTransaction = Transaction.builder()
                 .status(TransactionStatus.FAILED)
                 .build();
         when(transactionService.createNewTransaction(
                 eq(testUser), 
+                any(Wallet.class), 
                 anyString(), 
                 anyString(), 
                 eq(amount), 
@@ -260,51 +272,115 @@ class WalletServiceTest {
                 eq(TransactionType.DEPOSIT), 
                 eq(TransactionStatus.FAILED), 
                 anyString(), 
-                anyString())).thenReturn(expectedTransaction);
+                anyString(), 
+                isNull())).thenReturn(expectedTransaction);
         
         // Act
-        Transaction result = walletService.topUp(walletId, amount);
+        Transaction result = walletService.topUp(walletId, amount, null);
         
         // Assert
         assertEquals(TransactionStatus.FAILED, result.getStatus());
-        verify(walletRepository, never()).save(any(Wallet.class));
+        verify(ledgerService, never()).recordTopUp(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return the original transaction for a resubmitted top up")
+    void shouldReplayTopUpWithSameIdempotencyKey() {
+        // Arrange
+        BigDecimal amount = new BigDecimal("50.00");
+        Transaction original = Transaction.builder()
+                .wallet(testWallet)
+                .amount(amount)
+                .status(TransactionStatus.SUCCEEDED)
+                .idempotencyKey("form-key")
+                .build();
+        when(transactionService.findByIdempotencyKey("form-key")).thenReturn(Optional.of(original));
+
+        // Act
+        Transaction result = walletService.topUp(walletId, amount, " form-key ");
+
+        // Assert
+        assertSame(original, result);
+        assertTrue(result.isReplayed());
+        verify(walletLocks).withLocks(any(), eq(walletId));
+        verify(ledgerService, never()).recordTopUp(any(), any(), any());
+        verify(transactionService, never()).createNewTransaction(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should reject an idempotency key that was used for another payment")
+    void shouldRejectIdempotencyKeyOfAnotherPayment() {
+        // Arrange
+        Transaction original = Transaction.builder()
+                .wallet(testWallet)
+                .amount(new BigDecimal("20.00"))
+                .status(TransactionStatus.SUCCEEDED)
+                .build();
+        when(transactionService.findByIdempotencyKey("form-key")).thenReturn(Optional.of(original));
+
+        // Act & Assert
+        assertThrows(DomainException.class, () -> walletService.charge(testUser, walletId, new BigDecimal("50.00"), "Test charge", "form-key"));
+        verify(ledgerService, never()).recordCharge(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should store the idempotency key with a new charge")
+    void shouldStoreIdempotencyKeyWithNewCharge() {
+        // Arrange
+        BigDecimal amount = new BigDecimal("50.00");
+        when(transactionService.findByIdempotencyKey("form-key")).thenReturn(Optional.empty());
+        when(walletRepository.findById(walletId)).thenReturn(Optional.of(testWallet));
+        when(ledgerService.getBalance(testWallet)).thenReturn(Money.of(new BigDecimal("100.00"), EUR));
+
+        // Act
+        walletService.charge(testUser, walletId, amount, "Test charge", "form-key");
+
+        // Assert
+        verify(transactionService).createNewTransaction(eq(testUser), eq(testWallet), anyString(), anyString(), eq(amount), any(BigDecimal.class),
+                any(Currency.class), eq(TransactionType.WITHDRAWAL), eq(TransactionStatus.SUCCEEDED), eq("Test charge"), isNull(), eq("form-key"));
+    }
+
+    @Test
+    @DisplayName("Should reject an idempotency key longer than the stored column")
+    void shouldRejectTooLongIdempotencyKey() {
+        assertThrows(DomainException.class, () -> walletService.topUp(walletId, BigDecimal.TEN, "k".repeat(65)));
+        verifyNoInteractions(transactionService);
     }
 
     @Test
-    @DisplayName("Should charge wallet successfully")
+    @DisplayName("Should charge wallet by posting to the ledger")
     void shouldChargeWalletSuccessfully() {
         // Arrange
         BigDecimal amount = new BigDecimal("50.00");
         String description = "Test charge";
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(testWallet));
-        when(walletRepository.save(any(Wallet.class))).thenReturn(testWallet);
+        when(ledgerService.getBalance(testWallet)).thenReturn(Money.of(new BigDecimal("100.00"), EUR));
         
         Transaction expectedTransaction = Transaction.builder()
                 .status(TransactionStatus.SUCCEEDED)
                 .build();
         when(transactionService.createNewTransaction(
                 eq(testUser), 
+                eq(testWallet), 
                 anyString(), 
                 anyString(), 
                 eq(amount), 
-                any(BigDecimal.class), 
+                eq(new BigDecimal("50.00")), 
                 any(Currency.class), 
                 eq(TransactionType.WITHDRAWAL), 
                 eq(TransactionStatus.SUCCEEDED), 
                 eq(description), 
+                isNull(), 
                 isNull())).thenReturn(expectedTransaction);
         
         // Act
-        Transaction result = walletService.charge(testUser, walletId, amount, description);
+        Transaction result = walletService.charge(testUser, walletId, amount, description, null);
         
         // Assert
         assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
-        verify(walletRepository).save(any(Wallet.class));
-        
-        // Verify balance was updated correctly
-        ArgumentCaptor<Wallet> walletCaptor = ArgumentCaptor.forClass(Wallet.class);
-        verify(walletRepository).save(walletCaptor.capture());
-        assertEquals(new BigDecimal("50.00"), walletCaptor.getValue().getBalance());
+        verify(ledgerService).recordCharge(testWallet, Money.of(amount, EUR), description);
+        verify(walletLocks).withLocks(any(), eq(walletId));
+        verify(walletRepository, never()).save(any(Wallet.class));
     }
 
     @Test
@@ -314,12 +390,14 @@ class WalletServiceTest {
         BigDecimal amount = new BigDecimal("150.00"); // More than wallet balance
         String description = "Test charge";
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(testWallet));
+        when(ledgerService.getBalance(testWallet)).thenReturn(Money.of(new BigDecimal("100.00"), EUR));
         
         Transaction expectedTransaction = Transaction.builder()
                 .status(TransactionStatus.FAILED)
                 .build();
         when(transactionService.createNewTransaction(
                 eq(testUser), 
+                any(Wallet.class), 
                 anyString(), 
                 anyString(), 
                 eq(amount), 
@@ -328,14 +406,15 @@ class WalletServiceTest {
                 eq(TransactionType.WITHDRAWAL), 
                 eq(TransactionStatus.FAILED), 
                 eq(description), 
-                anyString())).thenReturn(expectedTransaction);
+                eq("Insufficient balance"), 
+                isNull())).thenReturn(expectedTransaction);
         
         // Act
-        Transaction result = walletService.charge(testUser, walletId, amount, description);
+        Transaction result = walletService.charge(testUser, walletId, amount, description, null);
         
         // Assert
         assertEquals(TransactionStatus.FAILED, result.getStatus());
-        verify(walletRepository, never()).save(any(Wallet.class));
+        verify(ledgerService, never()).recordCharge(any(), any(), any());
     }
 
     @Test
@@ -344,7 +423,7 @@ class WalletServiceTest {
         // Arrange
         List<Wallet> wallets = Collections.singletonList(testWallet);
         List<Transaction> transactions = Collections.singletonList(testTransaction);
-        when(transactionService.getLastFourTransactionsByWallet(testWallet)).thenReturn(transactions);
+        when(transactionService.getLastFourTransactionsByWallets(wallets)).thenReturn(Map.of(walletId, transactions));
         
         // Act
         Map<UUID, List<Transaction>> result = walletService.getLastFourTransactions(wallets);
@@ -356,7 +435,7 @@ class WalletServiceTest {
     }
 
     @Test
-    @DisplayName("Should transfer funds successfully")
+    @DisplayName("Should transfer funds as a single journal entry")
     void shouldTransferFundsSuccessfully() {
         // Arrange
         UUID receiverWalletId = UUID.randomUUID();
@@ -382,52 +461,86 @@ class WalletServiceTest {
         when(walletRepository.findById(walletId)).thenReturn(Optional.of(testWallet));
         when(walletRepository.findAllByOwnerUsername("receiver"))
                 .thenReturn(Collections.singletonList(receiverWallet));
-        when(walletRepository.save(any(Wallet.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(ledgerService.getBalance(testWallet)).thenReturn(Money.of(new BigDecimal("100.00"), EUR));
+        when(ledgerService.getBalance(receiverWallet)).thenReturn(Money.of(new BigDecimal("50.00"), EUR));
         
-        // Mock successful withdrawal transaction
         Transaction withdrawalTransaction = Transaction.builder()
                 .status(TransactionStatus.SUCCEEDED)
                 .build();
         when(transactionService.createNewTransaction(
                 eq(testUser), 
+                eq(testWallet), 
                 anyString(), 
                 anyString(), 
                 any(BigDecimal.class), 
-                any(BigDecimal.class), 
+                eq(new BigDecimal("80.00")), 
                 any(Currency.class), 
                 eq(TransactionType.WITHDRAWAL), 
                 eq(TransactionStatus.SUCCEEDED), 
                 anyString(), 
+                isNull(), 
                 isNull())).thenReturn(withdrawalTransaction);
         
         // Act
         Transaction result = walletService.transferFunds(testUser, transferRequest);
         
         // Assert
-        assertEquals(TransactionStatus.SUCCEEDED, result.getStatus());
-        verify(walletRepository, times(2)).save(any(Wallet.class));
+        assertEquals(withdrawalTransaction, result);
+        verify(ledgerService).recordTransfer(testWallet, receiverWallet, new Money(2000, EUR), "Transfer from testuser to receiver for 20.00 EUR");
+        verify(walletLocks).withLocks(any(), eq(walletId), eq(receiverWalletId));
+        verify(transactionService).createNewTransaction(
+                eq(receiverUser), 
+                eq(receiverWallet), 
+                eq(walletId.toString()), 
+                eq(receiverWalletId.toString()), 
+                eq(new BigDecimal("20.00")), 
+                eq(new BigDecimal("70.00")), 
+                any(Currency.class), 
+                eq(TransactionType.DEPOSIT), 
+                eq(TransactionStatus.SUCCEEDED), 
+                anyString(), 
+                isNull(), 
+                isNull());
+        verify(walletRepository, never()).save(any(Wallet.class));
+    }
+
+    @Test
+    @DisplayName("Should not post a transfer the sender cannot cover")
+    void shouldFailTransferForInsufficientBalance() {
+        // Arrange
+        Wallet receiverWallet = Wallet.builder()
+                .id(UUID.randomUUID())
+                .status(WalletStatus.ACTIVE)
+                .build();
+        TransferRequest transferRequest = TransferRequest.builder()
+                .fromWalletId(walletId)
+                .toUsername("receiver")
+                .amount(new BigDecimal("500.00"))
+                .build();
+        when(walletRepository.findById(walletId)).thenReturn(Optional.of(testWallet));
+        when(walletRepository.findAllByOwnerUsername("receiver")).thenReturn(List.of(receiverWallet));
+        when(ledgerService.getBalance(testWallet)).thenReturn(Money.of(new BigDecimal("100.00"), EUR));
+        Transaction failed = Transaction.builder().status(TransactionStatus.FAILED).build();
+        when(transactionService.createNewTransaction(
+                eq(testUser), 
+                eq(testWallet), 
+                anyString(), 
+                eq("receiver"), 
+                any(BigDecimal.class), 
+                any(BigDecimal.class), 
+                any(Currency.class), 
+                eq(TransactionType.WITHDRAWAL), 
+                eq(TransactionStatus.FAILED), 
+                anyString(), 
+                eq("Insufficient balance"), 
+                isNull())).thenReturn(failed);
         
-        // Verify both wallets were updated correctly
-        ArgumentCaptor<Wallet> walletCaptor = ArgumentCaptor.forClass(Wallet.class);
-        verify(walletRepository, times(2)).save(walletCaptor.capture());
-        List<Wallet> capturedWallets = walletCaptor.getAllValues();
-        
-        // One wallet should have decreased balance (sender)
-        boolean foundSenderUpdate = false;
-        // One wallet should have increased balance (receiver)
-        boolean foundReceiverUpdate = false;
-        
-        for (Wallet wallet : capturedWallets) {
-            if (wallet.getId().equals(walletId) && wallet.getBalance().compareTo(new BigDecimal("80.00")) == 0) {
-                foundSenderUpdate = true;
-            }
-            if (wallet.getId().equals(receiverWalletId) && wallet.getBalance().compareTo(new BigDecimal("70.00")) == 0) {
-                foundReceiverUpdate = true;
-            }
-        }
-        
-        assertTrue(foundSenderUpdate, "Sender wallet balance should be updated correctly");
-        assertTrue(foundReceiverUpdate, "Receiver wallet balance should be updated correctly");
+        // Act
+        Transaction result = walletService.transferFunds(testUser, transferRequest);
+        
+        // Assert
+        assertEquals(TransactionStatus.FAILED, result.getStatus());
+        verify(ledgerService, never()).recordTransfer(any(), any(), any(), any());
     }
 
     @Test
@@ -1,6 +1,7 @@
 package app.web;
 
 import app.advert.model.Advert;
+import app.advert.model.AdvertCardView;
 import app.advert.model.CarBrand;
 import app.advert.model.CarStatus;
 import app.advert.service.AdvertService;
@@ -10,14 +11,17 @@ import app.subscription.model.SubscriptionPeriod;
 import app.subscription.model.SubscriptionStatus;
 import app.subscription.model.SubscriptionType;
 import app.subscription.service.SubscriptionService;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
 import app.user.model.UserRole;
+import app.user.service.CurrentUserService;
 import app.user.service.UserService;
 import app.vin.client.VinClient;
+import app.vin.service.VinHistoryService;
 import app.vin.model.VinHistory;
 import app.web.dto.CreateNewAdvertRequest;
+import app.web.dto.VinCheckResult;
 import app.web.mapper.DtoMapper;
-import org.springframework.http.ResponseEntity;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -58,13 +62,20 @@ class AdsControllerTest {
     @Mock
     private VinClient vinClient;
 
+    @Mock
+    private VinHistoryService vinHistoryService;
+
     @Mock
     private SubscriptionService subscriptionService;
 
+    @Mock
+    private CurrentUserService currentUserService;
+
     @Mock(lenient = true)
     private AuthenticationMetadata authMetadata;
 
     private User testUser;
+    private CurrentUserView currentUser;
     private Advert testAdvert;
     private UUID testUserId;
     private UUID advertId;
@@ -74,6 +85,7 @@ class AdsControllerTest {
     void setUp() {
         advertId = UUID.randomUUID();
         testUserId = UUID.randomUUID();
+        currentUser = new CurrentUserView(testUserId, "tester", "Ivan", "Ivanov", null, UserRole.USER);
         
         // Setup subscription for VIN checks
         Subscription testSubscription = Subscription.builder()
@@ -163,7 +175,8 @@ class AdsControllerTest {
     void shouldReturnAdvertInfoPage() {
         // Arrange
         when(advertService.getAdvertById(advertId)).thenReturn(testAdvert);
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(advertService.incrementViewCount(advertId)).thenReturn(1L);
+        when(userService.getByIdWithSubscriptions(testUserId)).thenReturn(testUser);
 
         // Act
         ModelAndView modelAndView = adsController.getAdvertInfoPage(advertId.toString(), authMetadata);
@@ -172,8 +185,10 @@ class AdsControllerTest {
         assertEquals("ad-info", modelAndView.getViewName());
         assertEquals(testAdvert, modelAndView.getModel().get("advert"));
         assertEquals(testUser, modelAndView.getModel().get("user"));
-        
-        verify(advertService).updateAdvert(eq(advertId), any(Advert.class));
+        assertEquals(11, testAdvert.getViewCount());
+
+        verify(advertService).incrementViewCount(advertId);
+        verify(advertService, never()).updateAdvert(eq(advertId), any(Advert.class));
     }
 
     @Test
@@ -181,7 +196,7 @@ class AdsControllerTest {
     void shouldReturnUpdateAdvertPage() {
         // Arrange
         when(advertService.getAdvertById(advertId)).thenReturn(testAdvert);
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(currentUserService.getCurrentUser(testUserId)).thenReturn(currentUser);
         
         CreateNewAdvertRequest expectedRequest = DtoMapper.mapAdvertToCreateNewAdvertRequest(testAdvert);
 
@@ -190,7 +205,7 @@ class AdsControllerTest {
 
         // Assert
         assertEquals("new-advert", modelAndView.getViewName());
-        assertEquals(testUser, modelAndView.getModel().get("user"));
+        assertEquals(currentUser, modelAndView.getModel().get("user"));
         
         CreateNewAdvertRequest result = (CreateNewAdvertRequest) modelAndView.getModel().get("createAdvertRequest");
         assertEquals(expectedRequest.getAdvertName(), result.getAdvertName());
@@ -206,13 +221,31 @@ class AdsControllerTest {
         List<Advert> adverts = Collections.singletonList(testAdvert);
 
         // Act
-        ModelAndView modelAndView = adsController.getAdvertsPage(page, authMetadata);
+        ModelAndView modelAndView = adsController.getAdvertsPage(page, Optional.empty(), authMetadata);
 
         // Assert
         assertEquals("all-ads", modelAndView.getViewName());
         assertEquals(adverts, List.of(testAdvert));
     }
 
+    @Test
+    @DisplayName("Should seek past the cursor when one is given")
+    void shouldSeekPastCursorWhenGiven() {
+        // Arrange
+        when(currentUserService.getCurrentUser(testUserId)).thenReturn(currentUser);
+        List<AdvertCardView> cards = List.of(new AdvertCardView(advertId, "Test Car", CarBrand.BMW, "X5", null, "Test Description",
+                BigDecimal.valueOf(25000), 2020, true, null, CarStatus.AVAILABLE, LocalDateTime.now(), testUserId));
+        when(advertService.getShownAdvertsPage(1, "cursor", "DESC", "createdOn")).thenReturn(cards);
+        when(advertService.getNextCursor(cards, "createdOn")).thenReturn(null);
+
+        // Act
+        ModelAndView modelAndView = adsController.getAdvertsPage(2, Optional.of("cursor"), authMetadata);
+
+        // Assert
+        assertEquals(cards, modelAndView.getModel().get("adverts"));
+        verify(advertService, never()).getAllShownAdvertsByPage(anyInt(), anyString(), anyString());
+    }
+
     @Test
     @DisplayName("Should return new ad page")
     void shouldReturnNewAdPage() {
@@ -284,10 +317,10 @@ class AdsControllerTest {
                 .build();
 
         when(authMetadata.getUserId()).thenReturn(testUserId);
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(userService.getByIdWithSubscriptions(testUserId)).thenReturn(testUser);
         when(advertService.getAdvertById(advertId)).thenReturn(testAdvert);
-        when(vinClient.hasUserCheckedVin(vinNumber, testUserId)).thenReturn(true);
-        when(vinClient.getVINInformation(vinNumber)).thenReturn(ResponseEntity.ok(vinHistory.getResultJson()));
+        when(vinClient.checkVin(vinNumber, testUserId, true))
+                .thenReturn(VinCheckResult.builder().alreadyChecked(true).resultJson(vinHistory.getResultJson()).build());
         // Act
         ModelAndView result = adsController.checkVin(advertId, authMetadata);
         
@@ -309,11 +342,40 @@ class AdsControllerTest {
     @Test
     @DisplayName("Should check vin with new VIN check")
     void shouldCheckVinWithNewVinCheck() {
+        // Arrange
+        String json = "{\"manufacturer\":\"AUDI\",\"model_year\":\"2019\",\"assembly_plant_code\":\"A\",\"status\":\"VALID\"}";
+        when(advertService.getAdvertById(advertId)).thenReturn(testAdvert);
+        when(userService.getByIdWithSubscriptions(testUserId)).thenReturn(testUser);
+        when(vinClient.checkVin(testAdvert.getVinNumber(), testUserId, true))
+                .thenReturn(VinCheckResult.builder().recorded(true).status("VALID").resultJson(json).build());
+
         // Act
         ModelAndView result = adsController.checkVin(advertId, authMetadata);
         
         // Assert
         assertEquals("ad-info", result.getViewName());
+        assertEquals(true, result.getModel().get("vinCheckSuccess"));
+        assertEquals("VALID", result.getModel().get("vinStatus"));
+        verify(subscriptionService).reduceVinChecksWithOne(testUser);
+        verify(vinClient, never()).getVINInformation(anyString());
+        verify(vinClient, never()).saveVinCheck(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should record the check locally when the VIN service fails")
+    void shouldRecordCheckLocallyWhenVinServiceFails() {
+        // Arrange
+        when(advertService.getAdvertById(advertId)).thenReturn(testAdvert);
+        when(userService.getByIdWithSubscriptions(testUserId)).thenReturn(testUser);
+        when(vinClient.checkVin(testAdvert.getVinNumber(), testUserId, true)).thenThrow(new RuntimeException("Read timed out"));
+
+        // Act
+        ModelAndView result = adsController.checkVin(advertId, authMetadata);
+
+        // Assert
+        assertEquals("Could not verify VIN: Read timed out", result.getModel().get("vinCheckError"));
+        verify(subscriptionService, never()).reduceVinChecksWithOne(any(User.class));
+        verify(vinHistoryService).saveVinCheck(eq(testUser), eq(testAdvert.getVinNumber()), anyString(), anyString(), anyString(), anyString(), anyString());
     }
     
     @Test
@@ -323,7 +385,7 @@ class AdsControllerTest {
         testAdvert.setVinNumber(null);
         
         when(advertService.getAdvertById(advertId)).thenReturn(testAdvert);
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(userService.getByIdWithSubscriptions(testUserId)).thenReturn(testUser);
         
         // Act
         ModelAndView result = adsController.checkVin(advertId, authMetadata);
@@ -357,8 +419,9 @@ class AdsControllerTest {
 //        testSubscription.setVinChecksLeft(0);
 
         when(advertService.getAdvertById(advertId)).thenReturn(testAdvert);
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(userService.getByIdWithSubscriptions(testUserId)).thenReturn(testUser);
 //        when(vinHistoryService.findUserVinCheck(testUserId, testAdvert.getVinNumber())).thenReturn(Optional.empty());
+        when(vinClient.checkVin(testAdvert.getVinNumber(), testUserId, false)).thenReturn(VinCheckResult.builder().build());
 
         // Act
         ModelAndView result = adsController.checkVin(advertId, authMetadata);
@@ -382,9 +445,10 @@ class AdsControllerTest {
         
         // Act - We can't directly call the private method so we use checkVin that uses it
         when(advertService.getAdvertById(advertId)).thenReturn(testAdvert);
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(userService.getByIdWithSubscriptions(testUserId)).thenReturn(testUser);
 //        when(vinHistoryService.findUserVinCheck(testUserId, testAdvert.getVinNumber())).thenReturn(Optional.empty());
-        when(vinClient.getVINInformation(testAdvert.getVinNumber())).thenReturn(ResponseEntity.ok(json));
+        when(vinClient.checkVin(testAdvert.getVinNumber(), testUserId, true))
+                .thenReturn(VinCheckResult.builder().recorded(true).resultJson(json).build());
         
         ModelAndView result = adsController.checkVin(advertId, authMetadata);
         
@@ -3,12 +3,15 @@ package app.web;
 import app.advert.model.Advert;
 import app.advert.model.CarBrand;
 import app.advert.model.CarStatus;
-import app.advert.service.AdvertService;
 import app.bid.model.Bid;
+import app.bid.service.BidEngine;
 import app.bid.service.BidsService;
+import app.exception.DomainException;
 import app.security.AuthenticationMetadata;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
 import app.user.model.UserRole;
+import app.user.service.CurrentUserService;
 import app.user.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -26,24 +29,30 @@ import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class BidsControllerTest {
 
-    @Mock
-    private AdvertService advertService;
-
     @Mock
     private UserService userService;
 
     @Mock
     private BidsService bidsService;
 
+    @Mock
+    private BidEngine bidEngine;
+
+    @Mock
+    private CurrentUserService currentUserService;
+
     @InjectMocks
     private BidsController bidsController;
 
     private User testUser;
+    private CurrentUserView currentUser;
     private Advert testAdvert;
     private Bid testBid;
     private UUID testUserId;
@@ -54,6 +63,7 @@ class BidsControllerTest {
     @BeforeEach
     void setUp() {
         testUserId = UUID.randomUUID();
+        currentUser = new CurrentUserView(testUserId, "testuser", "Test", "User", null, UserRole.USER);
         testAdvertId = UUID.randomUUID();
         testBidId = UUID.randomUUID();
         LocalDateTime testTime = LocalDateTime.now();
@@ -125,7 +135,7 @@ class BidsControllerTest {
     @DisplayName("Should return bid info page")
     void shouldReturnBidInfoPage() {
         // Arrange
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(currentUserService.getCurrentUser(testUserId)).thenReturn(currentUser);
         when(bidsService.getById(testBidId)).thenReturn(testBid);
 
         // Act
@@ -134,40 +144,38 @@ class BidsControllerTest {
         // Assert
         assertEquals("bid-info", modelAndView.getViewName());
         assertEquals(testBid, modelAndView.getModel().get("bid"));
-        assertEquals(testUser, modelAndView.getModel().get("user"));
+        assertEquals(currentUser, modelAndView.getModel().get("user"));
     }
 
     @Test
-    @DisplayName("Should create new bid and redirect to bid info page")
-    void shouldCreateNewBidAndRedirectToBidInfoPage() {
+    @DisplayName("Should place bid through the bid engine and redirect to bids page")
+    void shouldPlaceBidAndRedirectToBidsPage() {
         // Arrange
         BigDecimal bidPrice = BigDecimal.valueOf(16000);
         BigDecimal maxBidPrice = BigDecimal.valueOf(20000);
-        
-        when(userService.getById(testUserId)).thenReturn(testUser);
-        when(advertService.getAdvertById(testAdvertId)).thenReturn(testAdvert);
 
         // Act
         String redirectUrl = bidsController.addBid(testAdvertId, authMetadata, bidPrice, maxBidPrice);
 
         // Assert
-        assertEquals("redirect:/ads/" + testAdvertId, redirectUrl);
+        assertEquals("redirect:/bids", redirectUrl);
+        verify(bidEngine).placeBid(testAdvertId, testUserId, bidPrice, maxBidPrice);
+        verifyNoInteractions(userService);
     }
 
     @Test
-    @DisplayName("Should redirect to advert page when bid creation fails")
-    void shouldRedirectToAdvertPageWhenBidCreationFails() {
+    @DisplayName("Should redirect to advert page when bid is rejected")
+    void shouldRedirectToAdvertPageWhenBidIsRejected() {
         // Arrange
-        BigDecimal bidPrice = BigDecimal.valueOf(16000);
-        BigDecimal maxBidPrice = BigDecimal.valueOf(20000);
-        
-        when(userService.getById(testUserId)).thenReturn(testUser);
-        when(advertService.getAdvertById(testAdvertId)).thenReturn(testAdvert);
+        BigDecimal bidPrice = BigDecimal.valueOf(100);
+        BigDecimal maxBidPrice = BigDecimal.valueOf(200);
+        when(bidEngine.placeBid(testAdvertId, testUserId, bidPrice, maxBidPrice))
+                .thenThrow(new DomainException("Bid must be at least [15000]!"));
 
         // Act
         String redirectUrl = bidsController.addBid(testAdvertId, authMetadata, bidPrice, maxBidPrice);
 
         // Assert
-        assertEquals("redirect:/ads/" + testAdvertId, redirectUrl);
+        assertEquals("redirect:/ads/" + testAdvertId + "/info", redirectUrl);
     }
-}
\ No newline at end of file
+}
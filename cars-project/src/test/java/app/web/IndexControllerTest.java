@@ -1,10 +1,12 @@
 package app.web;
 
-import app.advert.model.Advert;
+import app.advert.model.AdvertCardView;
 import app.advert.service.AdvertService;
 import app.security.AuthenticationMetadata;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
 import app.user.model.UserRole;
+import app.user.service.CurrentUserService;
 import app.user.service.UserService;
 import app.web.dto.RegisterRequest;
 import org.junit.jupiter.api.BeforeEach;
@@ -36,6 +38,9 @@ class IndexControllerTest {
     @Mock
     private AdvertService advertService;
 
+    @Mock
+    private CurrentUserService currentUserService;
+
     @Mock
     private AuthenticationMetadata authenticationMetadata;
 
@@ -46,13 +51,15 @@ class IndexControllerTest {
     private IndexController indexController;
 
     private User testUser;
+    private CurrentUserView currentUser;
     private UUID userId;
-    private List<Advert> adverts;
+    private List<AdvertCardView> adverts;
     private RegisterRequest registerRequest;
 
     @BeforeEach
     void setUp() {
         userId = UUID.randomUUID();
+        currentUser = new CurrentUserView(userId, "testuser", "Test", "User", null, UserRole.USER);
         testUser = User.builder()
                 .id(userId)
                 .username("testuser")
@@ -67,7 +74,8 @@ class IndexControllerTest {
                 .build();
 
         adverts = new ArrayList<>();
-        adverts.add(Advert.builder().id(UUID.randomUUID()).advertName("Test Advert").build());
+        adverts.add(new AdvertCardView(UUID.randomUUID(), "Test Advert", null, null, null, null,
+                null, null, null, null, null, null, null));
 
         registerRequest = new RegisterRequest();
         registerRequest.setUsername("newuser");
@@ -81,7 +89,7 @@ class IndexControllerTest {
     void shouldGetIndexPageForAuthenticatedUser() {
         // Arrange
         when(authenticationMetadata.getUserId()).thenReturn(userId);
-        when(userService.getById(userId)).thenReturn(testUser);
+        when(currentUserService.getCurrentUser(userId)).thenReturn(currentUser);
         when(advertService.getFirst20VisibleAdverts()).thenReturn(adverts);
         
         // Act
@@ -90,10 +98,10 @@ class IndexControllerTest {
         // Assert
         assertNotNull(result);
         assertEquals("index", result.getViewName());
-        assertEquals(testUser, result.getModel().get("user"));
+        assertEquals(currentUser, result.getModel().get("user"));
         assertEquals(adverts, result.getModel().get("adverts"));
         
-        verify(userService).getById(userId);
+        verify(currentUserService).getCurrentUser(userId);
         verify(advertService).getFirst20VisibleAdverts();
     }
 
@@ -112,7 +120,7 @@ class IndexControllerTest {
         assertNotNull(result.getModel().get("user"));
         assertEquals(adverts, result.getModel().get("adverts"));
         
-        verify(userService, never()).getById(any());
+        verify(currentUserService, never()).getCurrentUser(any());
         verify(advertService).getFirst20VisibleAdverts();
     }
 
@@ -158,7 +166,7 @@ class IndexControllerTest {
     void shouldGetAboutUsPageForAuthenticatedUser() {
         // Arrange
         when(authenticationMetadata.getUserId()).thenReturn(userId);
-        when(userService.getById(userId)).thenReturn(testUser);
+        when(currentUserService.getCurrentUser(userId)).thenReturn(currentUser);
         
         // Act
         ModelAndView result = indexController.GetAboutUsPage(authenticationMetadata);
@@ -166,9 +174,9 @@ class IndexControllerTest {
         // Assert
         assertNotNull(result);
         assertEquals("about-us", result.getViewName());
-        assertEquals(testUser, result.getModel().get("user"));
+        assertEquals(currentUser, result.getModel().get("user"));
         
-        verify(userService).getById(userId);
+        verify(currentUserService).getCurrentUser(userId);
     }
 
     @Test
@@ -182,7 +190,7 @@ class IndexControllerTest {
         assertEquals("about-us", result.getViewName());
         assertNotNull(result.getModel().get("user"));
         
-        verify(userService, never()).getById(any());
+        verify(currentUserService, never()).getCurrentUser(any());
     }
 
     @Test
@@ -190,7 +198,7 @@ class IndexControllerTest {
     void shouldGetContactPage() {
         // Arrange
         when(authenticationMetadata.getUserId()).thenReturn(userId);
-        when(userService.getById(userId)).thenReturn(testUser);
+        when(currentUserService.getCurrentUser(userId)).thenReturn(currentUser);
         
         // Act
         ModelAndView result = indexController.GetContactsPage(authenticationMetadata);
@@ -198,9 +206,9 @@ class IndexControllerTest {
         // Assert
         assertNotNull(result);
         assertEquals("contact", result.getViewName());
-        assertEquals(testUser, result.getModel().get("user"));
+        assertEquals(currentUser, result.getModel().get("user"));
         
-        verify(userService).getById(userId);
+        verify(currentUserService).getCurrentUser(userId);
     }
 
     @Test
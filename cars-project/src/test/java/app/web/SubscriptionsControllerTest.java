@@ -99,7 +99,7 @@ class SubscriptionsControllerTest {
     @DisplayName("Should return subscriptions page")
     void shouldReturnSubscriptionsPage() {
         // Arrange
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(userService.getByIdWithSubscriptions(testUserId)).thenReturn(testUser);
 
         // Act
         ModelAndView modelAndView = subscriptionsController.getSubscriptionsPage(authMetadata);
@@ -116,12 +116,12 @@ class SubscriptionsControllerTest {
         int planType = 1;
         String period = "MONTHLY";
         
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(userService.getByIdWithWallets(testUserId)).thenReturn(testUser);
         when(subscriptionService.upgrade(eq(testUser), eq(SubscriptionType.PLUS), any(UpgradeRequest.class)))
                 .thenReturn(testTransaction);
 
         // Act
-        String redirectUrl = subscriptionsController.changeSubscriptionType(planType, period, authMetadata);
+        String redirectUrl = subscriptionsController.changeSubscriptionType(planType, period, null, authMetadata);
 
         // Assert
         assertEquals("redirect:/transactions/" + testTransactionId, redirectUrl);
@@ -140,12 +140,12 @@ class SubscriptionsControllerTest {
         int planType = 2;
         String period = "YEARLY";
         
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(userService.getByIdWithWallets(testUserId)).thenReturn(testUser);
         when(subscriptionService.upgrade(eq(testUser), eq(SubscriptionType.PROFESSIONAL), any(UpgradeRequest.class)))
                 .thenReturn(testTransaction);
 
         // Act
-        String redirectUrl = subscriptionsController.changeSubscriptionType(planType, period, authMetadata);
+        String redirectUrl = subscriptionsController.changeSubscriptionType(planType, period, null, authMetadata);
 
         // Assert
         assertEquals("redirect:/transactions/" + testTransactionId, redirectUrl);
@@ -164,12 +164,12 @@ class SubscriptionsControllerTest {
         int planType = 99; // Invalid plan type
         String period = "MONTHLY";
         
-        when(userService.getById(testUserId)).thenReturn(testUser);
+        when(userService.getByIdWithWallets(testUserId)).thenReturn(testUser);
         when(subscriptionService.upgrade(eq(testUser), eq(SubscriptionType.DEFAULT), any(UpgradeRequest.class)))
                 .thenReturn(testTransaction);
 
         // Act
-        String redirectUrl = subscriptionsController.changeSubscriptionType(planType, period, authMetadata);
+        String redirectUrl = subscriptionsController.changeSubscriptionType(planType, period, null, authMetadata);
 
         // Assert
         assertEquals("redirect:/transactions/" + testTransactionId, redirectUrl);
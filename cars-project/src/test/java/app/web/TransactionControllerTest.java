@@ -2,11 +2,14 @@ package app.web;
 
 import app.security.AuthenticationMetadata;
 import app.transaction.model.Transaction;
+import app.transaction.model.TransactionExportFormat;
 import app.transaction.model.TransactionStatus;
 import app.transaction.model.TransactionType;
 import app.transaction.service.TransactionService;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
 import app.user.model.UserRole;
+import app.user.service.CurrentUserService;
 import app.user.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -15,8 +18,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Window;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -38,6 +46,9 @@ class TransactionControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private CurrentUserService currentUserService;
+
     @Mock
     private AuthenticationMetadata authenticationMetadata;
 
@@ -45,6 +56,7 @@ class TransactionControllerTest {
     private TransactionController transactionController;
 
     private User testUser;
+    private CurrentUserView currentUser;
     private Transaction testTransaction;
     private UUID userId;
     private UUID transactionId;
@@ -54,6 +66,7 @@ class TransactionControllerTest {
     void setUp() {
         userId = UUID.randomUUID();
         transactionId = UUID.randomUUID();
+        currentUser = new CurrentUserView(userId, "testuser", "Test", "User", null, UserRole.USER);
         
         testUser = User.builder()
                 .id(userId)
@@ -91,20 +104,42 @@ class TransactionControllerTest {
     void shouldGetAllTransactions() {
         // Arrange
         when(authenticationMetadata.getUserId()).thenReturn(userId);
-        when(userService.getById(userId)).thenReturn(testUser);
-        when(transactionService.getAllByOwnerId(userId)).thenReturn(transactions);
+        when(currentUserService.getCurrentUser(userId)).thenReturn(currentUser);
+        Window<Transaction> page = Window.from(transactions, ScrollPosition::offset, true);
+        when(transactionService.getHistoryPage(userId, null)).thenReturn(page);
+        when(transactionService.getNextCursor(page)).thenReturn("next");
+        when(transactionService.countByOwnerId(userId)).thenReturn(120L);
         
         // Act
-        ModelAndView result = transactionController.getAllTransactions(authenticationMetadata);
+        ModelAndView result = transactionController.getAllTransactions(authenticationMetadata, null);
         
         // Assert
         assertNotNull(result);
         assertEquals("transactions", result.getViewName());
-        assertEquals(testUser, result.getModel().get("user"));
+        assertEquals(currentUser, result.getModel().get("user"));
         assertEquals(transactions, result.getModel().get("transactions"));
+        assertEquals("next", result.getModel().get("nextCursor"));
+        assertEquals(120L, result.getModel().get("totalTransactions"));
+        assertEquals(true, result.getModel().get("firstPage"));
         
-        verify(userService).getById(userId);
-        verify(transactionService).getAllByOwnerId(userId);
+        verify(currentUserService).getCurrentUser(userId);
+        verify(transactionService).getHistoryPage(userId, null);
+    }
+
+    @Test
+    @DisplayName("Should stream the transaction export as a download")
+    void shouldExportTransactions() throws IOException {
+        // Arrange
+        when(authenticationMetadata.getUserId()).thenReturn(userId);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        transactionController.exportTransactions(authenticationMetadata, TransactionExportFormat.NDJSON, response);
+
+        // Assert
+        assertEquals("application/x-ndjson;charset=UTF-8", response.getContentType());
+        assertEquals("attachment; filename=\"transactions.ndjson\"", response.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+        verify(transactionService).exportByOwnerId(userId, TransactionExportFormat.NDJSON, response.getWriter());
     }
 
     @Test
@@ -112,7 +147,7 @@ class TransactionControllerTest {
     void shouldGetTransactionById() {
         // Arrange
         when(authenticationMetadata.getUserId()).thenReturn(userId);
-        when(userService.getById(userId)).thenReturn(testUser);
+        when(currentUserService.getCurrentUser(userId)).thenReturn(currentUser);
         when(transactionService.getById(transactionId)).thenReturn(testTransaction);
         
         // Act
@@ -121,10 +156,10 @@ class TransactionControllerTest {
         // Assert
         assertNotNull(result);
         assertEquals("transaction-result", result.getViewName());
-        assertEquals(testUser, result.getModel().get("user"));
+        assertEquals(currentUser, result.getModel().get("user"));
         assertEquals(testTransaction, result.getModel().get("transaction"));
         
-        verify(userService).getById(userId);
+        verify(currentUserService).getCurrentUser(userId);
         verify(transactionService).getById(transactionId);
     }
 }
\ No newline at end of file
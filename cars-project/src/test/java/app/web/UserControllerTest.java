@@ -1,10 +1,15 @@
 package app.web;
 
 import app.security.AuthenticationMetadata;
+import app.user.model.AdminUserRow;
+import app.user.model.CurrentUserView;
 import app.user.model.User;
 import app.user.model.UserRole;
+import app.user.service.CurrentUserService;
 import app.user.service.UserService;
 import app.vin.model.VinHistory;
+import app.wallet.model.Wallet;
+import app.wallet.service.WalletService;
 import app.web.dto.UserEditRequest;
 import app.web.mapper.DtoMapper;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,8 +20,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.servlet.ModelAndView;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -33,16 +41,23 @@ class UserControllerTest {
     @Mock
     private UserService userService;
 
+    @Mock
+    private CurrentUserService currentUserService;
+
     @Mock
     private AuthenticationMetadata authenticationMetadata;
 
     @Mock
     private BindingResult bindingResult;
 
+    @Mock
+    private WalletService walletService;
+
     @InjectMocks
     private UsersController usersController;
 
     private User testUser;
+    private CurrentUserView currentUser;
     private UUID userId;
     private UserEditRequest userEditRequest;
 
@@ -50,6 +65,7 @@ class UserControllerTest {
     @BeforeEach
     void setUp() {
         userId = UUID.randomUUID();
+        currentUser = new CurrentUserView(userId, "testuser", "Test", "User", null, UserRole.USER);
         testUser = User.builder()
                 .id(userId)
                 .username("testuser")
@@ -87,8 +103,11 @@ class UserControllerTest {
     @DisplayName("Should get profile page")
     void shouldGetProfilePage() {
         // Arrange
+        Wallet wallet = Wallet.builder().id(UUID.randomUUID()).owner(testUser).build();
+        testUser.setWallets(List.of(wallet));
         when(authenticationMetadata.getUserId()).thenReturn(userId);
-        when(userService.getById(userId)).thenReturn(testUser);
+        when(userService.getByIdWithSubscriptions(userId)).thenReturn(testUser);
+        when(walletService.getBalance(wallet)).thenReturn(new BigDecimal("42.50"));
         
         try (MockedStatic<DtoMapper> mockedStatic = mockStatic(DtoMapper.class)) {
             mockedStatic.when(() -> DtoMapper.mapUserToUserEditRequest(testUser))
@@ -102,8 +121,9 @@ class UserControllerTest {
             assertEquals("my-profile", result.getViewName());
             assertEquals(testUser, result.getModel().get("user"));
             assertEquals(userEditRequest, result.getModel().get("userEditRequest"));
+            assertEquals(new BigDecimal("42.50"), result.getModel().get("walletBalance"));
             
-            verify(userService).getById(userId);
+            verify(userService).getByIdWithSubscriptions(userId);
         }
     }
 
@@ -112,7 +132,7 @@ class UserControllerTest {
     void shouldGetVinHistoryPage() {
         // Arrange
         when(authenticationMetadata.getUserId()).thenReturn(userId);
-        when(userService.getById(userId)).thenReturn(testUser);
+        when(currentUserService.getCurrentUser(userId)).thenReturn(currentUser);
         
         // Act
         ModelAndView result = usersController.getVinHistoryPage(authenticationMetadata);
@@ -120,9 +140,30 @@ class UserControllerTest {
         // Assert
         assertNotNull(result);
         assertEquals("vin-history", result.getViewName());
-        assertEquals(testUser, result.getModel().get("user"));
+        assertEquals(currentUser, result.getModel().get("user"));
         
-        verify(userService).getById(userId);
+        verify(currentUserService).getCurrentUser(userId);
+    }
+
+    @Test
+    @DisplayName("Should get one page of the admin user list")
+    void shouldGetAdminUserPage() {
+        // Arrange
+        when(authenticationMetadata.getUserId()).thenReturn(userId);
+        when(currentUserService.getCurrentUser(userId)).thenReturn(currentUser);
+        AdminUserRow row = new AdminUserRow(userId, "testuser", "Test", "User", "test@example.com", UserRole.USER,
+                true, LocalDateTime.now(), 1);
+        when(userService.getAdminUserPage("test", 1)).thenReturn(new PageImpl<>(List.of(row), PageRequest.of(1, 50), 51));
+
+        // Act
+        ModelAndView result = usersController.getAllUsers(authenticationMetadata, 2, "test");
+
+        // Assert
+        assertEquals("admin/users", result.getViewName());
+        assertEquals(List.of(row), result.getModel().get("users"));
+        assertEquals(2, result.getModel().get("currentPage"));
+        assertEquals(2, result.getModel().get("totalPages"));
+        assertEquals("test", result.getModel().get("search"));
     }
 
     @Test
@@ -148,7 +189,7 @@ class UserControllerTest {
         // Arrange
         when(bindingResult.hasErrors()).thenReturn(true);
         when(authenticationMetadata.getUserId()).thenReturn(userId);
-        when(userService.getById(userId)).thenReturn(testUser);
+        when(userService.getByIdWithSubscriptions(userId)).thenReturn(testUser);
         
         // Act
         ModelAndView result = usersController.getProfilePage(authenticationMetadata, userEditRequest, bindingResult);
@@ -159,7 +200,7 @@ class UserControllerTest {
         assertEquals(testUser, result.getModel().get("user"));
         assertEquals(userEditRequest, result.getModel().get("userEditRequest"));
         
-        verify(userService).getById(userId);
+        verify(userService).getByIdWithSubscriptions(userId);
         verify(userService, never()).updateUserDetails(any(), any());
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package app.svc_vin_check.cache;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A decoded VIN as it is cached. The JSON is serialized once when the VIN is decoded and holds everything
+ * but the check timestamp, which is spliced in per response.
+ */
+public record DecodedVin(boolean valid, String manufacturer, String modelYear, String assemblyPlant, byte[] json) {
+
+    private static final byte[] CHECKED_AT_PREFIX = ",\"checked_at\":\"".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] CHECKED_AT_SUFFIX = "\"}".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * The cached JSON object with a checked_at field appended, the cached bytes stay untouched.
+     */
+    public byte[] jsonCheckedAt(String checkedAt) {
+        byte[] timestamp = checkedAt.getBytes(StandardCharsets.US_ASCII);
+        int bodyLength = json.length - 1;
+        byte[] result = new byte[bodyLength + CHECKED_AT_PREFIX.length + timestamp.length + CHECKED_AT_SUFFIX.length];
+        System.arraycopy(json, 0, result, 0, bodyLength);
+        int offset = bodyLength;
+        System.arraycopy(CHECKED_AT_PREFIX, 0, result, offset, CHECKED_AT_PREFIX.length);
+        offset += CHECKED_AT_PREFIX.length;
+        System.arraycopy(timestamp, 0, result, offset, timestamp.length);
+        offset += timestamp.length;
+        System.arraycopy(CHECKED_AT_SUFFIX, 0, result, offset, CHECKED_AT_SUFFIX.length);
+        return result;
+    }
+}
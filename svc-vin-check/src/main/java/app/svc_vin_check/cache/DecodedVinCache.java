@@ -0,0 +1,53 @@
+package app.svc_vin_check.cache;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Decoded VINs by their 17 character VIN. Popular cars are looked up by many bidders, a hit skips both the decode
+ * and the JSON serialization. The cache is bounded by the bytes it holds and publishes its hit and miss counts
+ * as cache.gets metrics.
+ */
+@Component
+public class DecodedVinCache {
+
+    public static final String CACHE_NAME = "decodedVins";
+
+    // Rough footprint of an entry besides its JSON: the key, the record and its strings
+    private static final int ENTRY_OVERHEAD_BYTES = 256;
+
+    private final Cache<String, DecodedVin> cache;
+
+    @Autowired
+    public DecodedVinCache(MeterRegistry meterRegistry,
+                           @Value("${vin.cache.max-bytes:33554432}") long maxBytes,
+                           @Value("${vin.cache.ttl-minutes:60}") long ttlMinutes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String vin, DecodedVin decoded) -> ENTRY_OVERHEAD_BYTES + decoded.json().length)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public DecodedVin get(String vin, Function<String, DecodedVin> decoder) {
+        return cache.get(vin, decoder);
+    }
+
+    public long size() {
+        // Evictions run as maintenance after writes, settle them first so the size reflects the byte cap
+        cache.cleanUp();
+        return cache.estimatedSize();
+    }
+}
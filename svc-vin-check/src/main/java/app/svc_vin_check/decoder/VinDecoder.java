@@ -0,0 +1,126 @@
+package app.svc_vin_check.decoder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Year;
+import java.util.Arrays;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decodes VINs against the registry. Validation, the check digit and every lookup are table driven, decoding
+ * allocates nothing besides what the caller asks of the {@link VinDecoding}.
+ */
+@Component
+public class VinDecoder {
+
+    public static final String UNKNOWN_MODEL_YEAR = "Unknown";
+
+    private static final int VIN_LENGTH = 17;
+    private static final int CHECK_DIGIT_POSITION = 8;
+    private static final int[] CHECK_DIGIT_WEIGHTS = {8, 7, 6, 5, 4, 3, 2, 10, 0, 9, 8, 7, 6, 5, 4, 3, 2};
+
+    // Value of every VIN character in the check digit sum, -1 for characters a VIN may not contain
+    private static final byte[] TRANSLITERATION = new byte[128];
+
+    static {
+        Arrays.fill(TRANSLITERATION, (byte) -1);
+        for (char c = '0'; c <= '9'; c++) {
+            TRANSLITERATION[c] = (byte) (c - '0');
+        }
+        String letters = "ABCDEFGHJKLMNPRSTUVWXYZ";
+        byte[] values = {1, 2, 3, 4, 5, 6, 7, 8, 1, 2, 3, 4, 5, 7, 9, 2, 3, 4, 5, 6, 7, 8, 9};
+        for (int i = 0; i < letters.length(); i++) {
+            TRANSLITERATION[letters.charAt(i)] = values[i];
+        }
+    }
+
+    private final VinRegistry registry;
+
+    @Autowired
+    public VinDecoder(@Value("${vin.registry.location:classpath:vin/registry.txt}") Resource registryLocation) throws IOException {
+        // Next year's models go on sale during the current year
+        try (InputStream in = registryLocation.getInputStream()) {
+            this.registry = VinRegistry.load(in, Year.now().getValue() + 1);
+        }
+    }
+
+    public VinDecoder(VinRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Whether the VIN has 17 characters of the VIN alphabet, which excludes I, O and Q
+     */
+    public boolean isWellFormed(CharSequence vin) {
+        if (vin == null || vin.length() != VIN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < VIN_LENGTH; i++) {
+            if (transliterate(vin.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a VIN into the given holder and returns it. A VIN that is not well formed leaves the holder
+     * unknown, a well formed one with a WMI missing from the registry leaves it well formed but unknown.
+     */
+    public VinDecoding decode(CharSequence vin, VinDecoding into) {
+        into.reset(vin);
+        if (!isWellFormed(vin)) {
+            return into;
+        }
+
+        int wmi = VinRegistry.wmiIndex(vin);
+        char plantCode = vin.charAt(10);
+        into.set(registry.manufacturer(wmi),
+                modelYear(vin),
+                plantCode,
+                registry.assemblyPlant(wmi, VinRegistry.alphabetIndex(plantCode)),
+                vin.charAt(CHECK_DIGIT_POSITION) == checkDigit(vin));
+        return into;
+    }
+
+    /**
+     * The check digit of a well formed VIN, 0-9 or X
+     */
+    static char checkDigit(CharSequence vin) {
+        int sum = 0;
+        for (int i = 0; i < VIN_LENGTH; i++) {
+            sum += transliterate(vin.charAt(i)) * CHECK_DIGIT_WEIGHTS[i];
+        }
+        int remainder = sum % 11;
+        return remainder == 10 ? 'X' : (char) ('0' + remainder);
+    }
+
+    private String modelYear(CharSequence vin) {
+        int yearCode = VinRegistry.alphabetIndex(vin.charAt(9));
+        String[] years = registry.modelYears(yearCode);
+        if (years.length == 0) {
+            return UNKNOWN_MODEL_YEAR;
+        }
+        if (years.length == 1) {
+            return years[0];
+        }
+        if (isNorthAmerican(vin)) {
+            // Cars and light trucks built for North America carry a digit in position 7 up to 2009, a letter from 2010
+            return years[Character.isDigit(vin.charAt(6)) ? 0 : 1];
+        }
+        return registry.modelYearLabel(yearCode);
+    }
+
+    private static boolean isNorthAmerican(CharSequence vin) {
+        char region = vin.charAt(0);
+        return region >= '1' && region <= '5';
+    }
+
+    private static int transliterate(char c) {
+        return c < TRANSLITERATION.length ? TRANSLITERATION[c] : -1;
+    }
+}
@@ -0,0 +1,96 @@
+package app.svc_vin_check.decoder;
+
+/**
+ * The result of decoding a VIN. It is a flat, mutable holder so a caller decoding many VINs can reuse one
+ * instance, decoding only stores references to the VIN and to registry strings. The VIN sections are cut out
+ * on demand.
+ */
+public final class VinDecoding {
+
+    private CharSequence vin;
+    private boolean wellFormed;
+    private String manufacturer;
+    private String modelYear;
+    private char plantCode;
+    private String assemblyPlant;
+    private boolean checkDigitValid;
+
+    void reset(CharSequence vin) {
+        this.vin = vin;
+        this.wellFormed = false;
+        this.manufacturer = null;
+        this.modelYear = null;
+        this.plantCode = 0;
+        this.assemblyPlant = null;
+        this.checkDigitValid = false;
+    }
+
+    void set(String manufacturer, String modelYear, char plantCode, String assemblyPlant, boolean checkDigitValid) {
+        this.wellFormed = true;
+        this.manufacturer = manufacturer;
+        this.modelYear = modelYear;
+        this.plantCode = plantCode;
+        this.assemblyPlant = assemblyPlant;
+        this.checkDigitValid = checkDigitValid;
+    }
+
+    public CharSequence getVin() {
+        return vin;
+    }
+
+    /**
+     * Whether the VIN has 17 characters of the VIN alphabet, which excludes I, O and Q
+     */
+    public boolean isWellFormed() {
+        return wellFormed;
+    }
+
+    /**
+     * Whether the VIN is well formed and its manufacturer is in the registry
+     */
+    public boolean isKnown() {
+        return manufacturer != null;
+    }
+
+    public String getManufacturer() {
+        return manufacturer;
+    }
+
+    /**
+     * The model year, or all the years the code may stand for, "Unknown" when position 10 is not a year code
+     */
+    public String getModelYear() {
+        return modelYear;
+    }
+
+    public char getPlantCode() {
+        return plantCode;
+    }
+
+    /**
+     * The name of the assembly plant, null when the registry does not name the plant code
+     */
+    public String getAssemblyPlant() {
+        return assemblyPlant;
+    }
+
+    /**
+     * Whether position 9 matches the check digit computed from the other positions. Only VINs issued for North
+     * America are required to carry one.
+     */
+    public boolean isCheckDigitValid() {
+        return checkDigitValid;
+    }
+
+    public String wmi() {
+        return vin.subSequence(0, 3).toString();
+    }
+
+    public String descriptorSection() {
+        return vin.subSequence(3, 8).toString();
+    }
+
+    public String productionSequence() {
+        return vin.subSequence(11, 17).toString();
+    }
+}
@@ -0,0 +1,180 @@
+package app.svc_vin_check.decoder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The WMI, plant and model year tables of the bundled registry file. Every table is an array indexed by VIN
+ * characters in the 36 character alphabet, a WMI by its three characters read as a base 36 number, so a lookup
+ * is a single array access.
+ */
+public final class VinRegistry {
+
+    static final int ALPHABET_SIZE = 36;
+    static final int WMI_SLOTS = ALPHABET_SIZE * ALPHABET_SIZE * ALPHABET_SIZE;
+
+    // Model year codes repeat every 30 years
+    private static final int MODEL_YEAR_CYCLE = 30;
+    private static final String[] NO_YEARS = new String[0];
+
+    private static final byte[] ALPHABET_INDEX = new byte[128];
+
+    static {
+        Arrays.fill(ALPHABET_INDEX, (byte) -1);
+        for (char c = '0'; c <= '9'; c++) {
+            ALPHABET_INDEX[c] = (byte) (c - '0');
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            ALPHABET_INDEX[c] = (byte) (c - 'A' + 10);
+        }
+    }
+
+    private final String[] manufacturers = new String[WMI_SLOTS];
+    private final String[][] plantsByWmi = new String[WMI_SLOTS][];
+    private final String[][] modelYears = new String[ALPHABET_SIZE][];
+    private final String[] modelYearLabels = new String[ALPHABET_SIZE];
+    private int wmiCount;
+
+    private VinRegistry() {
+    }
+
+    /**
+     * Reads a registry file, model years after the given one are not offered as candidates.
+     */
+    public static VinRegistry load(InputStream in, int latestModelYear) throws IOException {
+        VinRegistry registry = new VinRegistry();
+        Map<String, String[]> plantGroups = new HashMap<>();
+        Map<String, List<Integer>> wmisByPlantGroup = new HashMap<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String section = null;
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                if (line.startsWith("[")) {
+                    section = line;
+                    continue;
+                }
+
+                String[] fields = line.split(",");
+                if (section == null) {
+                    throw new IllegalArgumentException("Registry line " + lineNumber + " is outside of a section");
+                }
+                switch (section) {
+                    case "[model-years]" -> registry.addModelYear(code(fields[0], lineNumber), Integer.parseInt(fields[1]), latestModelYear);
+                    case "[wmi]" -> {
+                        int wmi = fields[0].length() == 3 ? wmiIndex(fields[0]) : -1;
+                        if (wmi < 0) {
+                            throw new IllegalArgumentException("Registry line " + lineNumber + " has an invalid WMI " + fields[0]);
+                        }
+                        registry.manufacturers[wmi] = fields[1];
+                        registry.wmiCount++;
+                        if (fields.length > 2) {
+                            wmisByPlantGroup.computeIfAbsent(fields[2], group -> new ArrayList<>()).add(wmi);
+                        }
+                    }
+                    case "[plants]" -> plantGroups.computeIfAbsent(fields[0], group -> new String[ALPHABET_SIZE])
+                            [code(fields[1], lineNumber)] = fields[2];
+                    default -> throw new IllegalArgumentException("Unknown registry section " + section);
+                }
+            }
+        }
+
+        // WMIs of a group share its plant table
+        wmisByPlantGroup.forEach((group, wmis) -> {
+            String[] plants = plantGroups.get(group);
+            if (plants == null) {
+                throw new IllegalArgumentException("Registry has no plants for group " + group);
+            }
+            wmis.forEach(wmi -> registry.plantsByWmi[wmi] = plants);
+        });
+        return registry;
+    }
+
+    /**
+     * The position of a character in the VIN alphabet, or -1 when it is not a digit or an upper case letter.
+     */
+    static int alphabetIndex(char c) {
+        return c < ALPHABET_INDEX.length ? ALPHABET_INDEX[c] : -1;
+    }
+
+    static int wmiIndex(CharSequence vin) {
+        if (vin.length() < 3) {
+            return -1;
+        }
+        int first = alphabetIndex(vin.charAt(0));
+        int second = alphabetIndex(vin.charAt(1));
+        int third = alphabetIndex(vin.charAt(2));
+        if (first < 0 || second < 0 || third < 0) {
+            return -1;
+        }
+        return (first * ALPHABET_SIZE + second) * ALPHABET_SIZE + third;
+    }
+
+    /**
+     * The manufacturer of a WMI index, null when the registry does not know it.
+     */
+    String manufacturer(int wmi) {
+        return manufacturers[wmi];
+    }
+
+    /**
+     * The assembly plant of a plant code, null when the manufacturer has no plant table or does not name the code.
+     */
+    String assemblyPlant(int wmi, int plantCode) {
+        String[] plants = plantsByWmi[wmi];
+        return plants == null ? null : plants[plantCode];
+    }
+
+    /**
+     * The model years a year code may stand for, oldest first.
+     */
+    String[] modelYears(int yearCode) {
+        String[] years = modelYears[yearCode];
+        return years == null ? NO_YEARS : years;
+    }
+
+    /**
+     * All model years of a year code joined for display, null when the code is not a year code.
+     */
+    String modelYearLabel(int yearCode) {
+        return modelYearLabels[yearCode];
+    }
+
+    public int wmiCount() {
+        return wmiCount;
+    }
+
+    private void addModelYear(int code, int firstYear, int latestModelYear) {
+        List<String> years = new ArrayList<>();
+        for (int year = firstYear; year <= latestModelYear; year += MODEL_YEAR_CYCLE) {
+            years.add(String.valueOf(year));
+        }
+        if (years.isEmpty()) {
+            return;
+        }
+        modelYears[code] = years.toArray(String[]::new);
+        modelYearLabels[code] = String.join(" or ", years);
+    }
+
+    private static int code(String field, int lineNumber) {
+        int code = field.length() == 1 ? alphabetIndex(field.charAt(0)) : -1;
+        if (code < 0) {
+            throw new IllegalArgumentException("Registry line " + lineNumber + " has an invalid code " + field);
+        }
+        return code;
+    }
+}
@@ -0,0 +1,25 @@
+package app.svc_vin_check.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VinBatchCheckRequest {
+
+    @NotEmpty(message = "VIN numbers are required")
+    private List<@NotBlank(message = "VIN number is required") String> vinNumbers;
+
+    @NotNull(message = "User ID is required")
+    private UUID userId;
+}
@@ -0,0 +1,19 @@
+package app.svc_vin_check.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VinCheckResultResponse {
+
+    private boolean alreadyChecked;
+    private boolean recorded;
+    private String status;
+    private String resultJson;
+    private VinCheckResponse check;
+}
@@ -0,0 +1,11 @@
+package app.svc_vin_check.exception;
+
+/**
+ * A batch request the batch endpoints refuse before streaming anything back
+ */
+public class InvalidBatchException extends RuntimeException {
+
+    public InvalidBatchException(String message) {
+        super(message);
+    }
+}
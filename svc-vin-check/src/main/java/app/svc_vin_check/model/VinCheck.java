@@ -9,13 +9,15 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "vin_checks")
+// A user's check of a VIN is recorded once, concurrent first checks are settled by the database
+@Table(name = "vin_checks", uniqueConstraints = @UniqueConstraint(name = "uk_vin_checks_user_vin", columnNames = {"userId", "vinNumber"}))
 @Data
 @Builder
 @NoArgsConstructor
@@ -1,5 +1,6 @@
 package app.svc_vin_check.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -18,5 +19,9 @@ public interface VinCheckRepository extends JpaRepository<VinCheck, UUID> {
     
     List<VinCheck> findByUserIdAndVinNumber(UUID userId, String vinNumber);
 
+    boolean existsByUserIdAndVinNumber(UUID userId, String vinNumber);
+
+    List<VinCheck> findByUserIdAndVinNumberIn(UUID userId, Collection<String> vinNumbers);
+
     Optional<VinCheck> findByIdAndUserId(UUID vinCheckId, UUID userId);
 }
\ No newline at end of file
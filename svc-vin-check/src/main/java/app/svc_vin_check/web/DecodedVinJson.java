@@ -0,0 +1,35 @@
+package app.svc_vin_check.web;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import app.svc_vin_check.decoder.VinDecoding;
+
+/**
+ * The JSON fields of a decoded VIN, shared by the single and the batch endpoints.
+ */
+final class DecodedVinJson {
+
+    static final String INVALID_RESULT_JSON = "{\"error\": \"Invalid VIN format\", \"status\": \"INVALID\"}";
+
+    private DecodedVinJson() {
+    }
+
+    /**
+     * Writes the fields of a known VIN into the current object
+     */
+    static void writeFields(JsonGenerator json, VinDecoding decoding) throws IOException {
+        json.writeStringField("manufacturer_code", decoding.wmi());
+        json.writeStringField("manufacturer", decoding.getManufacturer());
+        json.writeStringField("descriptor_section", decoding.descriptorSection());
+        json.writeStringField("model_year", decoding.getModelYear());
+        json.writeStringField("assembly_plant_code", String.valueOf(decoding.getPlantCode()));
+        if (decoding.getAssemblyPlant() != null) {
+            json.writeStringField("assembly_plant", decoding.getAssemblyPlant());
+        }
+        json.writeStringField("production_sequence", decoding.productionSequence());
+        json.writeBooleanField("check_digit_valid", decoding.isCheckDigitValid());
+        json.writeStringField("status", "VALID");
+    }
+}
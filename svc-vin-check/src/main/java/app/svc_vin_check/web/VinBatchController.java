@@ -0,0 +1,246 @@
+package app.svc_vin_check.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import app.svc_vin_check.decoder.VinDecoder;
+import app.svc_vin_check.decoder.VinDecoding;
+import app.svc_vin_check.dto.VinBatchCheckRequest;
+import app.svc_vin_check.exception.InvalidBatchException;
+import app.svc_vin_check.model.VinCheck;
+import app.svc_vin_check.repository.VinCheckRepository;
+import jakarta.validation.Valid;
+
+/**
+ * Batch endpoints for bulk importers such as dealer feeds. A batch is worked through in chunks: each chunk is
+ * decoded across the cores, saved in JDBC batches where the endpoint saves, and streamed back as one NDJSON line
+ * per VIN in request order before the next chunk starts.
+ */
+@RestController
+@RequestMapping("/vin-svc/api/v1")
+public class VinBatchController {
+
+    private static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+    private static final byte NEWLINE = '\n';
+
+    private final VinCheckRepository vinCheckRepository;
+    private final VinDecoder vinDecoder;
+    private final ObjectMapper objectMapper;
+    private final int maxBatchSize;
+    private final int chunkSize;
+
+    @Autowired
+    public VinBatchController(VinCheckRepository vinCheckRepository, VinDecoder vinDecoder, ObjectMapper objectMapper,
+                              @Value("${vin.batch.max-size:10000}") int maxBatchSize,
+                              @Value("${vin.batch.chunk-size:1000}") int chunkSize) {
+        this.vinCheckRepository = vinCheckRepository;
+        this.vinDecoder = vinDecoder;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Decode many VINs in one call. The decoded VIN cache is bypassed, a bulk import of unique VINs would only
+     * evict the VINs bidders keep looking up.
+     *
+     * @param vins The VINs to decode
+     * @return One line per VIN with the fields of get-vin and the VIN itself
+     */
+    @PostMapping("/decode-vins")
+    public ResponseEntity<StreamingResponseBody> decodeVins(@RequestBody List<String> vins) {
+        requireWithinMaxSize(vins);
+
+        StreamingResponseBody body = out -> {
+            for (int from = 0; from < vins.size(); from += chunkSize) {
+                List<String> chunk = vins.subList(from, Math.min(vins.size(), from + chunkSize));
+                byte[][] lines = new byte[chunk.size()][];
+                decodeInParallel(chunk, (decoding, i) -> lines[i] = decodedLine(decoding));
+                writeLines(out, lines);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Decode many VINs and record a check of each for the user in one call. Every chunk is saved in its own
+     * transaction, so the lines streamed before a failure are saved.
+     *
+     * @param request The VIN numbers and the user ID
+     * @return One line per VIN with the ID of the saved check and its decoded values
+     */
+    @PostMapping("/save-vin-checks")
+    public ResponseEntity<StreamingResponseBody> saveVinChecks(@Valid @RequestBody VinBatchCheckRequest request) {
+        List<String> vins = request.getVinNumbers();
+        // Checked before streaming starts, a row failing on the database would cut the stream half way through
+        if (request.getUserId() == null) {
+            throw new InvalidBatchException("User ID is required");
+        }
+        if (vins == null || vins.isEmpty()) {
+            throw new InvalidBatchException("VIN numbers are required");
+        }
+        if (vins.stream().anyMatch(vin -> vin == null || vin.isBlank())) {
+            throw new InvalidBatchException("VIN number is required");
+        }
+        requireWithinMaxSize(vins);
+
+        StreamingResponseBody body = out -> {
+            // A VIN is recorded once per user, a repeat in the batch or one checked before streams the existing check
+            Map<String, VinCheck> recorded = new HashMap<>();
+            for (int from = 0; from < vins.size(); from += chunkSize) {
+                List<String> chunk = vins.subList(from, Math.min(vins.size(), from + chunkSize));
+                LocalDateTime checkedAt = LocalDateTime.now();
+                VinCheck[] checks = new VinCheck[chunk.size()];
+                decodeInParallel(chunk, (decoding, i) -> checks[i] = toVinCheck(decoding, request.getUserId(), checkedAt));
+
+                List<String> chunkVins = Arrays.stream(checks).map(VinCheck::getVinNumber).toList();
+                vinCheckRepository.findByUserIdAndVinNumberIn(request.getUserId(), chunkVins)
+                        .forEach(existing -> recorded.putIfAbsent(existing.getVinNumber(), existing));
+                List<VinCheck> unrecorded = new ArrayList<>(checks.length);
+                for (int i = 0; i < checks.length; i++) {
+                    VinCheck existing = recorded.putIfAbsent(checks[i].getVinNumber(), checks[i]);
+                    if (existing == null) {
+                        unrecorded.add(checks[i]);
+                    } else {
+                        checks[i] = existing;
+                    }
+                }
+
+                vinCheckRepository.saveAll(unrecorded);
+                byte[][] lines = new byte[checks.length][];
+                for (int i = 0; i < lines.length; i++) {
+                    lines[i] = savedLine(checks[i]);
+                }
+                writeLines(out, lines);
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Splits a chunk into one slice per core, every slice decodes its VINs into a single reused holder. The action
+     * gets the index of the VIN in the chunk.
+     */
+    private void decodeInParallel(List<String> chunk, ObjIntConsumer<VinDecoding> action) {
+        int sliceSize = (chunk.size() + PARALLELISM - 1) / PARALLELISM;
+        int slices = (chunk.size() + sliceSize - 1) / sliceSize;
+        IntStream.range(0, slices).parallel().forEach(slice -> {
+            VinDecoding decoding = new VinDecoding();
+            int end = Math.min(chunk.size(), (slice + 1) * sliceSize);
+            for (int i = slice * sliceSize; i < end; i++) {
+                action.accept(vinDecoder.decode(chunk.get(i), decoding), i);
+            }
+        });
+    }
+
+    private VinCheck toVinCheck(VinDecoding decoding, UUID userId, LocalDateTime checkedAt) {
+        VinCheck.VinCheckBuilder check = VinCheck.builder()
+                .vinNumber(decoding.getVin().toString())
+                .userId(userId)
+                .checkedAt(checkedAt);
+
+        if (!decoding.isKnown()) {
+            return check.manufacturer("Unknown")
+                    .modelYear("Unknown")
+                    .assemblyPlant("Unknown")
+                    .status("INVALID")
+                    .resultJson(DecodedVinJson.INVALID_RESULT_JSON)
+                    .build();
+        }
+
+        String resultJson = new String(writeLine(json -> {
+            json.writeStartObject();
+            DecodedVinJson.writeFields(json, decoding);
+            json.writeStringField("checked_at", checkedAt.toString());
+            json.writeEndObject();
+        }), StandardCharsets.UTF_8);
+        return check.manufacturer(decoding.getManufacturer())
+                .modelYear(decoding.getModelYear())
+                .assemblyPlant(String.valueOf(decoding.getPlantCode()))
+                .status("VALID")
+                .resultJson(resultJson)
+                .build();
+    }
+
+    private byte[] decodedLine(VinDecoding decoding) {
+        return writeLine(json -> {
+            json.writeStartObject();
+            json.writeStringField("vin", decoding.getVin() == null ? null : decoding.getVin().toString());
+            if (decoding.isKnown()) {
+                DecodedVinJson.writeFields(json, decoding);
+            } else {
+                json.writeStringField("error", "Invalid VIN format");
+                json.writeStringField("status", "INVALID");
+            }
+            json.writeEndObject();
+        });
+    }
+
+    private byte[] savedLine(VinCheck check) {
+        return writeLine(json -> {
+            json.writeStartObject();
+            json.writeStringField("vin", check.getVinNumber());
+            json.writeStringField("id", String.valueOf(check.getId()));
+            json.writeStringField("status", check.getStatus());
+            json.writeStringField("manufacturer", check.getManufacturer());
+            json.writeStringField("model_year", check.getModelYear());
+            json.writeStringField("assembly_plant_code", check.getAssemblyPlant());
+            json.writeEndObject();
+        });
+    }
+
+    private byte[] writeLine(JsonWriter writer) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            writer.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeLines(OutputStream out, byte[][] lines) throws IOException {
+        for (byte[] line : lines) {
+            out.write(line);
+            out.write(NEWLINE);
+        }
+        // Hand every chunk to the client as soon as it is done
+        out.flush();
+    }
+
+    private void requireWithinMaxSize(List<String> vins) {
+        if (vins.size() > maxBatchSize) {
+            throw new InvalidBatchException("A batch holds at most " + maxBatchSize + " VINs.");
+        }
+    }
+
+    @FunctionalInterface
+    private interface JsonWriter {
+        void write(JsonGenerator json) throws IOException;
+    }
+}
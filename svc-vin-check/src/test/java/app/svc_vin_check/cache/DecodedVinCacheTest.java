@@ -0,0 +1,63 @@
+package app.svc_vin_check.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class DecodedVinCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should decode a VIN once and count hits and misses")
+    public void shouldDecodeOnceAndCountHits() {
+        DecodedVinCache cache = new DecodedVinCache(meterRegistry, 1_000_000, 60);
+        AtomicInteger decodes = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            cache.get("WBAWL73589P473158", vin -> {
+                decodes.incrementAndGet();
+                return decoded("{\"manufacturer\":\"BMW\"}");
+            });
+        }
+
+        assertEquals(1, decodes.get());
+        assertEquals(2, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should cap the cache by the bytes it holds")
+    public void shouldCapCacheByBytes() {
+        DecodedVinCache cache = new DecodedVinCache(meterRegistry, 10 * 1_256, 60);
+
+        for (int i = 0; i < 100; i++) {
+            cache.get("VIN" + i, vin -> decoded("{" + " ".repeat(998) + "}"));
+        }
+        cache.get("VIN0", vin -> decoded("{}"));
+
+        assertTrue(cache.size() <= 10);
+    }
+
+    @Test
+    @DisplayName("Should append the check time to the cached JSON without changing it")
+    public void shouldAppendCheckedAt() {
+        DecodedVin decoded = decoded("{\"manufacturer\":\"BMW\",\"status\":\"VALID\"}");
+
+        byte[] json = decoded.jsonCheckedAt("2026-01-02T03:04:05");
+
+        assertEquals("{\"manufacturer\":\"BMW\",\"status\":\"VALID\",\"checked_at\":\"2026-01-02T03:04:05\"}",
+                new String(json, StandardCharsets.UTF_8));
+        assertEquals("{\"manufacturer\":\"BMW\",\"status\":\"VALID\"}", new String(decoded.json(), StandardCharsets.UTF_8));
+    }
+
+    private static DecodedVin decoded(String json) {
+        return new DecodedVin(true, "BMW", "2009", "P", json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,116 @@
+package app.svc_vin_check.decoder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+public class VinDecoderTest {
+
+    private static final int LATEST_MODEL_YEAR = 2027;
+
+    private final VinDecoder decoder = new VinDecoder(loadRegistry());
+
+    @Test
+    @DisplayName("Should decode manufacturer, model year, plant and a valid check digit")
+    public void shouldDecodeKnownVin() {
+        VinDecoding decoding = decoder.decode("5YJ3E1EA0PF446330", new VinDecoding());
+
+        assertTrue(decoding.isWellFormed());
+        assertTrue(decoding.isKnown());
+        assertEquals("Tesla", decoding.getManufacturer());
+        assertEquals("2023", decoding.getModelYear());
+        assertEquals('F', decoding.getPlantCode());
+        assertEquals("Fremont", decoding.getAssemblyPlant());
+        assertTrue(decoding.isCheckDigitValid());
+        assertEquals("5YJ", decoding.wmi());
+        assertEquals("3E1EA", decoding.descriptorSection());
+        assertEquals("446330", decoding.productionSequence());
+    }
+
+    @Test
+    @DisplayName("Should report a wrong check digit without rejecting the VIN")
+    public void shouldReportWrongCheckDigit() {
+        VinDecoding decoding = decoder.decode("5YJ3E1EA1PF446330", new VinDecoding());
+
+        assertTrue(decoding.isKnown());
+        assertFalse(decoding.isCheckDigitValid());
+    }
+
+    @Test
+    @DisplayName("Should compute X as the check digit when the remainder is 10")
+    public void shouldComputeCheckDigitX() {
+        assertEquals('X', VinDecoder.checkDigit("1M8GDM9AXKP042788"));
+        assertEquals('3', VinDecoder.checkDigit("1HGCM82633A004352"));
+    }
+
+    @Test
+    @DisplayName("Should pick the model year cycle from position 7 of North American VINs only")
+    public void shouldResolveModelYearCycle() {
+        assertEquals("2003", decoder.decode("1HGCM82633A004352", new VinDecoding()).getModelYear());
+        assertEquals("2023", decoder.decode("1HGCM8E61PA004352", new VinDecoding()).getModelYear());
+        assertEquals("1996 or 2026", decoder.decode("WVWZZZ1JZTW000001", new VinDecoding()).getModelYear());
+        assertEquals("2009", decoder.decode("WBAWL73589P473158", new VinDecoding()).getModelYear());
+        assertEquals(VinDecoder.UNKNOWN_MODEL_YEAR, decoder.decode("WBAWL7358ZP473158", new VinDecoding()).getModelYear());
+    }
+
+    @Test
+    @DisplayName("Should reject VINs with a wrong length or the letters I, O and Q")
+    public void shouldRejectMalformedVins() {
+        assertFalse(decoder.isWellFormed(null));
+        assertFalse(decoder.isWellFormed("5YJ3E1EA0PF44633"));
+        assertFalse(decoder.isWellFormed("5YJ3E1EA0PF4463301"));
+        assertFalse(decoder.isWellFormed("5YJ3E1EA0PF44633I"));
+        assertFalse(decoder.isWellFormed("5YJ3E1EA0PF44633o"));
+        assertFalse(decoder.isWellFormed("5YJ3E1EA0PF44633Q"));
+
+        VinDecoding decoding = decoder.decode("5YJ3E1EA0PF44633Q", new VinDecoding());
+        assertFalse(decoding.isWellFormed());
+        assertFalse(decoding.isKnown());
+    }
+
+    @Test
+    @DisplayName("Should leave a well formed VIN of an unregistered manufacturer unknown")
+    public void shouldNotKnowUnregisteredWmi() {
+        VinDecoding decoding = decoder.decode("ZZZ12345678901234", new VinDecoding());
+
+        assertTrue(decoding.isWellFormed());
+        assertFalse(decoding.isKnown());
+        assertNull(decoding.getManufacturer());
+    }
+
+    @Test
+    @DisplayName("Should reuse one holder across decodes without keeping earlier results")
+    public void shouldResetReusedHolder() {
+        VinDecoding decoding = new VinDecoding();
+
+        decoder.decode("5YJ3E1EA0PF446330", decoding);
+        decoder.decode("WBAWL73589P473158", decoding);
+
+        assertEquals("BMW", decoding.getManufacturer());
+        assertNull(decoding.getAssemblyPlant());
+    }
+
+    @Test
+    @DisplayName("Should fail to load a registry with an invalid WMI")
+    public void shouldRejectInvalidRegistry() {
+        InputStream registry = new ByteArrayInputStream("[wmi]\nW1,Broken\n".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> VinRegistry.load(registry, LATEST_MODEL_YEAR));
+    }
+
+    private static VinRegistry loadRegistry() {
+        try (InputStream in = VinDecoderTest.class.getResourceAsStream("/vin/registry.txt")) {
+            VinRegistry registry = VinRegistry.load(in, LATEST_MODEL_YEAR);
+            assertTrue(registry.wmiCount() > 200);
+            return registry;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package app.svc_vin_check.web;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -20,19 +24,25 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import app.svc_vin_check.cache.DecodedVinCache;
 import app.svc_vin_check.config.SecurityConfig;
+import app.svc_vin_check.decoder.VinDecoder;
 import app.svc_vin_check.dto.VinCheckRequest;
 import app.svc_vin_check.model.VinCheck;
 import app.svc_vin_check.repository.VinCheckRepository;
 
 @WebMvcTest(IndexController.class)
-@Import(SecurityConfig.class)
+@Import({SecurityConfig.class, DecodedVinCache.class, VinDecoder.class, SimpleMeterRegistry.class})
 public class IndexControllerTest {
 
     @Autowired
@@ -43,6 +53,9 @@ public class IndexControllerTest {
     
     @Autowired
     private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Test
     @DisplayName("Should allow access to VIN endpoint without authentication")
@@ -458,4 +471,134 @@ public class IndexControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().string("false"));
     }
-}
\ No newline at end of file
+    
+    @Test
+    @DisplayName("Should decode and record a first VIN check in one call")
+    public void shouldDecodeAndRecordFirstVinCheck() throws Exception {
+        // Setup
+        UUID userId = UUID.randomUUID();
+        String vin = "WBAWL73589P473158";
+        
+        when(vinCheckRepository.existsByUserIdAndVinNumber(userId, vin)).thenReturn(false);
+        when(vinCheckRepository.save(any(VinCheck.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        // Execute
+        mockMvc.perform(post("/vin-svc/api/v1/check-vin")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new VinCheckRequest(vin, userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.alreadyChecked", is(false)))
+                .andExpect(jsonPath("$.recorded", is(true)))
+                .andExpect(jsonPath("$.status", is("VALID")))
+                .andExpect(jsonPath("$.resultJson", containsString("\"manufacturer\":\"BMW\"")))
+                .andExpect(jsonPath("$.check.manufacturer", is("BMW")));
+        
+        verify(vinCheckRepository, times(1)).save(any(VinCheck.class));
+    }
+    
+    @Test
+    @DisplayName("Should not record a VIN the user already checked")
+    public void shouldNotRecordAlreadyCheckedVin() throws Exception {
+        // Setup
+        UUID userId = UUID.randomUUID();
+        String vin = "WBAWL73589P473158";
+        
+        when(vinCheckRepository.existsByUserIdAndVinNumber(userId, vin)).thenReturn(true);
+        
+        // Execute
+        mockMvc.perform(post("/vin-svc/api/v1/check-vin")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new VinCheckRequest(vin, userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.alreadyChecked", is(true)))
+                .andExpect(jsonPath("$.recorded", is(false)))
+                .andExpect(jsonPath("$.status", is("VALID")));
+        
+        verify(vinCheckRepository, never()).save(any(VinCheck.class));
+    }
+    
+    @Test
+    @DisplayName("Should report a VIN as already checked when a concurrent check recorded it first")
+    public void shouldReportAlreadyCheckedWhenConcurrentCheckWins() throws Exception {
+        // Setup
+        UUID userId = UUID.randomUUID();
+        String vin = "WBAWL73589P473158";
+        
+        when(vinCheckRepository.existsByUserIdAndVinNumber(userId, vin)).thenReturn(false);
+        when(vinCheckRepository.save(any(VinCheck.class))).thenThrow(new DataIntegrityViolationException("uk_vin_checks_user_vin"));
+        
+        // Execute
+        mockMvc.perform(post("/vin-svc/api/v1/check-vin")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new VinCheckRequest(vin, userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.alreadyChecked", is(true)))
+                .andExpect(jsonPath("$.recorded", is(false)))
+                .andExpect(jsonPath("$.status", is("VALID")));
+    }
+    
+    @Test
+    @DisplayName("Should answer a repeated save with the check already recorded")
+    public void shouldReturnExistingCheckOnRepeatedSave() throws Exception {
+        // Setup
+        UUID userId = UUID.randomUUID();
+        String vin = "WBAWL73589P473158";
+        VinCheck existing = VinCheck.builder()
+            .id(UUID.randomUUID())
+            .vinNumber(vin)
+            .userId(userId)
+            .manufacturer("BMW")
+            .build();
+        
+        when(vinCheckRepository.save(any(VinCheck.class))).thenThrow(new DataIntegrityViolationException("uk_vin_checks_user_vin"));
+        when(vinCheckRepository.findByUserIdAndVinNumber(userId, vin)).thenReturn(List.of(existing));
+        
+        // Execute
+        mockMvc.perform(post("/vin-svc/api/v1/save-vin-check")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new VinCheckRequest(vin, userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(existing.getId().toString())))
+                .andExpect(jsonPath("$.manufacturer", is("BMW")));
+    }
+    
+    @Test
+    @DisplayName("Should only decode when asked not to record the check")
+    public void shouldOnlyDecodeWhenNotRecording() throws Exception {
+        // Setup
+        UUID userId = UUID.randomUUID();
+        String vin = "ABC123";
+        
+        // Execute
+        mockMvc.perform(post("/vin-svc/api/v1/check-vin")
+                .param("record", "false")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new VinCheckRequest(vin, userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.alreadyChecked", is(false)))
+                .andExpect(jsonPath("$.recorded", is(false)))
+                .andExpect(jsonPath("$.status", is("INVALID")));
+        
+        verify(vinCheckRepository, never()).save(any(VinCheck.class));
+    }
+    
+    @Test
+    @DisplayName("Should serve a repeated VIN from the decoded VIN cache")
+    public void shouldServeRepeatedVinFromCache() throws Exception {
+        String vin = "WDDGF4HB1CA123456";
+        double hitsBefore = meterRegistry.get("cache.gets").tag("cache", DecodedVinCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count();
+        
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(get("/vin-svc/api/v1/get-vin").param("vin", vin))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.manufacturer", is("Mercedes-Benz")))
+                    .andExpect(jsonPath("$.status", is("VALID")))
+                    .andExpect(jsonPath("$.checked_at", not(emptyString())));
+        }
+        
+        double hits = meterRegistry.get("cache.gets").tag("cache", DecodedVinCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count();
+        assertTrue(hits - hitsBefore >= 2);
+    }
+}
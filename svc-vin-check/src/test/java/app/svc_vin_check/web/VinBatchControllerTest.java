@@ -0,0 +1,192 @@
+package app.svc_vin_check.web;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import app.svc_vin_check.config.SecurityConfig;
+import app.svc_vin_check.decoder.VinDecoder;
+import app.svc_vin_check.dto.VinBatchCheckRequest;
+import app.svc_vin_check.model.VinCheck;
+import app.svc_vin_check.repository.VinCheckRepository;
+
+@WebMvcTest(VinBatchController.class)
+@Import({SecurityConfig.class, VinDecoder.class})
+@TestPropertySource(properties = {"vin.batch.max-size=3", "vin.batch.chunk-size=2"})
+public class VinBatchControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private VinCheckRepository vinCheckRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("Should stream one decoded line per VIN in request order")
+    public void shouldStreamDecodedVinsInOrder() throws Exception {
+        List<String> vins = List.of("WBAWL73589P473158", "INVALID", "5YJ3E1EA0PF446330");
+
+        MvcResult result = mockMvc.perform(post("/vin-svc/api/v1/decode-vins")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(vins)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        List<Map<String, Object>> lines = lines(body);
+        assertEquals(3, lines.size());
+        assertEquals("WBAWL73589P473158", lines.get(0).get("vin"));
+        assertEquals("BMW", lines.get(0).get("manufacturer"));
+        assertEquals("VALID", lines.get(0).get("status"));
+        assertEquals("INVALID", lines.get(1).get("status"));
+        assertEquals("Tesla", lines.get(2).get("manufacturer"));
+        assertEquals("Fremont", lines.get(2).get("assembly_plant"));
+        assertEquals(true, lines.get(2).get("check_digit_valid"));
+    }
+
+    @Test
+    @DisplayName("Should reject a batch larger than the maximum size")
+    public void shouldRejectBatchOverMaxSize() throws Exception {
+        List<String> vins = List.of("WBAWL73589P473158", "WBAWL73589P473159", "WBAWL73589P473160", "WBAWL73589P473161");
+
+        mockMvc.perform(post("/vin-svc/api/v1/decode-vins")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(vins)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status", is("INVALID")))
+                .andExpect(jsonPath("$.error", containsString("3")));
+    }
+
+    @Test
+    @DisplayName("Should save the checks of every chunk in one batch and stream their IDs")
+    public void shouldSaveChecksPerChunk() throws Exception {
+        UUID userId = UUID.randomUUID();
+        List<String> vins = List.of("WBAWL73589P473158", "ZZZ12345678901234", "5YJ3E1EA0PF446330");
+        when(vinCheckRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<VinCheck> checks = invocation.getArgument(0);
+            checks.forEach(check -> check.setId(UUID.randomUUID()));
+            return checks;
+        });
+
+        MvcResult result = mockMvc.perform(post("/vin-svc/api/v1/save-vin-checks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new VinBatchCheckRequest(vins, userId))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Map<String, Object>> lines = lines(body);
+        assertEquals(3, lines.size());
+        assertEquals("BMW", lines.get(0).get("manufacturer"));
+        assertEquals("VALID", lines.get(0).get("status"));
+        assertEquals("INVALID", lines.get(1).get("status"));
+        assertEquals("5YJ3E1EA0PF446330", lines.get(2).get("vin"));
+        lines.forEach(line -> assertEquals(36, line.get("id").toString().length()));
+
+        // Three VINs in chunks of two
+        verify(vinCheckRepository, times(2)).saveAll(anyList());
+    }
+
+    @Test
+    @DisplayName("Should save a VIN once per user and stream the existing check for repeats")
+    public void shouldNotSaveVinTwice() throws Exception {
+        UUID userId = UUID.randomUUID();
+        VinCheck recorded = VinCheck.builder()
+                .id(UUID.randomUUID())
+                .vinNumber("5YJ3E1EA0PF446330")
+                .userId(userId)
+                .status("VALID")
+                .build();
+        List<String> vins = List.of("WBAWL73589P473158", "WBAWL73589P473158", "5YJ3E1EA0PF446330");
+        when(vinCheckRepository.findByUserIdAndVinNumberIn(eq(userId), anyCollection()))
+                .thenAnswer(invocation -> invocation.<Collection<String>>getArgument(1).contains(recorded.getVinNumber())
+                        ? List.of(recorded) : List.of());
+        List<VinCheck> saved = new ArrayList<>();
+        when(vinCheckRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<VinCheck> checks = invocation.getArgument(0);
+            checks.forEach(check -> check.setId(UUID.randomUUID()));
+            saved.addAll(checks);
+            return checks;
+        });
+
+        MvcResult result = mockMvc.perform(post("/vin-svc/api/v1/save-vin-checks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new VinBatchCheckRequest(vins, userId))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        List<Map<String, Object>> lines = lines(body);
+        assertEquals(3, lines.size());
+        assertEquals(lines.get(0).get("id"), lines.get(1).get("id"));
+        assertEquals(recorded.getId().toString(), lines.get(2).get("id"));
+        assertEquals(List.of("WBAWL73589P473158"), saved.stream().map(VinCheck::getVinNumber).toList());
+    }
+
+    @Test
+    @DisplayName("Should require a user ID to save a batch")
+    public void shouldRequireUserIdToSaveBatch() throws Exception {
+        mockMvc.perform(post("/vin-svc/api/v1/save-vin-checks")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(new VinBatchCheckRequest(List.of("WBAWL73589P473158"), null))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.status", is("INVALID")))
+                .andExpect(jsonPath("$.error", is("User ID is required")));
+
+        verify(vinCheckRepository, never()).saveAll(anyList());
+    }
+
+    private List<Map<String, Object>> lines(String body) {
+        return body.lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.<Map<String, Object>>readValue(line, objectMapper.getTypeFactory()
+                                .constructMapType(Map.class, String.class, Object.class));
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+}